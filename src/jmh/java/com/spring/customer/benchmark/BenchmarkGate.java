@@ -0,0 +1,82 @@
+package com.spring.customer.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Compares a run with a baseline JMH JSON result file. Benchmarks are matched by name, mode
+ * and parameters; ones missing from the baseline are skipped.
+ */
+final class BenchmarkGate {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    // below this many bytes per op an increase is noise (alignment, TLAB refills)
+    private static final double ALLOCATION_SLACK = 16;
+
+    private BenchmarkGate() { }
+
+    static List<String> regressions(Path baselineFile, Collection<RunResult> results, double tolerance)
+            throws IOException {
+
+        Map<String, JsonNode> baseline = new HashMap<>();
+        for (JsonNode entry : new ObjectMapper().readTree(baselineFile.toFile())) {
+            Map<String, String> params = new TreeMap<>();
+            entry.path("params").fields().forEachRemaining(p -> params.put(p.getKey(), p.getValue().asText()));
+            baseline.put(key(entry.path("benchmark").asText(), entry.path("mode").asText(), params), entry);
+        }
+
+        List<String> regressions = new ArrayList<>();
+        for (RunResult result : results) {
+            BenchmarkParams benchmark = result.getParams();
+            Map<String, String> params = new TreeMap<>();
+            benchmark.getParamsKeys().forEach(k -> params.put(k, benchmark.getParam(k)));
+            String key = key(benchmark.getBenchmark(), benchmark.getMode().shortLabel(), params);
+
+            JsonNode before = baseline.get(key);
+            if (before == null) {
+                continue;
+            }
+
+            double was = before.path("primaryMetric").path("score").asDouble();
+            double now = result.getPrimaryResult().getScore();
+            boolean higherIsBetter = benchmark.getMode() == Mode.Throughput;
+            if (higherIsBetter ? now < was * (1 - tolerance) : now > was * (1 + tolerance)) {
+                regressions.add(String.format("%s: %.3f -> %.3f %s", key, was, now,
+                        result.getPrimaryResult().getScoreUnit()));
+            }
+
+            Result<?> allocation = secondary(result, ALLOCATION);
+            JsonNode allocationBefore = before.path("secondaryMetrics").path(ALLOCATION);
+            if (allocation != null && !allocationBefore.isMissingNode()) {
+                double bytesWas = allocationBefore.path("score").asDouble();
+                double bytesNow = allocation.getScore();
+                if (bytesNow > bytesWas * (1 + tolerance) && bytesNow - bytesWas > ALLOCATION_SLACK) {
+                    regressions.add(String.format("%s: %.0f -> %.0f B/op", key, bytesWas, bytesNow));
+                }
+            }
+        }
+        return regressions;
+    }
+
+    private static Result<?> secondary(RunResult result, String label) {
+        for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+            // older JMH versions prefix profiler labels with a middle dot
+            if (entry.getKey().replace("·", "").equals(label)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String key(String benchmark, String mode, Map<String, String> params) {
+        return params.isEmpty() ? benchmark + " [" + mode + "]" : benchmark + " [" + mode + "] " + params;
+    }
+}
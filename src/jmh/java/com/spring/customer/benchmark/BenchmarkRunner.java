@@ -0,0 +1,71 @@
+package com.spring.customer.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Entry point of the {@code jmh} profile. Takes the usual JMH command line and adds the gc
+ * profiler and a JSON result file ({@code target/jmh-result.json}) unless given otherwise.
+ * <p>
+ * {@code --baseline <file>} compares the run with an earlier result file and exits with 1 when
+ * a benchmark got slower, or allocates more per operation, by more than {@code --tolerance}
+ * percent (default 10), so a release build can be gated on it.
+ */
+public final class BenchmarkRunner {
+
+    private static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+    private BenchmarkRunner() { }
+
+    public static void main(String[] args) throws Exception {
+
+        String baseline = null;
+        double tolerance = 0.10;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--baseline" -> baseline = args[++i];
+                case "--tolerance" -> tolerance = Double.parseDouble(args[++i]) / 100;
+                default -> jmhArgs.add(args[i]);
+            }
+        }
+
+        CommandLineOptions cli = new CommandLineOptions(jmhArgs.toArray(String[]::new));
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams()
+                || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(jmhArgs.toArray(String[]::new));
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(cli)
+                .resultFormat(cli.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(cli.getResult().orElse(DEFAULT_RESULT));
+        if (cli.getProfilers().stream().noneMatch(p -> p.getKlass().equals("gc")
+                || p.getKlass().equals(GCProfiler.class.getName()))) {
+            options.addProfiler(GCProfiler.class);
+        }
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        if (baseline != null) {
+            List<String> regressions = BenchmarkGate.regressions(Path.of(baseline), results, tolerance);
+            if (!regressions.isEmpty()) {
+                System.err.println("Benchmark regressions against " + baseline + ":");
+                regressions.forEach(regression -> System.err.println("  " + regression));
+                System.exit(1);
+            }
+            System.out.println("No regressions against " + baseline);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.spring.customer.benchmark;
+
+import com.spring.customer.CustomerManagementApplication;
+import com.spring.customer.dto.BulkCreateResult;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.service.CustomerBulkService;
+import com.spring.customer.service.CustomerService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second for {@code POST /customers} in a loop versus {@code POST /customers/bulk},
+ * measured at the service layer against the embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BulkCreateBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private CustomerBulkService customerBulkService;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CustomerManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:bulkBenchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        customerService = context.getBean(CustomerService.class);
+        customerBulkService = context.getBean(CustomerBulkService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singleItem(Blackhole blackhole) {
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(customerService.createCustomer(nextCustomer()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<BulkCreateResult> bulk() {
+        List<Customer> batch = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            batch.add(nextCustomer());
+        }
+        return customerBulkService.createCustomers(batch);
+    }
+
+    private Customer nextCustomer() {
+        long n = sequence++;
+        return new Customer(null, "customer" + n, "customer" + n + "@bench.test",
+                BigDecimal.valueOf(n % 20000), LocalDate.now().minusDays(n % 400));
+    }
+}
@@ -0,0 +1,197 @@
+package com.spring.customer.benchmark;
+
+import com.spring.customer.CustomerManagementApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load test of the running application, once with Tomcat on platform threads
+ * and once with {@code spring.threads.virtual.enabled=true}. Every client is a virtual thread
+ * that sends a request, waits for the answer and sends the next one, alternating a lookup by id
+ * (cache, touch buffer) and a keyset page (a query on every call). Reports throughput and
+ * latency percentiles per mode and client count.
+ * <p>
+ * Not a JMH benchmark: JMH measures a method, this measures the server under concurrent load.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Dbenchmark.main=com.spring.customer.benchmark.ConcurrencyLoadBenchmark \
+ *     -Djmh.args="--clients 1000,10000 --duration 30"
+ * </pre>
+ * Options: {@code --modes platform,virtual}, {@code --clients}, {@code --warmup} and
+ * {@code --duration} in seconds, {@code --rows} seeded customers, {@code --pool} connection
+ * pool size. 10k clients need about 2 x 10k file descriptors (ulimit -n).
+ */
+public final class ConcurrencyLoadBenchmark {
+
+    private static final String BASE_PATH = "/Customer/api/customers";
+
+    private ConcurrencyLoadBenchmark() { }
+
+    public static void main(String[] args) throws Exception {
+
+        List<String> modes = List.of("platform", "virtual");
+        int[] clients = {1000, 10000};
+        int warmup = 10;
+        int duration = 30;
+        int rows = 10_000;
+        int pool = 20;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--modes" -> modes = List.of(args[++i].split(","));
+                case "--clients" -> clients = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--duration" -> duration = Integer.parseInt(args[++i]);
+                case "--rows" -> rows = Integer.parseInt(args[++i]);
+                case "--pool" -> pool = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-9s %8s %10s %10s %9s %9s %9s %9s %8s",
+                "mode", "clients", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors"));
+
+        for (String mode : modes) {
+            try (ConfigurableApplicationContext context = start(mode, rows, pool)) {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                List<UUID> ids = context.getBean(JdbcTemplate.class)
+                        .queryForList("select id from customer", UUID.class);
+
+                for (int count : clients) {
+                    Result result = run(port, ids, count, warmup, duration);
+                    String line = String.format("%-9s %8d %10d %10.0f %9.1f %9.1f %9.1f %9.1f %8d",
+                            mode, count, result.requests(), result.requests() / (double) duration,
+                            result.percentile(0.50), result.percentile(0.99), result.percentile(0.999),
+                            result.percentile(1.0), result.errors());
+                    System.out.println(line);
+                    report.add(line);
+                }
+            }
+        }
+
+        System.out.println();
+        report.forEach(System.out::println);
+    }
+
+    private static ConfigurableApplicationContext start(String mode, int rows, int pool) {
+
+        // arguments, not builder properties: those are defaults that application.properties overrides
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(CustomerManagementApplication.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                        "--spring.datasource.hikari.maximum-pool-size=" + pool,
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+
+        LocalDate today = LocalDate.now();
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{UUID.randomUUID(), "customer" + i, "customer" + i + "@load.test",
+                    BigDecimal.valueOf(i % 20000), Date.valueOf(today.minusDays(i % 400)), "SILVER"});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO customer (id, name, email, annual_spend, "
+                + "last_purchase_date, tier) VALUES (?, ?, ?, ?, ?, ?)", batch);
+        return context;
+    }
+
+    private static Result run(int port, List<UUID> ids, int clients, int warmup, int duration)
+            throws InterruptedException {
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        String base = "http://localhost:" + port + BASE_PATH;
+
+        long measureFrom = System.nanoTime() + Duration.ofSeconds(warmup).toNanos();
+        long measureUntil = measureFrom + Duration.ofSeconds(duration).toNanos();
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            Thread.ofVirtual().start(() -> {
+                long[] samples = new long[256];
+                int count = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    for (int i = 0; ; i++) {
+                        UUID id = ids.get(random.nextInt(ids.size()));
+                        URI uri = URI.create(i % 2 == 0 ? base + "/" + id : base + "/list?size=20&after=" + id);
+                        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).build();
+
+                        long start = System.nanoTime();
+                        if (start >= measureUntil) {
+                            break;
+                        }
+                        boolean ok;
+                        try {
+                            ok = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (Exception ex) {
+                            ok = false;
+                        }
+                        long end = System.nanoTime();
+
+                        if (start >= measureFrom) {
+                            if (!ok) {
+                                errors.incrementAndGet();
+                            }
+                            if (count == samples.length) {
+                                samples = Arrays.copyOf(samples, count * 2);
+                            }
+                            samples[count++] = end - start;
+                        }
+                    }
+                } finally {
+                    latencies[client] = samples;
+                    counts[client] = count;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        http.close();
+
+        int total = Arrays.stream(counts).sum();
+        long[] merged = new long[total];
+        int offset = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, merged, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(merged);
+        return new Result(merged, errors.get());
+    }
+
+    private record Result(long[] sortedNanos, long errors) {
+
+        long requests() {
+            return sortedNanos.length;
+        }
+
+        double percentile(double p) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedNanos.length - 1L, (long) Math.ceil(p * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
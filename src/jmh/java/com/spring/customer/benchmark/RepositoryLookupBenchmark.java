@@ -0,0 +1,111 @@
+package com.spring.customer.benchmark;
+
+import com.spring.customer.CustomerManagementApplication;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.repository.CustomerRepo;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CustomerRepo} lookups against the embedded H2 database seeded with {@code rows}
+ * customers. Names repeat every {@value #DISTINCT_NAMES} rows, so a name lookup returns
+ * rows / {@value #DISTINCT_NAMES} customers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class RepositoryLookupBenchmark {
+
+    private static final int DISTINCT_NAMES = 1000;
+    private static final int SAMPLE = 1024;
+    private static final Membership[] TIERS = Membership.values();
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private CustomerRepo customerRepo;
+    private final List<UUID> ids = new ArrayList<>(SAMPLE);
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CustomerManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:lookupBenchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN");
+        customerRepo = context.getBean(CustomerRepo.class);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        LocalDate today = LocalDate.now();
+        int step = Math.max(1, rows / SAMPLE);
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < rows; i++) {
+            UUID id = UUID.randomUUID();
+            if (i % step == 0 && ids.size() < SAMPLE) {
+                ids.add(id);
+            }
+            batch.add(new Object[]{id, "customer" + (i % DISTINCT_NAMES), "customer" + i + "@bench.test",
+                    BigDecimal.valueOf(i % 20000), Date.valueOf(today.minusDays(i % 400)),
+                    TIERS[i % TIERS.length].name()});
+            if (batch.size() == 10_000 || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO customer (id, name, email, annual_spend, "
+                        + "last_purchase_date, tier) VALUES (?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % ids.size();
+        return next;
+    }
+
+    @Benchmark
+    public Optional<Customer> findById() {
+        return customerRepo.findById(ids.get(nextIndex()));
+    }
+
+    @Benchmark
+    public Optional<Customer> findByEmail() {
+        int i = nextIndex() * Math.max(1, rows / SAMPLE);
+        return customerRepo.findByEmail("customer" + i + "@bench.test");
+    }
+
+    @Benchmark
+    public List<Customer> findAllByName() {
+        return customerRepo.findAllByName("customer" + (nextIndex() % DISTINCT_NAMES));
+    }
+
+    @Benchmark
+    public Slice<Customer> findByTierFirstPage() {
+        return customerRepo.findByTier(TIERS[nextIndex() % TIERS.length], PageRequest.of(0, 20, Sort.by("id")));
+    }
+}
@@ -0,0 +1,76 @@
+package com.spring.customer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.customer.controller.CustomerController;
+import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.response.GlobalResponseAdvice;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The write side of {@code GET /customers/{id}}: {@link GlobalResponseAdvice#supports} and
+ * {@link GlobalResponseAdvice#beforeBodyWrite} putting the DTO into an {@code Envelope}, then
+ * Jackson writing it the way the message converter does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ResponseWriteBenchmark {
+
+    private final GlobalResponseAdvice advice = new GlobalResponseAdvice();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+
+    private MethodParameter returnType;
+    private ServerHttpRequest request;
+    private ServerHttpResponse response;
+    private CustomerDto customerDto;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        returnType = new MethodParameter(
+                CustomerController.class.getDeclaredMethod("getCustomerbyId", UUID.class, String.class), -1);
+        request = new ServletServerHttpRequest(
+                new MockHttpServletRequest("GET", "/Customer/api/customers/" + UUID.randomUUID()));
+        response = new ServletServerHttpResponse(new MockHttpServletResponse());
+        customerDto = new CustomerDto(UUID.randomUUID(), "Test", "test@test.com",
+                BigDecimal.valueOf(2501.75), LocalDate.of(2025, 10, 12), Membership.GOLD);
+    }
+
+    @Benchmark
+    public Object advice() {
+        if (!advice.supports(returnType, MappingJackson2HttpMessageConverter.class)) {
+            return customerDto;
+        }
+        return advice.beforeBodyWrite(customerDto, returnType, MediaType.APPLICATION_JSON,
+                MappingJackson2HttpMessageConverter.class, request, response);
+    }
+
+    @Benchmark
+    public int adviceAndSerialize() throws IOException {
+        Object body = advice();
+        out.reset();
+        objectMapper.writeValue(out, body);
+        return out.size();
+    }
+}
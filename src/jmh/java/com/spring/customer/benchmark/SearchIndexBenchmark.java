@@ -0,0 +1,78 @@
+package com.spring.customer.benchmark;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.search.CustomerSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link CustomerSearchIndex} holding a million synthetic customers. First
+ * names come from a small pool, so a first-name prefix hits about 50k customers; last names
+ * are built from syllables, giving a vocabulary of some 27k words with realistic typo
+ * neighbourhoods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SearchIndexBenchmark {
+
+    private static final String[] FIRST_NAMES = {
+            "jigyasu", "sonu", "golu", "anna", "maria", "jose", "olivia", "liam", "noah", "emma",
+            "ava", "sophia", "isabella", "mia", "lucas", "mason", "ethan", "logan", "harper", "amelia"};
+
+    private static final String[] SYLLABLES = {
+            "ka", "ver", "ma", "sin", "gh", "pa", "tel", "ro", "dri", "guez", "mar", "tin", "lo",
+            "pez", "an", "der", "son", "wil", "li", "ams", "be", "cker", "shar", "bro", "wn", "ne", "lee", "ko"};
+
+    @Param("1000000")
+    public int customers;
+
+    private CustomerSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new CustomerSearchIndex((CustomerJdbcRepo) null);
+        Random random = new Random(42);
+        for (int i = 0; i < customers; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = SYLLABLES[random.nextInt(SYLLABLES.length)] + SYLLABLES[random.nextInt(SYLLABLES.length)]
+                    + SYLLABLES[random.nextInt(SYLLABLES.length)];
+            index.index(new Customer(new UUID(random.nextLong(), random.nextLong()), first + " " + last,
+                    first + "." + last + i + "@test.com", BigDecimal.ONE, LocalDate.now()));
+        }
+    }
+
+    @Benchmark
+    public CustomerSearchIndex.Hits exactTwoWords() {
+        return index.search("anna versinpa", 0, 20);
+    }
+
+    @Benchmark
+    public CustomerSearchIndex.Hits selectivePrefix() {
+        return index.search("versin", 0, 20);
+    }
+
+    @Benchmark
+    public CustomerSearchIndex.Hits typo() {
+        return index.search("vesrinpa", 0, 20);
+    }
+
+    @Benchmark
+    public CustomerSearchIndex.Hits typoTwoWords() {
+        return index.search("ana versinpa", 0, 20);
+    }
+
+    @Benchmark
+    public CustomerSearchIndex.Hits broadPrefix() {
+        return index.search("jigy", 0, 20);
+    }
+}
@@ -0,0 +1,72 @@
+package com.spring.customer.benchmark;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.metrics.CustomerMetrics;
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.service.serviceimpl.CustomerServiceImpl;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CustomerServiceImpl#calculateTier} as every response path calls it, next to the bare
+ * {@link TierCalculator} so the logging around it shows up as the difference. Run with
+ * {@code -prof gc}: the calculator rows are expected at 0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class TierCalculationBenchmark {
+
+    @Param({"PLATINUM", "GOLD", "SILVER"})
+    public Membership tier;
+
+    private TierCalculator tierCalculator;
+    private CustomerServiceImpl customerService;
+    private Customer customer;
+    private long spendCents;
+    private long lastPurchaseEpochDay;
+
+    @Setup
+    public void setUp() {
+        tierCalculator = new TierCalculator();
+        // calculateTier only needs the calculator
+        customerService = new CustomerServiceImpl(null, null, CustomerShards.unsharded(), null, null, null, null, tierCalculator, null, TierChangeOutbox.disabled(), CustomerMetrics.noop(), 100);
+
+        customer = switch (tier) {
+            case PLATINUM -> customer(BigDecimal.valueOf(20000), LocalDate.now().minusMonths(1));
+            case GOLD -> customer(BigDecimal.valueOf(2000), LocalDate.now().minusMonths(9));
+            case SILVER -> customer(BigDecimal.valueOf(500), LocalDate.now().minusYears(2));
+        };
+        spendCents = customer.getAnnualSpend().movePointRight(2).longValueExact();
+        lastPurchaseEpochDay = customer.getLastPurchaseDate().toEpochDay();
+    }
+
+    private static Customer customer(BigDecimal annualSpend, LocalDate lastPurchaseDate) {
+        return new Customer(UUID.randomUUID(), "Test", "test@test.com", annualSpend, lastPurchaseDate);
+    }
+
+    @Benchmark
+    public Membership serviceCalculateTier() {
+        return customerService.calculateTier(customer);
+    }
+
+    @Benchmark
+    public Membership tierCalculator() {
+        return tierCalculator.calculate(customer);
+    }
+
+    @Benchmark
+    public Membership tierCalculatorEvaluate() {
+        return tierCalculator.evaluate(spendCents, lastPurchaseEpochDay);
+    }
+}
@@ -0,0 +1,59 @@
+package com.spring.customer.benchmark;
+
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.service.serviceimpl.CustomerTierServiceImpl;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.tier.TierColumns;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk tier scoring over the columnar arrays: one sequential pass of the calculator against the
+ * fork/join evaluation the endpoint uses. The gap between them depends on the available cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class TierEvaluationBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private TierCalculator tierCalculator;
+    private CustomerTierServiceImpl customerTierService;
+    private TierColumns columns;
+
+    @Setup
+    public void setUp() {
+        tierCalculator = new TierCalculator();
+        // evaluate only needs the calculator
+        customerTierService = new CustomerTierServiceImpl(null, tierCalculator, rows, 16384, 1000);
+
+        SplittableRandom random = new SplittableRandom(42);
+        long today = LocalDate.now().toEpochDay();
+        columns = new TierColumns(rows);
+        for (int i = 0; i < rows; i++) {
+            columns.add(new UUID(random.nextLong(), random.nextLong()),
+                    random.nextLong(2_000_000), today - random.nextInt(730));
+        }
+    }
+
+    @Benchmark
+    public Membership[] sequential() {
+        Membership[] tiers = new Membership[columns.size()];
+        tierCalculator.evaluate(columns.spendCents(), columns.lastPurchaseEpochDays(), tiers, 0, columns.size());
+        return tiers;
+    }
+
+    @Benchmark
+    public Membership[] forkJoin() {
+        return customerTierService.evaluate(columns);
+    }
+}
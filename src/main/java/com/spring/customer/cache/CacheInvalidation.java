@@ -0,0 +1,11 @@
+package com.spring.customer.cache;
+
+import java.util.UUID;
+
+/**
+ * A committed change to one customer, as sent between nodes. {@code node} identifies the
+ * sender so it can skip its own messages; {@code version} is the saved version, null if
+ * unknown; {@code email} is the saved email so negative entries and the email filter follow.
+ */
+public record CacheInvalidation(UUID node, UUID customerId, String email, Long version, boolean deleted) {
+}
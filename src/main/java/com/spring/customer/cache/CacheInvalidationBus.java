@@ -0,0 +1,16 @@
+package com.spring.customer.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations between the nodes of a deployment. Delivery is best effort:
+ * a lost message leaves a stale entry until the cache TTL expires it, so implementations
+ * neither retry nor persist. Subscribers receive messages from every node, their own included.
+ */
+public interface CacheInvalidationBus {
+
+    void publish(CacheInvalidation invalidation);
+
+    void subscribe(Consumer<CacheInvalidation> subscriber);
+
+}
@@ -0,0 +1,68 @@
+package com.spring.customer.cache;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.service.CustomerChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Keeps the caches of all nodes in step. Committed saves and deletes on this node are
+ * published on the {@link CacheInvalidationBus}; those of other nodes are applied to the
+ * local {@link CustomerCache} and {@link CustomerEmailFilter}, the same way the local change
+ * notifications are. The search index is not covered: it is rebuilt per node at startup.
+ */
+@Component
+public class CacheInvalidationRelay implements CustomerChangeListener {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CacheInvalidationRelay.class);
+
+    private final UUID nodeId = UUID.randomUUID();
+    private final CacheInvalidationBus bus;
+    private final CustomerCache customerCache;
+    private final CustomerEmailFilter customerEmailFilter;
+
+    public CacheInvalidationRelay(CacheInvalidationBus bus, CustomerCache customerCache,
+                                  CustomerEmailFilter customerEmailFilter) {
+        this.bus = bus;
+        this.customerCache = customerCache;
+        this.customerEmailFilter = customerEmailFilter;
+        bus.subscribe(this::apply);
+    }
+
+    @Override
+    public void customerSaved(Customer customer) {
+        bus.publish(new CacheInvalidation(nodeId, customer.getId(), customer.getEmail(), customer.getVersion(), false));
+    }
+
+    @Override
+    public void customerDeleted(UUID id) {
+        bus.publish(new CacheInvalidation(nodeId, id, null, null, true));
+    }
+
+    void apply(CacheInvalidation invalidation) {
+
+        if (nodeId.equals(invalidation.node())) {
+            return;
+        }
+
+        log.debug("Applying cache invalidation from node {} for customer id: {}, version: {}",
+                invalidation.node(), invalidation.customerId(), invalidation.version());
+
+        if (invalidation.deleted()) {
+            customerCache.customerDeleted(invalidation.customerId());
+            return;
+        }
+        customerCache.saved(invalidation.customerId(), invalidation.email(), invalidation.version());
+        if (invalidation.email() != null) {
+            customerEmailFilter.add(invalidation.email());
+        }
+    }
+
+    public UUID getNodeId() {
+        return nodeId;
+    }
+}
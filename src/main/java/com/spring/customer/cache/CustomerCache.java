@@ -0,0 +1,215 @@
+package com.spring.customer.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.service.CustomerChangeListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process read-through cache of customer snapshots, addressable by id and by email.
+ * <p>
+ * Readers take a {@link #stamp()} before going to the database and hand it back to
+ * {@link #put(Customer, long)}; a put that raced with an invalidation is discarded so a
+ * reader can never re-populate the cache with a row that was updated or deleted meanwhile.
+ * <p>
+ * Misses are remembered too, for a shorter time: ids and emails a lookup did not find are
+ * answered as missing without a query until a customer with that id or email is saved. The
+ * same stamp guards those entries, so a miss read before a save cannot outlive it.
+ * <p>
+ * Saves, here or on another node (see {@link CacheInvalidationRelay}), also record the saved
+ * version: older snapshots are evicted and refused by {@link #put(Customer, long)} from then
+ * on, while an equal or newer cached entry survives an invalidation that arrives late. A
+ * delete refuses every version of the id.
+ */
+@Component
+public class CustomerCache implements CustomerChangeListener {
+
+    private final Cache<UUID, Customer> byId;
+    private final Cache<String, UUID> idByEmail;
+    private final Cache<UUID, Boolean> missingIds;
+    private final Cache<String, Boolean> missingEmails;
+    private final Cache<UUID, Long> minVersions;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CustomerCache(@Value("${customer.cache.maximum-size:10000}") long maximumSize,
+                         @Value("${customer.cache.ttl:10m}") Duration ttl,
+                         @Value("${customer.cache.negative.maximum-size:10000}") long negativeMaximumSize,
+                         @Value("${customer.cache.negative.ttl:1m}") Duration negativeTtl) {
+        this.minVersions = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.missingIds = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(negativeMaximumSize)
+                .expireAfterWrite(negativeTtl)
+                .build();
+        this.missingEmails = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(negativeMaximumSize)
+                .expireAfterWrite(negativeTtl)
+                .build();
+        this.idByEmail = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<UUID, Customer>removalListener((id, customer, cause) -> {
+                    if (customer != null && customer.getEmail() != null) {
+                        idByEmail.asMap().remove(customer.getEmail(), id);
+                    }
+                })
+                .build();
+    }
+
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    public Customer getById(UUID id) {
+        return byId.getIfPresent(id);
+    }
+
+    public Customer getByEmail(String email) {
+        UUID id = idByEmail.getIfPresent(email);
+        if (id == null) {
+            return null;
+        }
+        Customer customer = byId.getIfPresent(id);
+        return customer != null && email.equals(customer.getEmail()) ? customer : null;
+    }
+
+    public void put(Customer customer, long stamp) {
+        if (customer == null || customer.getId() == null || isOutdated(customer.getId(), customer.getVersion())) {
+            return;
+        }
+        Customer snapshot = new Customer(customer.getId(), customer.getName(), customer.getEmail(),
+                customer.getAnnualSpend(), customer.getLastPurchaseDate());
+        snapshot.setTier(customer.getTier());
+        snapshot.setVersion(customer.getVersion());
+
+        byId.put(snapshot.getId(), snapshot);
+        if (snapshot.getEmail() != null) {
+            idByEmail.put(snapshot.getEmail(), snapshot.getId());
+        }
+
+        if (invalidations.get() != stamp) {
+            byId.invalidate(snapshot.getId());
+        }
+    }
+
+    public boolean isMissing(UUID id) {
+        return missingIds.getIfPresent(id) != null;
+    }
+
+    public boolean isMissingEmail(String email) {
+        return missingEmails.getIfPresent(email) != null;
+    }
+
+    /** Remembers that no customer has this id, unless a customer was saved since {@code stamp}. */
+    public void putMissing(UUID id, long stamp) {
+        missingIds.put(id, Boolean.TRUE);
+        if (invalidations.get() != stamp) {
+            missingIds.invalidate(id);
+        }
+    }
+
+    /** Remembers that no customer has this email, unless a customer was saved since {@code stamp}. */
+    public void putMissingEmail(String email, long stamp) {
+        missingEmails.put(email, Boolean.TRUE);
+        if (invalidations.get() != stamp) {
+            missingEmails.invalidate(email);
+        }
+    }
+
+    // called after the save commits, so a reader that still missed the row holds an older stamp
+    @Override
+    public void customerSaved(Customer customer) {
+        saved(customer.getId(), customer.getEmail(), customer.getVersion());
+    }
+
+    // a deleted id is not remembered as missing; the next lookup records it
+    @Override
+    public void customerDeleted(UUID id) {
+        saved(id, null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Applies a committed save of {@code version} (null when unknown): evicts older snapshots,
+     * refuses them from now on and forgets the id and email as missing.
+     */
+    public void saved(UUID id, String email, Long version) {
+        invalidations.incrementAndGet();
+        if (id != null) {
+            if (version != null) {
+                minVersions.asMap().merge(id, version, Math::max);
+            }
+            Customer cached = byId.getIfPresent(id);
+            if (cached != null && (version == null || isOutdated(id, cached.getVersion()))) {
+                byId.invalidate(id);
+            }
+            missingIds.invalidate(id);
+        }
+        if (email != null) {
+            missingEmails.invalidate(email);
+        }
+    }
+
+    private boolean isOutdated(UUID id, Long version) {
+        Long min = minVersions.getIfPresent(id);
+        return min != null && (version == null || version < min);
+    }
+
+    /**
+     * Evicts the customer now and, when called inside a transaction, once more after commit
+     * so readers of the not-yet-committed state cannot leave a stale entry behind.
+     */
+    public void invalidate(UUID id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        byId.invalidateAll();
+        idByEmail.invalidateAll();
+        missingIds.invalidateAll();
+        missingEmails.invalidateAll();
+        minVersions.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return byId.stats();
+    }
+
+    public long size() {
+        return byId.estimatedSize();
+    }
+
+    private void evict(UUID id) {
+        invalidations.incrementAndGet();
+        byId.invalidate(id);
+    }
+}
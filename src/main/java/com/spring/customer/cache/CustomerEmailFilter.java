@@ -0,0 +1,170 @@
+package com.spring.customer.cache;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.service.CustomerChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloom filter over the emails in the customer table, so a create can tell that an email is
+ * new without a query. {@link #mightContain(String)} returning false is certain; true has to
+ * be confirmed against the unique index.
+ * <p>
+ * Saved emails are added after commit. Removed or replaced emails cannot be taken out of a
+ * Bloom filter, so they stay until the nightly rebuild and only cost an extra exists-query.
+ * A rebuild sizes the filter for twice the current row count; emails saved while it reads the
+ * table go into both the old and the new filter. Until the first build every email might be
+ * taken.
+ */
+@Component
+public class CustomerEmailFilter implements CustomerChangeListener {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CustomerEmailFilter.class);
+
+    private final CustomerJdbcRepo customerJdbcRepo;
+    private final long expectedEmails;
+    private final double falsePositiveRate;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile Bits current;
+    private volatile Bits building;
+
+    public CustomerEmailFilter(CustomerJdbcRepo customerJdbcRepo,
+                               @Value("${customer.email-filter.expected-emails:1000000}") long expectedEmails,
+                               @Value("${customer.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("customer.email-filter.false-positive-rate must be between 0 and 1");
+        }
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.expectedEmails = expectedEmails;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${customer.email-filter.rebuild-cron:0 15 0 * * *}")
+    public void rebuild() {
+
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            long rows = customerJdbcRepo.count();
+            Bits bits = new Bits(Math.max(expectedEmails, rows * 2), falsePositiveRate);
+
+            building = bits;
+            customerJdbcRepo.streamEmails(10_000, bits::add);
+            current = bits;
+            building = null;
+
+            log.info("Email filter built with {} email(s), {} KiB, {} hash(es) in {} ms",
+                    rows, bits.sizeInBits() / 8 / 1024, bits.hashes, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            building = null;
+            rebuildLock.unlock();
+        }
+    }
+
+    public boolean mightContain(String email) {
+        Bits bits = current;
+        return bits == null || bits.mightContain(email);
+    }
+
+    public void add(String email) {
+        Bits bits = current;
+        if (bits != null) {
+            bits.add(email);
+        }
+        Bits next = building;
+        if (next != null) {
+            next.add(email);
+        }
+    }
+
+    @Override
+    public void customerSaved(Customer customer) {
+        if (customer.getEmail() != null) {
+            add(customer.getEmail());
+        }
+    }
+
+    @Override
+    public void customerDeleted(UUID id) {
+        // the email's bits stay set until the next rebuild
+    }
+
+
+    /** The bit array; bits are set with CAS so concurrent adds never lose each other's bits. */
+    static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashes;
+
+        Bits(long expected, double falsePositiveRate) {
+            long n = Math.max(1, expected);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray(Math.toIntExact((m + 63) / 64));
+            this.size = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+        }
+
+        long sizeInBits() {
+            return size;
+        }
+
+        void add(String email) {
+            long hash = hash(email);
+            long h1 = hash;
+            long h2 = Long.rotateLeft(hash, 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, size);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value = words.get(word);
+                while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                    value = words.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(String email) {
+            long hash = hash(email);
+            long h1 = hash;
+            long h2 = Long.rotateLeft(hash, 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, size);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a over the UTF-8 bytes, finished with the murmur3 fmix64 avalanche
+        private static long hash(String email) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : email.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
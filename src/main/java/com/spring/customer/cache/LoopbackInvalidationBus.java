@@ -0,0 +1,40 @@
+package com.spring.customer.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidations to the subscribers in this JVM on the publishing thread. Enough for
+ * a single node, and for tests that run several caches against one bus.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.cache.bus", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationBus implements CacheInvalidationBus {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(LoopbackInvalidationBus.class);
+
+    private final List<Consumer<CacheInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        for (Consumer<CacheInvalidation> subscriber : subscribers) {
+            try {
+                subscriber.accept(invalidation);
+            } catch (RuntimeException ex) {
+                log.error("Cache invalidation subscriber failed for customer id: {}", invalidation.customerId(), ex);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+}
@@ -0,0 +1,167 @@
+package com.spring.customer.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Sends every invalidation as one UDP datagram to each configured peer and hands datagrams it
+ * receives to the subscribers. No broker is needed: list the other nodes (or every node, this
+ * one included, since subscribers skip their own messages) under customer.cache.bus.udp.peers.
+ * On one host, distinct ports make it a local-socket bus for tests and development.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.cache.bus", havingValue = "udp")
+public class UdpInvalidationBus implements CacheInvalidationBus {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(UdpInvalidationBus.class);
+
+    private static final byte FORMAT = 1;
+    private static final int MAX_DATAGRAM = 1024;
+    private static final byte DELETED = 1;
+    private static final byte HAS_VERSION = 2;
+    private static final byte HAS_EMAIL = 4;
+
+    private final DatagramChannel channel;
+    private final List<InetSocketAddress> peers;
+    private final List<Consumer<CacheInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    public UdpInvalidationBus(@Value("${customer.cache.bus.udp.port:47100}") int port,
+                              @Value("${customer.cache.bus.udp.peers:}") String peers) throws IOException {
+        this.peers = parsePeers(peers);
+        this.channel = DatagramChannel.open().bind(new InetSocketAddress(port));
+        Thread.ofPlatform().daemon().name("cache-invalidation-receiver").start(this::receive);
+        log.info("Cache invalidation bus listening on UDP port {}, peers: {}", getLocalPort(), this.peers);
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+
+        ByteBuffer datagram = encode(invalidation);
+        for (InetSocketAddress peer : peers) {
+            try {
+                channel.send(datagram.duplicate(), peer);
+            } catch (IOException ex) {
+                log.warn("Could not send cache invalidation to {}: {}", peer, ex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public int getLocalPort() {
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void receive() {
+
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM);
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                buffer.flip();
+                CacheInvalidation invalidation = decode(buffer);
+                if (invalidation == null) {
+                    continue;
+                }
+                for (Consumer<CacheInvalidation> subscriber : subscribers) {
+                    subscriber.accept(invalidation);
+                }
+            } catch (ClosedChannelException ex) {
+                return;
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Dropped a cache invalidation datagram: {}", ex.toString());
+            }
+        }
+    }
+
+    static ByteBuffer encode(CacheInvalidation invalidation) {
+
+        byte[] email = invalidation.email() != null
+                ? invalidation.email().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte flags = (byte) ((invalidation.deleted() ? DELETED : 0)
+                | (invalidation.version() != null ? HAS_VERSION : 0)
+                | (invalidation.email() != null ? HAS_EMAIL : 0));
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 32 + 8 + 2 + email.length)
+                .put(FORMAT)
+                .put(flags)
+                .putLong(invalidation.node().getMostSignificantBits())
+                .putLong(invalidation.node().getLeastSignificantBits())
+                .putLong(invalidation.customerId().getMostSignificantBits())
+                .putLong(invalidation.customerId().getLeastSignificantBits())
+                .putLong(invalidation.version() != null ? invalidation.version() : 0)
+                .putShort((short) email.length)
+                .put(email);
+        return buffer.flip();
+    }
+
+    static CacheInvalidation decode(ByteBuffer buffer) {
+
+        try {
+            if (buffer.get() != FORMAT) {
+                return null;
+            }
+            byte flags = buffer.get();
+            UUID node = new UUID(buffer.getLong(), buffer.getLong());
+            UUID customerId = new UUID(buffer.getLong(), buffer.getLong());
+            long version = buffer.getLong();
+            byte[] email = new byte[buffer.getShort() & 0xffff];
+            buffer.get(email);
+
+            return new CacheInvalidation(node, customerId,
+                    (flags & HAS_EMAIL) != 0 ? new String(email, StandardCharsets.UTF_8) : null,
+                    (flags & HAS_VERSION) != 0 ? version : null,
+                    (flags & DELETED) != 0);
+        } catch (BufferUnderflowException ex) {
+            return null;
+        }
+    }
+
+    private static List<InetSocketAddress> parsePeers(String peers) {
+
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String peer : peers.split(",")) {
+            if (peer.isBlank()) {
+                continue;
+            }
+            int colon = peer.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("customer.cache.bus.udp.peers expects host:port, got: " + peer);
+            }
+            addresses.add(new InetSocketAddress(peer.substring(0, colon).trim(),
+                    Integer.parseInt(peer.substring(colon + 1).trim())));
+        }
+        return List.copyOf(addresses);
+    }
+}
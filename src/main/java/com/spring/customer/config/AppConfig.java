@@ -3,21 +3,34 @@ package com.spring.customer.config;
 import com.spring.customer.dto.CustomerDto;
 import com.spring.customer.entity.Customer;
 import com.spring.customer.service.CustomerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.customer.metrics.CustomerMetrics;
+import com.spring.customer.metrics.TimedJacksonHttpMessageConverter;
 import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.OpenAPI;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.PropertyMap;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
 
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
 
     @Bean
-    public ModelMapper modelMapper(){
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
 
-        return   new ModelMapper();
+
+    // replaces Spring Boot's default JSON converter
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(
+            ObjectMapper objectMapper, CustomerMetrics customerMetrics) {
+        return new TimedJacksonHttpMessageConverter(objectMapper, customerMetrics);
     }
 
 
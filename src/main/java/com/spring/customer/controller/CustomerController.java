@@ -1,41 +1,133 @@
 package com.spring.customer.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.spring.customer.dto.BulkChangeResult;
+import com.spring.customer.dto.BulkCreateResult;
+import com.spring.customer.dto.CursorPageDto;
+import com.spring.customer.dto.CustomerBulkUpdate;
 import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.dto.CustomerExportFilter;
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.CustomerSelection;
+import com.spring.customer.dto.ImportJobStatus;
+import com.spring.customer.dto.PageDto;
+import com.spring.customer.dto.ShardRebalanceResult;
+import com.spring.customer.dto.TierChangeBatch;
+import com.spring.customer.dto.TierEvaluationResult;
 import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.ExportFormat;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.exceptionhandling.FeatureUnavailableException;
+import com.spring.customer.outbox.TierChangeFeed;
+import com.spring.customer.service.CustomerBulkService;
+import com.spring.customer.service.CustomerImportService;
+import com.spring.customer.service.CustomerSearchService;
 import com.spring.customer.service.CustomerService;
+import com.spring.customer.service.CustomerStreamService;
+import com.spring.customer.service.CustomerTierService;
+import com.spring.customer.shard.ShardRebalancer;
+import com.spring.customer.tier.TierCalculator;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping(path="/Customer/api")
 @Tag(name = "Customer API", description = "Operations related to customers")
 public class CustomerController {
     private final CustomerService customerService;
-    CustomerController(CustomerService customerService ){
+    private final CustomerBulkService customerBulkService;
+    private final CustomerStreamService customerStreamService;
+    private final CustomerSearchService customerSearchService;
+    private final CustomerTierService customerTierService;
+    private final CustomerImportService customerImportService;
+    private final TierChangeFeed tierChangeFeed;
+    private final ObjectProvider<ShardRebalancer> shardRebalancer;
+    private final TierCalculator tierCalculator;
+    private final Validator validator;
+    CustomerController(CustomerService customerService, CustomerBulkService customerBulkService,
+                       CustomerStreamService customerStreamService, CustomerSearchService customerSearchService,
+                       CustomerTierService customerTierService, CustomerImportService customerImportService,
+                       TierChangeFeed tierChangeFeed, ObjectProvider<ShardRebalancer> shardRebalancer,
+                       TierCalculator tierCalculator, Validator validator){
         this.customerService=customerService;
+        this.customerBulkService=customerBulkService;
+        this.customerStreamService=customerStreamService;
+        this.customerSearchService=customerSearchService;
+        this.customerTierService=customerTierService;
+        this.customerImportService=customerImportService;
+        this.tierChangeFeed=tierChangeFeed;
+        this.shardRebalancer=shardRebalancer;
+        this.tierCalculator=tierCalculator;
+        this.validator=validator;
     }
 
     @PostMapping(path="/customers")
-    @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Create new Customer", description = "Its create new customer")
-    CustomerDto AddCustomer(@RequestBody @Valid Customer customer){
+    ResponseEntity<CustomerDto> AddCustomer(@RequestBody @Valid Customer customer){
 
         CustomerDto customerDto = this.customerService.createCustomer(customer);
         //System.out.println(customer.getId()+" "+ customer.getEmail());
-        return customerDto;
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(CustomerETags.of(customerDto)).body(customerDto);
+    }
+
+    @PostMapping(path="/customers/bulk")
+    @Operation(summary = "Create Customers in bulk", description = "Creates a batch of customers and reports the outcome of every item")
+    List<BulkCreateResult> addCustomers(@RequestBody List<Customer> customers){
+
+        return this.customerBulkService.createCustomers(customers);
+    }
+
+    @PostMapping(path="/customers/bulk/delete")
+    @Operation(summary = "Delete Customers in bulk", description = "Deletes the customers with the given ids and/or matching "
+            + "the criteria, one statement per chunk")
+    BulkChangeResult deleteCustomers(@RequestBody CustomerSelection selection){
+
+        return this.customerBulkService.deleteCustomers(selection);
+    }
+
+    @PostMapping(path="/customers/bulk/update")
+    @Operation(summary = "Update Customers in bulk", description = "Sets annualSpend and/or lastPurchaseDate on the customers "
+            + "with the given ids and/or matching the criteria, one statement per chunk")
+    BulkChangeResult updateCustomers(@RequestBody CustomerBulkUpdate update){
+
+        CustomerPatch patch = CustomerMergePatch.parse(update.getSet(), validator);
+        return this.customerBulkService.updateCustomers(update, patch);
     }
 
     @GetMapping(path="/customers/{id}")
-    @Operation(summary = "Get customer by ID", description = "Fetch a customer using its ID")
-    CustomerDto getCustomerbyId(@PathVariable UUID id){
+    @Operation(summary = "Get customer by ID", description = "Fetch a customer using its ID; answers 304 when If-None-Match still holds")
+    ResponseEntity<CustomerDto> getCustomerbyId(@PathVariable UUID id,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+
+        // a lookup reports the customer as touched today (on the tier clock), so its tag follows from the version
+        if (ifNoneMatch != null) {
+            String etag = CustomerETags.of(this.customerService.getCustomerVersion(id), this.tierCalculator.today());
+            if (CustomerETags.noneMatchHit(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
 
-        return this.customerService.getCustomerById(id);
+        CustomerDto customerDto = this.customerService.getCustomerById(id);
+        return ResponseEntity.ok().eTag(CustomerETags.of(customerDto)).body(customerDto);
     }
 
     @GetMapping(path="/customers")
@@ -45,18 +137,184 @@ public class CustomerController {
         return this.customerService.getCustomerByName(name);
     }
 
+    @GetMapping(path="/customers", params="tier")
+    @Operation(summary = "Get customers by tier", description = "Fetch a page of customers of the given membership tier")
+    PageDto<CustomerDto> getCustomersByTier(@RequestParam Membership tier,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size){
+
+        return this.customerService.getCustomersByTier(tier, page, size);
+    }
+
+    @GetMapping(path="/customers/search")
+    @Operation(summary = "Search customers", description = "Case-insensitive prefix and typo-tolerant search over name and email, best matches first")
+    PageDto<CustomerDto> searchCustomers(@RequestParam String q,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "20") int size){
+
+        return this.customerSearchService.searchCustomers(q, page, size);
+    }
+
+    @GetMapping(path="/customers/tiers/count")
+    @Operation(summary = "Count customers per tier", description = "Number of customers in every membership tier")
+    Map<Membership, Long> countCustomersByTier(){
+
+        return this.customerService.countCustomersByTier();
+    }
+
+    @GetMapping(path="/customers/tiers/changes")
+    @Operation(summary = "Pull tier changes", description = "Tier transitions after the given event id, oldest first; "
+            + "pass lastEventId as after to get the next batch")
+    TierChangeBatch getTierChanges(@RequestParam(defaultValue = "0") long after,
+                                   @RequestParam(defaultValue = "500") int limit){
+
+        return this.tierChangeFeed.read(after, limit);
+    }
+
+    @GetMapping(path="/customers/tiers/changes/stream", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream tier changes", description = "Server-Sent Events of tier transitions; resumes after "
+            + "Last-Event-ID (or after), otherwise starts with the next change")
+    SseEmitter streamTierChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                 @RequestParam(required = false) Long after){
+
+        return this.tierChangeFeed.subscribe(lastEventId != null ? lastEventId : after);
+    }
+
+    @PostMapping(path="/customers/tiers/evaluate")
+    @Operation(summary = "Evaluate tiers of customers", description = "Scores the given customer ids and groups them by tier, without touching lastPurchaseDate")
+    TierEvaluationResult evaluateTiers(@RequestBody List<UUID> ids){
+
+        return this.customerTierService.evaluateTiers(ids);
+    }
+
+    @GetMapping(path="/customers/tiers/evaluate")
+    @Operation(summary = "Evaluate tiers of all customers", description = "Scores every customer and groups the ids by tier, without touching lastPurchaseDate")
+    TierEvaluationResult evaluateAllTiers(){
+
+        return this.customerTierService.evaluateAllTiers();
+    }
+
+    @GetMapping(path="/customers/list")
+    @Operation(summary = "List customers", description = "Keyset-paginated listing ordered by id; pass nextCursor as after to get the next page")
+    CursorPageDto<CustomerDto> getCustomers(@RequestParam(required = false) UUID after,
+                                            @RequestParam(required = false) Integer size){
+
+        return this.customerService.getCustomers(after, size);
+    }
+
+    @GetMapping(path="/customers/stream", produces="application/x-ndjson")
+    @Operation(summary = "Stream all customers", description = "Streams every customer as newline-delimited JSON")
+    ResponseEntity<StreamingResponseBody> streamCustomers(){
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(this.customerStreamService::writeNdjson);
+    }
+
+    @GetMapping(path="/customers/export")
+    @Operation(summary = "Export customers", description = "Streams all customers, optionally filtered by tier and spend range, as csv or ndjson; gzip-compressed when the client accepts it")
+    ResponseEntity<StreamingResponseBody> exportCustomers(@RequestParam(defaultValue = "csv") String format,
+                                                          @RequestParam(required = false) Membership tier,
+                                                          @RequestParam(required = false) BigDecimal minSpend,
+                                                          @RequestParam(required = false) BigDecimal maxSpend,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding){
+
+        ExportFormat exportFormat = ExportFormat.from(format);
+        CustomerExportFilter filter = new CustomerExportFilter(tier, minSpend, maxSpend);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"customers." + exportFormat.getExtension() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (!acceptsGzip(acceptEncoding)) {
+            return response.body(out -> this.customerStreamService.export(filter, exportFormat, out));
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(out -> {
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024)) {
+                        this.customerStreamService.export(filter, exportFormat, gzip);
+                    }
+                });
+    }
+
+    @PostMapping(path="/customers/import", consumes={"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Import customers from CSV", description = "Spools the file and upserts its rows by email in the background; poll the returned job for progress")
+    ResponseEntity<ImportJobStatus> importCustomers(InputStream body) throws IOException {
+
+        ImportJobStatus status = this.customerImportService.startImport(body);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{jobId}").buildAndExpand(status.getJobId()).toUri())
+                .body(status);
+    }
+
+    @GetMapping(path="/customers/import/{jobId}")
+    @Operation(summary = "Get import job status", description = "Rows read, accepted and rejected so far and the throughput of an import job")
+    ImportJobStatus getImportStatus(@PathVariable UUID jobId){
+
+        return this.customerImportService.getStatus(jobId);
+    }
+
+    @GetMapping(path="/customers/import/{jobId}/rejected")
+    @Operation(summary = "Download rejected rows", description = "The rows an import job rejected, as csv with the line number and the reason in front")
+    ResponseEntity<StreamingResponseBody> getRejectedRows(@PathVariable UUID jobId){
+
+        this.customerImportService.getStatus(jobId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rejected-" + jobId + ".csv\"")
+                .body(out -> this.customerImportService.writeRejectedRows(jobId, out));
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
     @GetMapping(path="/customers/byEmail")
     @Operation(summary = "Get customer by email", description = "Fetch a customer using its email")
-    CustomerDto getCustomerByEmail(@RequestParam(required = true) String email){
+    ResponseEntity<CustomerDto> getCustomerByEmail(@RequestParam(required = true) String email){
        // System.out.println(email);
-        return this.customerService.getCustomerByEmail(email);
+        CustomerDto customerDto = this.customerService.getCustomerByEmail(email);
+        return ResponseEntity.ok().eTag(CustomerETags.of(customerDto)).body(customerDto);
     }
 
     @PutMapping(path="/customers/{id}")
-    @Operation(summary = "Update Customer By Id", description = "Updating the customer by Id")
-    CustomerDto updateCustomer(@RequestBody @Valid CustomerDto customerDto, @PathVariable UUID id){
+    @Operation(summary = "Update Customer By Id", description = "Updating the customer by Id; with If-Match only if it was not modified since")
+    ResponseEntity<CustomerDto> updateCustomer(@RequestBody @Valid CustomerDto customerDto, @PathVariable UUID id,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 
-        return this.customerService.updateCustomer(customerDto,id);
+        CustomerDto updated = this.customerService.updateCustomer(customerDto, id, CustomerETags.ifMatchVersion(ifMatch));
+        return ResponseEntity.ok().eTag(CustomerETags.of(updated)).body(updated);
+    }
+
+    @PatchMapping(path="/customers/{id}", consumes={"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Patch Customer By Id", description = "Changes only the fields in the JSON Merge Patch body; "
+            + "null clears a field. With Prefer: return=minimal the response has no body")
+    ResponseEntity<CustomerDto> patchCustomer(@RequestBody JsonNode body, @PathVariable UUID id,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestHeader(value = "Prefer", required = false) String prefer){
+
+        CustomerPatch patch = CustomerMergePatch.parse(body, validator);
+        boolean minimal = CustomerMergePatch.prefersMinimal(prefer);
+
+        CustomerDto patched = this.customerService.patchCustomer(id, patch, CustomerETags.ifMatchVersion(ifMatch), !minimal);
+        if (minimal) {
+            return ResponseEntity.noContent()
+                    .eTag(CustomerETags.of(patched))
+                    .header("Preference-Applied", "return=minimal")
+                    .build();
+        }
+        return ResponseEntity.ok().eTag(CustomerETags.of(patched)).body(patched);
     }
 
     @DeleteMapping(path = "/customers/{id}")
@@ -65,4 +323,16 @@ public class CustomerController {
     void deleteCustomer(@PathVariable UUID id){
        this.customerService.deleteCustomer(id);
     }
+
+    @PostMapping(path="/shards/rebalance")
+    @Operation(summary = "Rebalance shards", description = "Moves buckets of customers to shards below their even share; "
+            + "runs on one instance at a time, 409 while another rebalance is running")
+    ShardRebalanceResult rebalanceShards(){
+
+        ShardRebalancer rebalancer = this.shardRebalancer.getIfAvailable();
+        if (rebalancer == null) {
+            throw new FeatureUnavailableException("Sharding is not enabled");
+        }
+        return rebalancer.rebalance();
+    }
 }
@@ -0,0 +1,69 @@
+package com.spring.customer.controller;
+
+import com.spring.customer.dto.CustomerDto;
+
+import java.time.LocalDate;
+
+/**
+ * Strong ETags of single-customer responses: {@code "<version>-<lastPurchaseDate epoch day>"}.
+ * The version changes with every update; the day is part of the tag because a lookup moves
+ * lastPurchaseDate to today without bumping the version. A lookup therefore always answers
+ * with {@code "<version>-<today>"}, which can be checked against If-None-Match from the
+ * version alone.
+ */
+final class CustomerETags {
+
+    /** If-Match value that matches no version. */
+    static final long NO_MATCH = -1L;
+
+    private CustomerETags() { }
+
+    static String of(CustomerDto customerDto) {
+        return of(customerDto.getVersion(), customerDto.getLastPurchaseDate());
+    }
+
+    static String of(Long version, LocalDate lastPurchaseDate) {
+        if (version == null) {
+            return null;
+        }
+        return "\"" + version + "-" + (lastPurchaseDate != null ? lastPurchaseDate.toEpochDay() : "") + "\"";
+    }
+
+    /** Whether an If-None-Match header lists the tag, compared weakly as RFC 9110 asks. */
+    static boolean noneMatchHit(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || stripWeak(candidate).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The version an If-Match header requires: null when absent or {@code *} (the customer
+     * only has to exist), {@link #NO_MATCH} for weak, malformed or multiple tags.
+     */
+    static Long ifMatchVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        int dash = tag.indexOf('-');
+        if (tag.length() < 4 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"' || dash < 2) {
+            return NO_MATCH;
+        }
+        try {
+            return Long.parseLong(tag, 1, dash, 10);
+        } catch (NumberFormatException ex) {
+            return NO_MATCH;
+        }
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,92 @@
+package com.spring.customer.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.entity.Customer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a JSON Merge Patch body into a {@link CustomerPatch}. A customer is a flat object, so
+ * every member of the patch replaces one field, null included. The values are checked against
+ * the constraints on {@link Customer}; read-only and unknown members are rejected instead of
+ * being ignored, so a typo does not pass for a successful update.
+ */
+final class CustomerMergePatch {
+
+    private CustomerMergePatch() { }
+
+    static CustomerPatch parse(JsonNode body, Validator validator) {
+
+        if (body == null || !body.isObject()) {
+            throw new IllegalArgumentException("A merge patch must be a JSON object");
+        }
+
+        CustomerPatch patch = new CustomerPatch();
+        Iterator<Map.Entry<String, JsonNode>> fields = body.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "name" -> patch.setName(check(validator, "name", text(field.getKey(), value)));
+                case "email" -> patch.setEmail(check(validator, "email", text(field.getKey(), value)));
+                case "annualSpend" -> {
+                    if (!value.isNull() && !value.isNumber()) {
+                        throw new IllegalArgumentException("annualSpend: not a number");
+                    }
+                    patch.setAnnualSpend(check(validator, "annualSpend", value.isNull() ? null : value.decimalValue()));
+                }
+                case "lastPurchaseDate" -> patch.setLastPurchaseDate(date(text(field.getKey(), value)));
+                case "id", "tier", "version" ->
+                        throw new IllegalArgumentException(field.getKey() + ": is read-only");
+                default -> throw new IllegalArgumentException(field.getKey() + ": unknown field");
+            }
+        }
+        return patch;
+    }
+
+    /** Whether a Prefer header (RFC 7240) asks for {@code return=minimal}. */
+    static boolean prefersMinimal(String prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String preference : prefer.split("[,;]")) {
+            if (preference.trim().replace(" ", "").equalsIgnoreCase("return=minimal")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String text(String name, JsonNode value) {
+        if (value.isNull()) {
+            return null;
+        }
+        if (!value.isTextual()) {
+            throw new IllegalArgumentException(name + ": expected a string");
+        }
+        return value.textValue();
+    }
+
+    private static LocalDate date(String value) {
+        try {
+            return value != null ? LocalDate.parse(value) : null;
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("lastPurchaseDate: expected yyyy-MM-dd");
+        }
+    }
+
+    private static <T> T check(Validator validator, String property, T value) {
+        Set<ConstraintViolation<Customer>> violations = validator.validateValue(Customer.class, property, value);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(property + ": " + violations.iterator().next().getMessage());
+        }
+        return value;
+    }
+}
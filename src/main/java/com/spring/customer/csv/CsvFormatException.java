@@ -0,0 +1,34 @@
+package com.spring.customer.csv;
+
+import java.io.IOException;
+
+/**
+ * A record that is not CSV: too long, or ending inside a quoted field. The reader has already
+ * skipped to the line after the one the record started on, so reading can go on.
+ */
+public class CsvFormatException extends IOException {
+
+    private final long recordNumber;
+    private final String reason;
+    private final String line;
+
+    public CsvFormatException(long recordNumber, String reason, String line) {
+        super("Record " + recordNumber + " " + reason);
+        this.recordNumber = recordNumber;
+        this.reason = reason;
+        this.line = line;
+    }
+
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /** The line the record started on, as far as it was read. */
+    public String getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,168 @@
+package com.spring.customer.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time from a buffered reader, so a file of any size is
+ * parsed in constant memory. Fields may be quoted, with doubled quotes inside; quoted fields may
+ * span lines. A record longer than the limit or ending inside a quote (typically a stray quote)
+ * throws {@link CsvFormatException}; the text of the current record is kept, so after the error
+ * reading goes on at the line following the one the bad record started on.
+ */
+public class CsvRowReader {
+
+    private final Reader reader;
+    private final int maxRecordLength;
+    private final StringBuilder field = new StringBuilder();
+    private final StringBuilder raw = new StringBuilder();
+    private String replay = "";
+    private int replayAt;
+    private long recordNumber;
+    private int pushedBack = -2;
+
+    public CsvRowReader(Reader reader, int maxRecordLength) {
+        this.reader = reader;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    /** The next record, or null at the end of the input. Blank lines are skipped. */
+    public List<String> next() throws IOException {
+
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        startRecord();
+        int length = 0;
+        boolean quoted = false;
+        boolean wasQuoted = false;
+
+        while (true) {
+            int c = read();
+            if (++length > maxRecordLength) {
+                throw malformed("exceeds " + maxRecordLength + " characters");
+            }
+
+            if (quoted) {
+                if (c == -1) {
+                    throw malformed("ends inside a quoted field");
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(following);
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+
+            if (c == '"' && field.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        unread(following);
+                    }
+                }
+                if (record.isEmpty() && field.isEmpty() && !wasQuoted) {
+                    if (c == -1) {
+                        return null;
+                    }
+                    length = 0;
+                    startRecord();
+                    continue;
+                }
+                record.add(field.toString());
+                recordNumber++;
+                return record;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    /** Number of records returned so far, the header included. */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    // every character is kept in raw once, a pushed back one with the record it starts
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        int c;
+        if (replayAt < replay.length()) {
+            c = replay.charAt(replayAt++);
+        } else {
+            replay = "";
+            replayAt = 0;
+            c = reader.read();
+        }
+        if (c != -1) {
+            raw.append((char) c);
+        }
+        return c;
+    }
+
+    private void startRecord() {
+        raw.setLength(0);
+        if (pushedBack >= 0) {
+            raw.append((char) pushedBack);
+        }
+    }
+
+    // counts the bad record and moves past the line it started on: what was read beyond that
+    // line is read again, and a line that has not ended yet is skipped in the input
+    private CsvFormatException malformed(String reason) throws IOException {
+
+        long number = ++recordNumber;
+        pushedBack = -2;
+        int end = 0;
+        while (end < raw.length() && raw.charAt(end) != '\r' && raw.charAt(end) != '\n') {
+            end++;
+        }
+        String line = raw.substring(0, end);
+
+        if (end < raw.length()) {
+            int next = end + 1;
+            if (raw.charAt(end) == '\r' && next < raw.length() && raw.charAt(next) == '\n') {
+                next++;
+            }
+            replay = raw.substring(next) + replay.substring(replayAt);
+            replayAt = 0;
+        } else {
+            int c;
+            do {
+                raw.setLength(0);
+                c = read();
+            } while (c != -1 && c != '\r' && c != '\n');
+            if (c == '\r') {
+                int following = read();
+                if (following != '\n') {
+                    unread(following);
+                }
+            }
+        }
+        raw.setLength(0);
+        return new CsvFormatException(number, reason, line);
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,57 @@
+package com.spring.customer.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/** Writes RFC 4180 CSV records: CRLF line ends, fields quoted only when they need to be. */
+public class CsvRowWriter {
+
+    private final Writer writer;
+    private boolean firstField = true;
+
+    public CsvRowWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /** Writes a field; null is written as an empty field. */
+    public CsvRowWriter field(String value) throws IOException {
+
+        if (!firstField) {
+            writer.write(',');
+        }
+        firstField = false;
+
+        if (value == null) {
+            return this;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return this;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+        return this;
+    }
+
+    public CsvRowWriter fields(Iterable<String> values) throws IOException {
+        for (String value : values) {
+            field(value);
+        }
+        return this;
+    }
+
+    public void endRow() throws IOException {
+        writer.write("\r\n");
+        firstField = true;
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+}
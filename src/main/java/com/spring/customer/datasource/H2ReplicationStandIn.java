@@ -0,0 +1,214 @@
+package com.spring.customer.datasource;
+
+import org.h2.api.Trigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Replication for local runs, tests and benchmarks, where primary and replicas are separate H2
+ * databases. A row trigger on the primary logs the id of every changed customer; every interval
+ * the logged rows are copied to each replica (deleted ones removed), followed by the heartbeat
+ * read before the copy, so {@link ReplicaLagMonitor} sees the lag a real asynchronous replica
+ * would have. Production databases bring their own replication and leave this off.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.datasource.replication.stand-in", havingValue = "true")
+public class H2ReplicationStandIn implements SmartInitializingSingleton {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(H2ReplicationStandIn.class);
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final DataSource primary;
+    private final ReplicaDataSources replicas;
+
+    public H2ReplicationStandIn(@Qualifier("primaryDataSource") DataSource primary, ReplicaDataSources replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+    }
+
+    // runs once the schema exists, i.e. after the entity manager factory created it
+    @Override
+    public void afterSingletonsInstantiated() {
+
+        try (Connection source = primary.getConnection(); Statement statement = source.createStatement()) {
+            statement.execute(ReplicaLagMonitor.CREATE_HEARTBEAT);
+
+            List<String> schema = new ArrayList<>();
+            try (ResultSet script = statement.executeQuery("script nodata table customer, replication_heartbeat")) {
+                while (script.next()) {
+                    String sql = script.getString(1);
+                    if (!sql.startsWith("CREATE USER")) {
+                        schema.add(sql);
+                    }
+                }
+            }
+            for (DataSource replica : replicas.byKey().values()) {
+                try (Connection target = writable(replica); Statement ddl = target.createStatement()) {
+                    ddl.execute("drop all objects");
+                    for (String sql : schema) {
+                        ddl.execute(sql);
+                    }
+                }
+            }
+
+            statement.execute("create table if not exists customer_changes "
+                    + "(seq bigint generated always as identity primary key, customer_id uuid not null)");
+            statement.execute("create trigger if not exists customer_changes_trigger "
+                    + "after insert, update, delete on customer for each row call \""
+                    + ChangeLogTrigger.class.getName() + "\"");
+            statement.execute("insert into customer_changes (customer_id) select id from customer");
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not set up the replication stand-in", ex);
+        }
+
+        replicate();
+        log.info("Replication stand-in copying the customer table to {}", replicas.byKey().keySet());
+    }
+
+    @Scheduled(initialDelayString = "${customer.datasource.replication.interval:PT0.2S}",
+            fixedDelayString = "${customer.datasource.replication.interval:PT0.2S}")
+    public synchronized void replicate() {
+
+        try (Connection source = primary.getConnection()) {
+            long beat;
+            try (Statement statement = source.createStatement();
+                 ResultSet rs = statement.executeQuery("select beat from replication_heartbeat where id = 1")) {
+                beat = rs.next() ? rs.getLong(1) : 0;
+            }
+
+            List<Long> seqs = new ArrayList<>();
+            Set<UUID> ids = new LinkedHashSet<>();
+            try (Statement statement = source.createStatement();
+                 ResultSet rs = statement.executeQuery("select seq, customer_id from customer_changes order by seq")) {
+                while (rs.next()) {
+                    seqs.add(rs.getLong(1));
+                    ids.add(rs.getObject(2, UUID.class));
+                }
+            }
+
+            List<UUID> changed = new ArrayList<>(ids);
+            for (int from = 0; from < changed.size(); from += CHUNK_SIZE) {
+                copy(source, changed.subList(from, Math.min(changed.size(), from + CHUNK_SIZE)));
+            }
+
+            for (DataSource replica : replicas.byKey().values()) {
+                try (Connection target = writable(replica);
+                     PreparedStatement merge = target.prepareStatement(
+                             "merge into replication_heartbeat key (id) values (1, ?)")) {
+                    merge.setLong(1, beat);
+                    merge.executeUpdate();
+                }
+            }
+
+            if (!seqs.isEmpty()) {
+                try (PreparedStatement delete = source.prepareStatement("delete from customer_changes where seq = any(?)")) {
+                    delete.setObject(1, seqs.toArray(new Long[0]));
+                    delete.executeUpdate();
+                }
+                log.debug("Replicated {} changed customer(s)", changed.size());
+            }
+        } catch (SQLException ex) {
+            log.warn("Replication stand-in failed, retrying next interval: {}", ex.getMessage());
+        }
+    }
+
+    private void copy(Connection source, List<UUID> ids) throws SQLException {
+
+        List<Object[]> rows = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement select = source.prepareStatement("select * from customer where id = any(?)")) {
+            select.setObject(1, ids.toArray(new UUID[0]));
+            try (ResultSet rs = select.executeQuery()) {
+                int count = rs.getMetaData().getColumnCount();
+                for (int i = 1; i <= count; i++) {
+                    columns.add(rs.getMetaData().getColumnName(i));
+                }
+                while (rs.next()) {
+                    Object[] row = new Object[count];
+                    for (int i = 0; i < count; i++) {
+                        row[i] = rs.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+
+        String insert = "insert into customer (" + String.join(", ", columns) + ") values ("
+                + String.join(", ", columns.stream().map(c -> "?").toList()) + ")";
+        for (DataSource replica : replicas.byKey().values()) {
+            try (Connection target = writable(replica)) {
+                target.setAutoCommit(false);
+                try (PreparedStatement delete = target.prepareStatement("delete from customer where id = any(?)");
+                     PreparedStatement batch = target.prepareStatement(insert)) {
+                    delete.setObject(1, ids.toArray(new UUID[0]));
+                    delete.executeUpdate();
+                    for (Object[] row : rows) {
+                        for (int i = 0; i < row.length; i++) {
+                            batch.setObject(i + 1, row[i]);
+                        }
+                        batch.addBatch();
+                    }
+                    batch.executeBatch();
+                    target.commit();
+                } catch (SQLException ex) {
+                    target.rollback();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    // replica pools hand out read-only connections; replication is the one writer
+    private static Connection writable(DataSource replica) throws SQLException {
+        Connection connection = replica.getConnection();
+        connection.setReadOnly(false);
+        return connection;
+    }
+
+
+    /** Logs the id of every inserted, updated or deleted customer row for the next copy. */
+    public static class ChangeLogTrigger implements Trigger {
+
+        private int idColumn = -1;
+
+        @Override
+        public void init(Connection connection, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) throws SQLException {
+            try (ResultSet columns = connection.getMetaData().getColumns(null, schemaName, tableName, "ID")) {
+                if (!columns.next()) {
+                    throw new SQLException("Table " + tableName + " has no ID column");
+                }
+                idColumn = columns.getInt("ORDINAL_POSITION") - 1;
+            }
+        }
+
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+            Object[] row = newRow != null ? newRow : oldRow;
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into customer_changes (customer_id) values (?)")) {
+                insert.setObject(1, row[idColumn]);
+                insert.executeUpdate();
+            }
+        }
+    }
+}
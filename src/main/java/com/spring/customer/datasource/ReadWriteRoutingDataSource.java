@@ -0,0 +1,97 @@
+package com.spring.customer.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Picks the primary or a replica for each new connection. Read-only transactions go to the
+ * replicas in turn, skipping those lagging too far behind; everything else, and every read of a
+ * session that recently wrote, goes to the primary. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the connection is
+ * only fetched once the transaction's read-only flag is known.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Lookup> LOOKUP = new ThreadLocal<>();
+
+    private static final class Lookup {
+        private boolean onPrimary;
+        private boolean readReplica;
+    }
+
+    private final List<String> replicaKeys;
+    private final Predicate<String> replicaUsable;
+    private final ReadYourWrites readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, ? extends DataSource> replicas,
+                                      Predicate<String> replicaUsable, ReadYourWrites readYourWrites) {
+        this.replicaKeys = List.copyOf(replicas.keySet());
+        this.replicaUsable = replicaUsable;
+        this.readYourWrites = readYourWrites;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    /**
+     * Runs a lookup and, when it found nothing on a replica, runs it again on the primary, so a
+     * row that has not reached the replica yet is not taken for a missing one (and cached as
+     * such). Does not pin the session. Without routing the lookup runs once.
+     */
+    public static <T> Optional<T> confirmedOnPrimary(Supplier<Optional<T>> lookup) {
+
+        Lookup outer = LOOKUP.get();
+        Lookup current = new Lookup();
+        LOOKUP.set(current);
+        try {
+            Optional<T> found = lookup.get();
+            if (found.isPresent() || !current.readReplica) {
+                return found;
+            }
+            current.onPrimary = true;
+            return lookup.get();
+        } finally {
+            LOOKUP.set(outer);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWrites.wrote();
+            return PRIMARY;
+        }
+        Lookup lookup = LOOKUP.get();
+        if (readYourWrites.primaryRequired() || (lookup != null && lookup.onPrimary)) {
+            return PRIMARY;
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicaKeys.size()));
+        for (int i = 0; i < replicaKeys.size(); i++) {
+            String key = replicaKeys.get((start + i) % replicaKeys.size());
+            if (replicaUsable.test(key)) {
+                if (lookup != null) {
+                    lookup.readReplica = true;
+                }
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+}
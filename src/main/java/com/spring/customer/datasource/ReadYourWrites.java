@@ -0,0 +1,71 @@
+package com.spring.customer.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Sends a session's reads to the primary for a while after it wrote, so a client sees its own
+ * changes even when the replicas lag. Within a request every read after the first write goes
+ * to the primary; afterwards the session stays pinned for the configured window, which should
+ * exceed the replica lag tolerated by {@link ReplicaLagMonitor}.
+ * <p>
+ * State is per thread: work handed to another thread (streamed responses, import jobs) is not
+ * pinned and may read from a replica.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.datasource.routing.enabled", havingValue = "true")
+public class ReadYourWrites {
+
+    private final Cache<String, Boolean> pinnedSessions;
+    private final ThreadLocal<RequestState> current = new ThreadLocal<>();
+
+    public ReadYourWrites(@Value("${customer.datasource.read-your-writes.window:PT5S}") Duration window) {
+        this.pinnedSessions = Caffeine.newBuilder()
+                .executor(Runnable::run)
+                .maximumSize(100_000)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    private static final class RequestState {
+        private final String session;
+        private final boolean pinned;
+        private boolean wrote;
+
+        private RequestState(String session, boolean pinned) {
+            this.session = session;
+            this.pinned = pinned;
+        }
+    }
+
+    /** Starts tracking the current thread's work for the session, null when anonymous. */
+    public void begin(String session) {
+        current.set(new RequestState(session, session != null && pinnedSessions.getIfPresent(session) != null));
+    }
+
+    /** Ends tracking; a session that wrote is pinned to the primary for the window. */
+    public void end() {
+        RequestState state = current.get();
+        current.remove();
+        if (state != null && state.wrote && state.session != null) {
+            pinnedSessions.put(state.session, Boolean.TRUE);
+        }
+    }
+
+    void wrote() {
+        RequestState state = current.get();
+        if (state != null) {
+            state.wrote = true;
+        }
+    }
+
+    boolean primaryRequired() {
+        RequestState state = current.get();
+        return state != null && (state.pinned || state.wrote);
+    }
+}
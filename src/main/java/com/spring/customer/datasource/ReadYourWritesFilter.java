@@ -0,0 +1,52 @@
+package com.spring.customer.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Scopes {@link ReadYourWrites} to the request. The session is whatever the client sends in the
+ * session header; requests without it only see their own writes within the same request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "customer.datasource.routing.enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final int MAX_SESSION_LENGTH = 128;
+
+    private final ReadYourWrites readYourWrites;
+    private final String header;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites,
+                                @Value("${customer.datasource.read-your-writes.header:X-Session-Id}") String header) {
+        this.readYourWrites = readYourWrites;
+        this.header = header;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        String session = request.getHeader(header);
+        if (session != null && (session.isBlank() || session.length() > MAX_SESSION_LENGTH)) {
+            session = null;
+        }
+
+        readYourWrites.begin(session);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readYourWrites.end();
+        }
+    }
+}
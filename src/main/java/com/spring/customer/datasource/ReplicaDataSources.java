@@ -0,0 +1,27 @@
+package com.spring.customer.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** The replica connection pools by routing key ("replica-1", "replica-2", ...); closes them on shutdown. */
+public class ReplicaDataSources implements AutoCloseable {
+
+    private final Map<String, HikariDataSource> byKey = new LinkedHashMap<>();
+
+    void add(HikariDataSource dataSource) {
+        byKey.put("replica-" + (byKey.size() + 1), dataSource);
+    }
+
+    public Map<String, ? extends DataSource> byKey() {
+        return Collections.unmodifiableMap(byKey);
+    }
+
+    @Override
+    public void close() {
+        byKey.values().forEach(HikariDataSource::close);
+    }
+}
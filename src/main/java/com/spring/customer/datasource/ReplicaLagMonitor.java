@@ -0,0 +1,89 @@
+package com.spring.customer.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures replica lag with a heartbeat row: the primary's row is set to the current time on
+ * every check and replication carries it over, so a replica's lag is now minus the time its copy
+ * shows. Works with any replication that copies the table. The figure includes up to one check
+ * interval, so max-lag has to be larger than that. Replicas are unusable until their
+ * first check and whenever the lag exceeds customer.datasource.replica.max-lag or the check
+ * fails.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.datasource.routing.enabled", havingValue = "true")
+public class ReplicaLagMonitor {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    static final String CREATE_HEARTBEAT =
+            "create table if not exists replication_heartbeat (id int primary key, beat bigint not null)";
+
+    private final JdbcTemplate primary;
+    private final Map<String, JdbcTemplate> replicas = new ConcurrentHashMap<>();
+    private final Map<String, Long> lagMillis = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final long maxLagMillis;
+
+    public ReplicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                             ReplicaDataSources replicaDataSources,
+                             Clock clock,
+                             @Value("${customer.datasource.replica.max-lag:PT5S}") Duration maxLag) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        replicaDataSources.byKey().forEach((key, dataSource) -> replicas.put(key, new JdbcTemplate(dataSource)));
+        this.clock = clock;
+        this.maxLagMillis = maxLag.toMillis();
+
+        primary.execute(CREATE_HEARTBEAT);
+        primary.update("insert into replication_heartbeat (id, beat) select 1, 0 "
+                + "where not exists (select 1 from replication_heartbeat where id = 1)");
+    }
+
+    @Scheduled(initialDelayString = "${customer.datasource.replica.lag-check-interval:PT1S}",
+            fixedDelayString = "${customer.datasource.replica.lag-check-interval:PT1S}")
+    public void check() {
+
+        primary.update("update replication_heartbeat set beat = ? where id = 1", clock.millis());
+
+        replicas.forEach((key, replica) -> {
+            Long lag;
+            try {
+                Long beat = replica.queryForObject("select beat from replication_heartbeat where id = 1", Long.class);
+                lag = beat != null ? Math.max(0, clock.millis() - beat) : null;
+            } catch (RuntimeException ex) {
+                log.debug("Lag check of {} failed: {}", key, ex.getMessage());
+                lag = null;
+            }
+
+            Long previous = lag != null ? lagMillis.put(key, lag) : lagMillis.remove(key);
+            boolean wasUsable = previous != null && previous <= maxLagMillis;
+            if (wasUsable != isUsable(key)) {
+                log.warn("Replica {} is now {}, lag: {} ms", key, isUsable(key) ? "in use" : "skipped", lag);
+            }
+        });
+    }
+
+    public boolean isUsable(String key) {
+        Long lag = lagMillis.get(key);
+        return lag != null && lag <= maxLagMillis;
+    }
+
+    /** Last measured lag in milliseconds, null while unknown. */
+    public Long getLagMillis(String key) {
+        return lagMillis.get(key);
+    }
+}
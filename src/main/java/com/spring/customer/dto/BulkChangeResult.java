@@ -0,0 +1,30 @@
+package com.spring.customer.dto;
+
+/** Outcome of a bulk delete or update: how many customers it changed, in how many statements. */
+public class BulkChangeResult {
+    private long affected;
+    private int statements;
+
+    public BulkChangeResult() { }
+
+    public BulkChangeResult(long affected, int statements) {
+        this.affected = affected;
+        this.statements = statements;
+    }
+
+    public long getAffected() {
+        return affected;
+    }
+
+    public void setAffected(long affected) {
+        this.affected = affected;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public void setStatements(int statements) {
+        this.statements = statements;
+    }
+}
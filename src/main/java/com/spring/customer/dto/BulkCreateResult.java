@@ -0,0 +1,61 @@
+package com.spring.customer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.spring.customer.enumerator.BulkItemStatus;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkCreateResult {
+    private int index;
+    private BulkItemStatus status;
+    private CustomerDto customer;
+    private String error;
+
+    public BulkCreateResult() { }
+
+    public BulkCreateResult(int index, BulkItemStatus status, CustomerDto customer, String error) {
+        this.index = index;
+        this.status = status;
+        this.customer = customer;
+        this.error = error;
+    }
+
+    public static BulkCreateResult created(int index, CustomerDto customer) {
+        return new BulkCreateResult(index, BulkItemStatus.CREATED, customer, null);
+    }
+
+    public static BulkCreateResult rejected(int index, BulkItemStatus status, String error) {
+        return new BulkCreateResult(index, status, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public BulkItemStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(BulkItemStatus status) {
+        this.status = status;
+    }
+
+    public CustomerDto getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(CustomerDto customer) {
+        this.customer = customer;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,42 @@
+package com.spring.customer.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public class CursorPageDto<T> {
+    private List<T> content;
+    private int size;
+    private UUID nextCursor;
+
+    public CursorPageDto() { }
+
+    public CursorPageDto(List<T> content, int size, UUID nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public UUID getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(UUID nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.spring.customer.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A bulk update: the selected customers get the values in {@code set}, a merge patch limited to
+ * annualSpend and lastPurchaseDate (e.g. {@code {"annualSpend": 0}} for the year-end reset).
+ */
+public class CustomerBulkUpdate extends CustomerSelection {
+
+    private JsonNode set;
+
+    public CustomerBulkUpdate() { }
+
+    public JsonNode getSet() {
+        return set;
+    }
+
+    public void setSet(JsonNode set) {
+        this.set = set;
+    }
+}
@@ -1,6 +1,7 @@
 package com.spring.customer.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import com.spring.customer.enumerator.Membership;
 
@@ -17,6 +18,9 @@ public class CustomerDto {
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate lastPurchaseDate;
     private   Membership tier;
+    // sent as the ETag header, not in the body
+    @JsonIgnore
+    private Long version;
 
     public CustomerDto() { }
 
@@ -77,5 +81,13 @@ public class CustomerDto {
     public void setTier(Membership tier) {
         this.tier = tier;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
 
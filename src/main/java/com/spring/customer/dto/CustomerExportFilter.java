@@ -0,0 +1,38 @@
+package com.spring.customer.dto;
+
+import com.spring.customer.enumerator.Membership;
+
+import java.math.BigDecimal;
+
+/** Which customers an export contains; every criterion is optional. */
+public class CustomerExportFilter {
+
+    private final Membership tier;
+    private final BigDecimal minSpend;
+    private final BigDecimal maxSpend;
+
+    public CustomerExportFilter(Membership tier, BigDecimal minSpend, BigDecimal maxSpend) {
+        if (minSpend != null && maxSpend != null && minSpend.compareTo(maxSpend) > 0) {
+            throw new IllegalArgumentException("minSpend must not be greater than maxSpend");
+        }
+        this.tier = tier;
+        this.minSpend = minSpend;
+        this.maxSpend = maxSpend;
+    }
+
+    public static CustomerExportFilter all() {
+        return new CustomerExportFilter(null, null, null);
+    }
+
+    public Membership getTier() {
+        return tier;
+    }
+
+    public BigDecimal getMinSpend() {
+        return minSpend;
+    }
+
+    public BigDecimal getMaxSpend() {
+        return maxSpend;
+    }
+}
@@ -0,0 +1,82 @@
+package com.spring.customer.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The fields a JSON Merge Patch (RFC 7396) sets. A field that was not in the patch stays as it
+ * is; one that was set to null clears the column. Only the client-editable fields can be
+ * patched: id, tier and version are owned by the server.
+ */
+public class CustomerPatch {
+
+    private String name;
+    private boolean nameSet;
+    private String email;
+    private boolean emailSet;
+    private BigDecimal annualSpend;
+    private boolean annualSpendSet;
+    private LocalDate lastPurchaseDate;
+    private boolean lastPurchaseDateSet;
+
+    public boolean isEmpty() {
+        return !nameSet && !emailSet && !annualSpendSet && !lastPurchaseDateSet;
+    }
+
+    /** Whether the patch changes a value the tier is calculated from. */
+    public boolean changesTier() {
+        return annualSpendSet || lastPurchaseDateSet;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+        this.nameSet = true;
+    }
+
+    public boolean isNameSet() {
+        return nameSet;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+        this.emailSet = true;
+    }
+
+    public boolean isEmailSet() {
+        return emailSet;
+    }
+
+    public BigDecimal getAnnualSpend() {
+        return annualSpend;
+    }
+
+    public void setAnnualSpend(BigDecimal annualSpend) {
+        this.annualSpend = annualSpend;
+        this.annualSpendSet = true;
+    }
+
+    public boolean isAnnualSpendSet() {
+        return annualSpendSet;
+    }
+
+    public LocalDate getLastPurchaseDate() {
+        return lastPurchaseDate;
+    }
+
+    public void setLastPurchaseDate(LocalDate lastPurchaseDate) {
+        this.lastPurchaseDate = lastPurchaseDate;
+        this.lastPurchaseDateSet = true;
+    }
+
+    public boolean isLastPurchaseDateSet() {
+        return lastPurchaseDateSet;
+    }
+}
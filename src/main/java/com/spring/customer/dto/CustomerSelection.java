@@ -0,0 +1,95 @@
+package com.spring.customer.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.spring.customer.enumerator.Membership;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Which customers a bulk delete or update applies to: the listed ids and/or the criteria, all of
+ * which have to match. An empty selection is refused rather than taken to mean every customer;
+ * that takes {@code all: true}.
+ */
+public class CustomerSelection {
+
+    private List<UUID> ids;
+    private Membership tier;
+    private BigDecimal minSpend;
+    private BigDecimal maxSpend;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate purchasedBefore;
+    private boolean all;
+
+    public CustomerSelection() { }
+
+    public boolean hasIds() {
+        return ids != null && !ids.isEmpty();
+    }
+
+    public boolean hasCriteria() {
+        return tier != null || minSpend != null || maxSpend != null || purchasedBefore != null;
+    }
+
+    /** The same criteria restricted to the given ids. */
+    public CustomerSelection withIds(List<UUID> ids) {
+        CustomerSelection selection = new CustomerSelection();
+        selection.setIds(ids);
+        selection.setTier(tier);
+        selection.setMinSpend(minSpend);
+        selection.setMaxSpend(maxSpend);
+        selection.setPurchasedBefore(purchasedBefore);
+        selection.setAll(all);
+        return selection;
+    }
+
+    public List<UUID> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<UUID> ids) {
+        this.ids = ids;
+    }
+
+    public Membership getTier() {
+        return tier;
+    }
+
+    public void setTier(Membership tier) {
+        this.tier = tier;
+    }
+
+    public BigDecimal getMinSpend() {
+        return minSpend;
+    }
+
+    public void setMinSpend(BigDecimal minSpend) {
+        this.minSpend = minSpend;
+    }
+
+    public BigDecimal getMaxSpend() {
+        return maxSpend;
+    }
+
+    public void setMaxSpend(BigDecimal maxSpend) {
+        this.maxSpend = maxSpend;
+    }
+
+    public LocalDate getPurchasedBefore() {
+        return purchasedBefore;
+    }
+
+    public void setPurchasedBefore(LocalDate purchasedBefore) {
+        this.purchasedBefore = purchasedBefore;
+    }
+
+    public boolean isAll() {
+        return all;
+    }
+
+    public void setAll(boolean all) {
+        this.all = all;
+    }
+}
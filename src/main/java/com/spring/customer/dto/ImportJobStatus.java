@@ -0,0 +1,107 @@
+package com.spring.customer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.spring.customer.enumerator.ImportJobState;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportJobStatus {
+    private UUID jobId;
+    private ImportJobState state;
+    private long rowsRead;
+    private long rowsAccepted;
+    private long rowsRejected;
+    private long rowsPerSecond;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+
+    public ImportJobStatus() { }
+
+    public ImportJobStatus(UUID jobId, ImportJobState state, long rowsRead, long rowsAccepted, long rowsRejected,
+                           long rowsPerSecond, Instant startedAt, Instant finishedAt, String error) {
+        this.jobId = jobId;
+        this.state = state;
+        this.rowsRead = rowsRead;
+        this.rowsAccepted = rowsAccepted;
+        this.rowsRejected = rowsRejected;
+        this.rowsPerSecond = rowsPerSecond;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.error = error;
+    }
+
+    public UUID getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(UUID jobId) {
+        this.jobId = jobId;
+    }
+
+    public ImportJobState getState() {
+        return state;
+    }
+
+    public void setState(ImportJobState state) {
+        this.state = state;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsAccepted() {
+        return rowsAccepted;
+    }
+
+    public void setRowsAccepted(long rowsAccepted) {
+        this.rowsAccepted = rowsAccepted;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public void setRowsRejected(long rowsRejected) {
+        this.rowsRejected = rowsRejected;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
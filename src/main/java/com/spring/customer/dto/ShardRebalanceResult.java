@@ -0,0 +1,32 @@
+package com.spring.customer.dto;
+
+import java.util.List;
+
+/** Outcome of a shard rebalance: buckets moved and how many buckets each shard owns now. */
+public class ShardRebalanceResult {
+    private int moved;
+    private List<Integer> bucketsPerShard;
+
+    public ShardRebalanceResult() { }
+
+    public ShardRebalanceResult(int moved, List<Integer> bucketsPerShard) {
+        this.moved = moved;
+        this.bucketsPerShard = bucketsPerShard;
+    }
+
+    public int getMoved() {
+        return moved;
+    }
+
+    public void setMoved(int moved) {
+        this.moved = moved;
+    }
+
+    public List<Integer> getBucketsPerShard() {
+        return bucketsPerShard;
+    }
+
+    public void setBucketsPerShard(List<Integer> bucketsPerShard) {
+        this.bucketsPerShard = bucketsPerShard;
+    }
+}
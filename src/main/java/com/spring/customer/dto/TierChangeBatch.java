@@ -0,0 +1,47 @@
+package com.spring.customer.dto;
+
+import com.spring.customer.entity.TierChangeEvent;
+
+import java.util.List;
+
+/**
+ * One pull of the tier change feed. {@code lastEventId} is the offset to pass as {@code after}
+ * next time; it stays put while there is nothing new.
+ */
+public class TierChangeBatch {
+    private List<TierChangeEvent> changes;
+    private long lastEventId;
+    private boolean hasMore;
+
+    public TierChangeBatch() { }
+
+    public TierChangeBatch(List<TierChangeEvent> changes, long lastEventId, boolean hasMore) {
+        this.changes = changes;
+        this.lastEventId = lastEventId;
+        this.hasMore = hasMore;
+    }
+
+    public List<TierChangeEvent> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<TierChangeEvent> changes) {
+        this.changes = changes;
+    }
+
+    public long getLastEventId() {
+        return lastEventId;
+    }
+
+    public void setLastEventId(long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
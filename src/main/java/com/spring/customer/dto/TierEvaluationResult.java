@@ -0,0 +1,46 @@
+package com.spring.customer.dto;
+
+import com.spring.customer.enumerator.Membership;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/** Customer ids grouped by their evaluated tier, plus the requested ids that do not exist. */
+public class TierEvaluationResult {
+    private int evaluated;
+    private Map<Membership, List<UUID>> tiers;
+    private List<UUID> notFound;
+
+    public TierEvaluationResult() { }
+
+    public TierEvaluationResult(int evaluated, Map<Membership, List<UUID>> tiers, List<UUID> notFound) {
+        this.evaluated = evaluated;
+        this.tiers = tiers;
+        this.notFound = notFound;
+    }
+
+    public int getEvaluated() {
+        return evaluated;
+    }
+
+    public void setEvaluated(int evaluated) {
+        this.evaluated = evaluated;
+    }
+
+    public Map<Membership, List<UUID>> getTiers() {
+        return tiers;
+    }
+
+    public void setTiers(Map<Membership, List<UUID>> tiers) {
+        this.tiers = tiers;
+    }
+
+    public List<UUID> getNotFound() {
+        return notFound;
+    }
+
+    public void setNotFound(List<UUID> notFound) {
+        this.notFound = notFound;
+    }
+}
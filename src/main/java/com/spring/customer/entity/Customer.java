@@ -1,6 +1,8 @@
 package com.spring.customer.entity;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.spring.customer.enumerator.Membership;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Digits;
@@ -13,10 +15,11 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = @Index(name = "idx_customer_tier", columnList = "tier"))
 public class Customer {
 
+    // assigned before the insert (see assignId), so the shard holding the row is known up front
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
     @NotBlank(message = "Name is required")
     private String name;
@@ -31,6 +34,16 @@ public class Customer {
     private BigDecimal annualSpend;
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate lastPurchaseDate;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Membership tier;
+    // bumped by every update through the entity; the date touch and tier jobs do not bump it
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
 
 
     public Customer(){}
@@ -43,6 +56,13 @@ public class Customer {
 
     }
 
+    @PrePersist
+    void assignId() {
+        if (id == null) {
+            id = UUID.randomUUID();
+        }
+    }
+
     public UUID getId() {
         return id;
     }
@@ -83,6 +103,22 @@ public class Customer {
         this.lastPurchaseDate = lastPurchaseDate;
     }
 
+    public Membership getTier() {
+        return tier;
+    }
+
+    public void setTier(Membership tier) {
+        this.tier = tier;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
 
 
 
@@ -0,0 +1,82 @@
+package com.spring.customer.entity;
+
+import com.spring.customer.enumerator.Membership;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One row of the tier change outbox: a customer's stored tier went from {@code fromTier} (null
+ * for a new customer) to {@code toTier}. Written in the transaction that changed the tier; the
+ * id is the offset consumers resume from.
+ */
+@Entity
+@Table(name = "tier_change_outbox", indexes = @Index(name = "idx_tier_change_changed_at", columnList = "changedAt"))
+public class TierChangeEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private UUID customerId;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Membership fromTier;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private Membership toTier;
+    @Column(nullable = false)
+    private Instant changedAt;
+
+
+    public TierChangeEvent() { }
+
+    public TierChangeEvent(Long id, UUID customerId, Membership fromTier, Membership toTier, Instant changedAt) {
+        this.id = id;
+        this.customerId = customerId;
+        this.fromTier = fromTier;
+        this.toTier = toTier;
+        this.changedAt = changedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public UUID getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(UUID customerId) {
+        this.customerId = customerId;
+    }
+
+    public Membership getFromTier() {
+        return fromTier;
+    }
+
+    public void setFromTier(Membership fromTier) {
+        this.fromTier = fromTier;
+    }
+
+    public Membership getToTier() {
+        return toTier;
+    }
+
+    public void setToTier(Membership toTier) {
+        this.toTier = toTier;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(Instant changedAt) {
+        this.changedAt = changedAt;
+    }
+}
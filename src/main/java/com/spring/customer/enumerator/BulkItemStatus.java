@@ -0,0 +1,8 @@
+package com.spring.customer.enumerator;
+
+public enum BulkItemStatus {
+    CREATED,
+    INVALID,
+    DUPLICATE
+
+}
@@ -0,0 +1,9 @@
+package com.spring.customer.enumerator;
+
+public enum ImportJobState {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+
+}
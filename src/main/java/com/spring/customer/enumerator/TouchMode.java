@@ -0,0 +1,7 @@
+package com.spring.customer.enumerator;
+
+public enum TouchMode {
+    SYNC,
+    BUFFERED
+
+}
@@ -1,7 +1,12 @@
 package com.spring.customer.exceptionhandling;
 
+/**
+ * Thrown for lookups of customers that do not exist. Unknown ids and emails are routine for
+ * API clients, so the exception carries no stack trace: filling one in costs more than the
+ * lookup that failed, and the message says all there is to know.
+ */
 public class CustomerNotFoundException extends RuntimeException{
     public CustomerNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
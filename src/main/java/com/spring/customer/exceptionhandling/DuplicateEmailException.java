@@ -0,0 +1,11 @@
+package com.spring.customer.exceptionhandling;
+
+/**
+ * Thrown when a customer is created or renamed to an email another customer already has.
+ * Stackless like {@link CustomerNotFoundException}: it answers a client mistake.
+ */
+public class DuplicateEmailException extends RuntimeException{
+    public DuplicateEmailException(String message) {
+        super(message, null, false, false);
+    }
+}
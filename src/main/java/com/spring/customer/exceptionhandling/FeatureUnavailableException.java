@@ -0,0 +1,12 @@
+package com.spring.customer.exceptionhandling;
+
+/**
+ * Thrown when an endpoint is switched off by configuration, e.g. bulk writes and CSV import
+ * while sharding is on, or the tier change feed while the outbox is off. Answered as 501;
+ * stackless like {@link DuplicateEmailException}, since it is not a failure of the code.
+ */
+public class FeatureUnavailableException extends RuntimeException{
+    public FeatureUnavailableException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -1,9 +1,14 @@
 package com.spring.customer.exceptionhandling;
 
+import com.spring.customer.metrics.CustomerMetrics;
 import com.spring.customer.response.ApiResponse;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -15,6 +20,12 @@ import java.util.stream.Collectors;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final CustomerMetrics customerMetrics;
+
+    public GlobalExceptionHandler(CustomerMetrics customerMetrics) {
+        this.customerMetrics = customerMetrics;
+    }
+
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Object>> handleValidationException(MethodArgumentNotValidException ex) {
@@ -31,6 +42,8 @@ public class GlobalExceptionHandler {
                 HttpStatus.BAD_REQUEST.value()
         );
 
+        customerMetrics.error("handleValidationException", HttpStatus.BAD_REQUEST.value(), ex);
+
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
@@ -45,6 +58,8 @@ public class GlobalExceptionHandler {
                 HttpStatus.BAD_REQUEST.value()
         );
 
+        customerMetrics.error("handleMissingParams", HttpStatus.BAD_REQUEST.value(), ex);
+
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
@@ -58,10 +73,42 @@ public class GlobalExceptionHandler {
                 HttpStatus.NOT_FOUND.value()
         );
 
+        customerMetrics.error("handleNotFound", HttpStatus.NOT_FOUND.value(), ex);
+
+        return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
+    }
+
+
+    @ExceptionHandler(CustomerNotFoundException.class)
+    public ResponseEntity<ApiResponse<Object>> handleCustomerNotFound(CustomerNotFoundException ex) {
+
+        ApiResponse<Object> response = new ApiResponse<>(
+                null,
+                ex.getMessage(),
+                HttpStatus.NOT_FOUND.value()
+        );
+
+        customerMetrics.error("handleCustomerNotFound", HttpStatus.NOT_FOUND.value(), ex);
+
         return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
     }
 
 
+    @ExceptionHandler(DuplicateEmailException.class)
+    public ResponseEntity<ApiResponse<Object>> handleDuplicateEmail(DuplicateEmailException ex) {
+
+        ApiResponse<Object> response = new ApiResponse<>(
+                null,
+                ex.getMessage(),
+                HttpStatus.CONFLICT.value()
+        );
+
+        customerMetrics.error("handleDuplicateEmail", HttpStatus.CONFLICT.value(), ex);
+
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<ApiResponse<Object>> handleDataIntegrity(DataIntegrityViolationException ex) {
 
@@ -71,10 +118,90 @@ public class GlobalExceptionHandler {
                 HttpStatus.CONFLICT.value()
         );
 
+        customerMetrics.error("handleDataIntegrity", HttpStatus.CONFLICT.value(), ex);
+
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiResponse<Object>> handleConcurrentUpdate(OptimisticLockingFailureException ex) {
+
+        ApiResponse<Object> response = new ApiResponse<>(
+                null,
+                "Customer was modified concurrently, reload and retry",
+                HttpStatus.CONFLICT.value()
+        );
+
+        customerMetrics.error("handleConcurrentUpdate", HttpStatus.CONFLICT.value(), ex);
+
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+
+    @ExceptionHandler(RebalanceInProgressException.class)
+    public ResponseEntity<ApiResponse<Object>> handleRebalanceInProgress(RebalanceInProgressException ex) {
+
+        ApiResponse<Object> response = new ApiResponse<>(
+                null,
+                ex.getMessage(),
+                HttpStatus.CONFLICT.value()
+        );
+
+        customerMetrics.error("handleRebalanceInProgress", HttpStatus.CONFLICT.value(), ex);
+
         return new ResponseEntity<>(response, HttpStatus.CONFLICT);
     }
 
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ApiResponse<Object>> handlePreconditionFailed(PreconditionFailedException ex) {
+
+        ApiResponse<Object> response = new ApiResponse<>(
+                null,
+                ex.getMessage(),
+                HttpStatus.PRECONDITION_FAILED.value()
+        );
+
+        customerMetrics.error("handlePreconditionFailed", HttpStatus.PRECONDITION_FAILED.value(), ex);
+
+        return new ResponseEntity<>(response, HttpStatus.PRECONDITION_FAILED);
+    }
+
+
+    // no pooled connection became free within the timeout: the pool is the concurrency limit
+    @ExceptionHandler({CannotCreateTransactionException.class, DataAccessResourceFailureException.class})
+    public ResponseEntity<ApiResponse<Object>> handleUnavailable(RuntimeException ex) {
+
+        ApiResponse<Object> response = new ApiResponse<>(
+                null,
+                "Service is busy, please retry",
+                HttpStatus.SERVICE_UNAVAILABLE.value()
+        );
+
+        customerMetrics.error("handleUnavailable", HttpStatus.SERVICE_UNAVAILABLE.value(), ex);
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+
+    @ExceptionHandler(FeatureUnavailableException.class)
+    public ResponseEntity<ApiResponse<Object>> handleNotImplemented(FeatureUnavailableException ex) {
+
+        ApiResponse<Object> response = new ApiResponse<>(
+                null,
+                ex.getMessage(),
+                HttpStatus.NOT_IMPLEMENTED.value()
+        );
+
+        customerMetrics.error("handleNotImplemented", HttpStatus.NOT_IMPLEMENTED.value(), ex);
+
+        return new ResponseEntity<>(response, HttpStatus.NOT_IMPLEMENTED);
+    }
+
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ApiResponse<Object>> handleIllegalArgument(IllegalArgumentException ex) {
 
@@ -84,6 +211,8 @@ public class GlobalExceptionHandler {
                 HttpStatus.BAD_REQUEST.value()
         );
 
+        customerMetrics.error("handleIllegalArgument", HttpStatus.BAD_REQUEST.value(), ex);
+
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
@@ -97,11 +226,14 @@ public class GlobalExceptionHandler {
                 HttpStatus.BAD_REQUEST.value()
         );
 
+        customerMetrics.error("handleRuntime", HttpStatus.BAD_REQUEST.value(), ex);
+
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
     
-    @ExceptionHandler(Exception.class)
+    // an unsupported operation is a bug (e.g. a write to an unmodifiable list), not a bad request
+    @ExceptionHandler({Exception.class, UnsupportedOperationException.class})
     public ResponseEntity<ApiResponse<Object>> handleGlobal(Exception ex) {
 
         ApiResponse<Object> response = new ApiResponse<>(
@@ -110,6 +242,8 @@ public class GlobalExceptionHandler {
                 HttpStatus.INTERNAL_SERVER_ERROR.value()
         );
 
+        customerMetrics.error("handleGlobal", HttpStatus.INTERNAL_SERVER_ERROR.value(), ex);
+
         return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 }
\ No newline at end of file
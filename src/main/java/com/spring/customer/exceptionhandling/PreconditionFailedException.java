@@ -0,0 +1,7 @@
+package com.spring.customer.exceptionhandling;
+
+public class PreconditionFailedException extends RuntimeException{
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
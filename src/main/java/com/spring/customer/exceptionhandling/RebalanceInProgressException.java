@@ -0,0 +1,7 @@
+package com.spring.customer.exceptionhandling;
+
+public class RebalanceInProgressException extends RuntimeException{
+    public RebalanceInProgressException(String message) {
+        super(message);
+    }
+}
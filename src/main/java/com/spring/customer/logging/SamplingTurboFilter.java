@@ -0,0 +1,82 @@
+package com.spring.customer.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through only one in {@code rate} INFO events of the configured loggers (and their
+ * children); WARN and ERROR always pass and other levels are left to the normal level check.
+ * Meant for the per-request info lines of hot paths:
+ * <pre>
+ * &lt;turboFilter class="com.spring.customer.logging.SamplingTurboFilter"&gt;
+ *     &lt;loggerName&gt;com.spring.customer.service.serviceimpl.CustomerServiceImpl&lt;/loggerName&gt;
+ *     &lt;rate&gt;100&lt;/rate&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ * A turbo filter runs before the level check of every logging call, so the common case (not
+ * INFO, or not a sampled logger) returns after a level compare or one map lookup.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    // marks loggers that were looked up and are not sampled
+    private static final AtomicLong NOT_SAMPLED = new AtomicLong();
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final List<String> loggerNames = new CopyOnWriteArrayList<>();
+    private int rate = 1;
+
+    public void addLoggerName(String loggerName) {
+        loggerNames.add(loggerName.trim());
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public void start() {
+        if (rate < 1) {
+            addError("rate must be at least 1, was " + rate);
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+                              Object[] params, Throwable t) {
+
+        // format is null for isInfoEnabled() checks, which must not use up a sample
+        if (rate == 1 || level != Level.INFO || format == null || !isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        AtomicLong counter = counters.get(logger.getName());
+        if (counter == null) {
+            counter = counters.computeIfAbsent(logger.getName(),
+                    name -> isSampled(name) ? new AtomicLong() : NOT_SAMPLED);
+        }
+        if (counter == NOT_SAMPLED) {
+            return FilterReply.NEUTRAL;
+        }
+        return counter.getAndIncrement() % rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean isSampled(String loggerName) {
+        for (String prefix : loggerNames) {
+            if (loggerName.equals(prefix) || loggerName.startsWith(prefix + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,86 @@
+package com.spring.customer.mapper;
+
+import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.metrics.CustomerMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Plain field-by-field mapping between {@link Customer} and {@link CustomerDto}. Replaces the
+ * reflective ModelMapper, which resolved a type map and walked properties on every call.
+ */
+@Component
+public class CustomerMapper {
+
+    private final CustomerMetrics customerMetrics;
+
+    @Autowired
+    public CustomerMapper(CustomerMetrics customerMetrics) {
+        this.customerMetrics = customerMetrics;
+    }
+
+    /** Without metrics. */
+    public CustomerMapper() {
+        this(CustomerMetrics.noop());
+    }
+
+    public CustomerDto toDto(Customer customer, Membership tier) {
+        if (customerMetrics.sampleMapping()) {
+            long start = System.nanoTime();
+            CustomerDto customerDto = newDto(customer, tier);
+            customerMetrics.mappedToDto(System.nanoTime() - start);
+            return customerDto;
+        }
+        return newDto(customer, tier);
+    }
+
+    /** Maps with the tier stored on the entity. */
+    public CustomerDto toDto(Customer customer) {
+        return toDto(customer, customer.getTier());
+    }
+
+    public Customer toEntity(CustomerDto customerDto) {
+        if (customerMetrics.sampleMapping()) {
+            long start = System.nanoTime();
+            Customer customer = newEntity(customerDto);
+            customerMetrics.mappedToEntity(System.nanoTime() - start);
+            return customer;
+        }
+        return newEntity(customerDto);
+    }
+
+    /** Copies the client-editable fields; id, tier and version are owned by the server. */
+    public void updateEntity(CustomerDto customerDto, Customer customer) {
+        customer.setName(customerDto.getName());
+        customer.setEmail(customerDto.getEmail());
+        customer.setLastPurchaseDate(customerDto.getLastPurchaseDate());
+        customer.setAnnualSpend(customerDto.getAnnualSpend());
+    }
+
+    private static CustomerDto newDto(Customer customer, Membership tier) {
+        CustomerDto customerDto = new CustomerDto(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getAnnualSpend(),
+                customer.getLastPurchaseDate(),
+                tier
+        );
+        customerDto.setVersion(customer.getVersion());
+        return customerDto;
+    }
+
+    private static Customer newEntity(CustomerDto customerDto) {
+        Customer customer = new Customer(
+                customerDto.getId(),
+                customerDto.getName(),
+                customerDto.getEmail(),
+                customerDto.getAnnualSpend(),
+                customerDto.getLastPurchaseDate()
+        );
+        customer.setTier(customerDto.getTier());
+        return customer;
+    }
+}
@@ -0,0 +1,95 @@
+package com.spring.customer.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application meters next to the ones Spring Boot records itself (http.server.requests per
+ * endpoint, spring.data.repository.invocations per repository method). Meters used on every
+ * call are registered up front so recording is a field read; percentiles and histograms are
+ * configured under management.metrics.distribution, not here.
+ */
+@Component
+public class CustomerMetrics {
+
+    public static final String MAPPING = "customer.mapping";
+    public static final String SERIALIZATION = "customer.response.serialization";
+    public static final String ERRORS = "customer.errors";
+    public static final String EMAIL_CHECKS = "customer.email.checks";
+
+    // mapping takes ~10 ns, less than the two clock reads around it, so only 1 in 64 is timed
+    static final int MAPPING_SAMPLE_RATE = 64;
+
+    private final MeterRegistry registry;
+    private final Timer toDtoTimer;
+    private final Timer toEntityTimer;
+    private final Timer serializationTimer;
+    private final Counter emailsNew;
+    private final Counter emailsTaken;
+    private final Counter emailFalsePositives;
+
+    public CustomerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.toDtoTimer = Timer.builder(MAPPING)
+                .description("Sampled (1 in " + MAPPING_SAMPLE_RATE + ") time to map between Customer and CustomerDto")
+                .tag("direction", "toDto")
+                .register(registry);
+        this.toEntityTimer = Timer.builder(MAPPING)
+                .description("Sampled (1 in " + MAPPING_SAMPLE_RATE + ") time to map between Customer and CustomerDto")
+                .tag("direction", "toEntity")
+                .register(registry);
+        this.serializationTimer = Timer.builder(SERIALIZATION)
+                .description("Time to write a JSON response body")
+                .register(registry);
+        this.emailsNew = emailCheckCounter(registry, "new");
+        this.emailsTaken = emailCheckCounter(registry, "taken");
+        this.emailFalsePositives = emailCheckCounter(registry, "false_positive");
+    }
+
+    private static Counter emailCheckCounter(MeterRegistry registry, String result) {
+        return Counter.builder(EMAIL_CHECKS)
+                .description("Duplicate email checks: new without a query, taken, or a filter false positive")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /** Meters that record into nothing, for code constructed outside Spring. */
+    public static CustomerMetrics noop() {
+        return new CustomerMetrics(new CompositeMeterRegistry());
+    }
+
+    /** Whether this mapping call should be timed. */
+    public boolean sampleMapping() {
+        return ThreadLocalRandom.current().nextInt(MAPPING_SAMPLE_RATE) == 0;
+    }
+
+    public void mappedToDto(long nanos) {
+        toDtoTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void mappedToEntity(long nanos) {
+        toEntityTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void serialized(long nanos) {
+        serializationTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Outcome of a duplicate email check; {@code queried} is false when the filter answered alone. */
+    public void emailChecked(boolean queried, boolean taken) {
+        (!queried ? emailsNew : taken ? emailsTaken : emailFalsePositives).increment();
+    }
+
+    public void error(String handler, int status, Exception ex) {
+        registry.counter(ERRORS,
+                "handler", handler,
+                "status", String.valueOf(status),
+                "exception", ex.getClass().getSimpleName()).increment();
+    }
+}
@@ -0,0 +1,55 @@
+package com.spring.customer.metrics;
+
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.service.CustomerService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Customers per tier as a gauge. Every path that writes the tier column (create, update, patch,
+ * bulk writes, CSV import, lookup touches, nightly demotions) is covered because the count is
+ * read from the table, not worked out from the writes: one GROUP BY on the tier index per shard
+ * every customer.metrics.tier-refresh, so a scrape never queries.
+ */
+@Component
+public class TierDistributionGauge {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TierDistributionGauge.class);
+
+    public static final String TIERS = "customer.tiers";
+
+    private final CustomerService customerService;
+    private final Map<Membership, AtomicLong> counts = new EnumMap<>(Membership.class);
+
+    public TierDistributionGauge(CustomerService customerService, MeterRegistry registry) {
+        this.customerService = customerService;
+        for (Membership tier : Membership.values()) {
+            AtomicLong count = new AtomicLong();
+            counts.put(tier, count);
+            Gauge.builder(TIERS, count, AtomicLong::get)
+                    .description("Customers per tier, as of the last refresh")
+                    .tag("tier", tier.name())
+                    .register(registry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${customer.metrics.tier-refresh:PT1M}")
+    public void refresh() {
+
+        try {
+            customerService.countCustomersByTier().forEach((tier, count) -> counts.get(tier).set(count));
+        } catch (RuntimeException ex) {
+            // the gauge keeps the last counts until the next refresh gets through
+            log.warn("Failed to refresh the tier gauge", ex);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.spring.customer.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * The JSON converter Spring Boot would configure, recording how long each response body takes
+ * to serialize into {@link CustomerMetrics#SERIALIZATION}.
+ */
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final CustomerMetrics customerMetrics;
+
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, CustomerMetrics customerMetrics) {
+        super(objectMapper);
+        this.customerMetrics = customerMetrics;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            customerMetrics.serialized(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.spring.customer.outbox;
+
+import com.spring.customer.dto.TierChangeBatch;
+import com.spring.customer.entity.TierChangeEvent;
+import com.spring.customer.exceptionhandling.FeatureUnavailableException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes the outbox to consumers, pushed over Server-Sent Events or pulled in batches.
+ * <p>
+ * Outbox ids are taken at insert but become visible at commit, so a reader can see id 11
+ * before id 10. The poller therefore keeps a horizon: the highest id up to which every id has
+ * been seen, or given up on after customer.outbox.gap-timeout (ids of rolled back transactions
+ * never appear). Every missing id has its own timeout, counted from the poll that first missed
+ * it, so the horizon stops at the first missing id still waited for. Live subscribers are sent
+ * what lies below the horizon as it moves, and pull requests and SSE replays read only up to
+ * it, so a consumer resuming from an offset does not skip an event that committed late.
+ */
+@Component
+public class TierChangeFeed {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TierChangeFeed.class);
+
+    static final String EVENT_NAME = "tier-change";
+    private static final int MAX_BATCH = 1000;
+
+    private final TierChangeOutbox outbox;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Duration emitterTimeout;
+    private final Duration heartbeatInterval;
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final Object lock = new Object();
+
+    private final Map<Long, Long> gapsSince = new HashMap<>();
+
+    private volatile long horizon = -1;
+    private long lastSent;
+
+    public TierChangeFeed(TierChangeOutbox outbox,
+                          @Value("${customer.outbox.batch-size:500}") int batchSize,
+                          @Value("${customer.outbox.gap-timeout:PT10S}") Duration gapTimeout,
+                          @Value("${customer.outbox.sse-timeout:PT30M}") Duration emitterTimeout,
+                          @Value("${customer.outbox.heartbeat-interval:PT15S}") Duration heartbeatInterval) {
+        this.outbox = outbox;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.emitterTimeout = emitterTimeout;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    /** Up to {@code limit} events after the offset, all below the horizon. */
+    public TierChangeBatch read(long after, int limit) {
+
+        checkEnabled();
+        if (after < 0 || limit < 1 || limit > MAX_BATCH) {
+            throw new IllegalArgumentException("after must be >= 0 and limit between 1 and " + MAX_BATCH);
+        }
+        List<TierChangeEvent> changes = outbox.readAfter(after, horizon(), limit);
+        long lastEventId = changes.isEmpty() ? after : changes.get(changes.size() - 1).getId();
+        return new TierChangeBatch(changes, lastEventId, changes.size() == limit);
+    }
+
+    /**
+     * Streams the events after {@code lastEventId} (from now on when null) and then every new
+     * one as it passes the horizon. The backlog is sent before the subscriber joins the live
+     * stream; the last stretch of it under the poller's lock, so no event is sent twice or
+     * skipped in between.
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+
+        checkEnabled();
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        try {
+            long cursor = replay(emitter, lastEventId != null ? lastEventId : horizon(), horizon());
+            synchronized (lock) {
+                replay(emitter, cursor, horizon);
+                subscribers.add(emitter);
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.debug("Tier change subscriber left during the replay: {}", ex.toString());
+            emitter.completeWithError(ex);
+            return emitter;
+        }
+
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(ex -> subscribers.remove(emitter));
+        log.debug("Tier change subscriber joined, {} subscriber(s)", subscribers.size());
+        return emitter;
+    }
+
+    /** Moves the horizon over the events committed since the last poll and pushes them out. */
+    @Scheduled(fixedDelayString = "${customer.outbox.poll-interval:PT1S}")
+    public void poll() {
+
+        if (!outbox.isEnabled()) {
+            return;
+        }
+        synchronized (lock) {
+            horizon();
+            List<TierChangeEvent> events;
+            do {
+                events = outbox.readAfter(horizon, Long.MAX_VALUE, batchSize);
+                int ready = ready(events);
+                if (ready == 0) {
+                    break;
+                }
+                send(events.subList(0, ready));
+                horizon = events.get(ready - 1).getId();
+                gapsSince.keySet().removeIf(id -> id <= horizon);
+                if (ready < events.size()) {
+                    break;
+                }
+            } while (events.size() == batchSize);
+
+            heartbeat();
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(SseEmitter::complete);
+        subscribers.clear();
+    }
+
+    private long horizon() {
+
+        if (horizon < 0) {
+            synchronized (lock) {
+                if (horizon < 0) {
+                    // starts at the newest event; an earlier one committing after this (another node's) is not waited for
+                    horizon = outbox.latestId();
+                }
+            }
+        }
+        return horizon;
+    }
+
+    // number of events in front of the first missing id still waited for; the wait for every
+    // missing id in the batch starts when the poller first misses it, not when the ones before are done
+    private int ready(List<TierChangeEvent> events) {
+
+        long now = System.nanoTime();
+        long next = horizon + 1;
+        int ready = 0;
+        boolean waiting = false;
+        for (TierChangeEvent event : events) {
+            for (long missing = next; missing < event.getId(); missing++) {
+                long since = gapsSince.computeIfAbsent(missing, id -> now);
+                if (now - since < gapTimeout.toNanos()) {
+                    waiting = true;
+                } else if (!waiting) {
+                    log.debug("Gave up waiting for tier change event id: {}", missing);
+                }
+            }
+            if (!waiting) {
+                ready++;
+            }
+            next = event.getId() + 1;
+        }
+        return ready;
+    }
+
+    private long replay(SseEmitter emitter, long after, long upTo) throws IOException {
+
+        long cursor = after;
+        List<TierChangeEvent> events;
+        do {
+            events = outbox.readAfter(cursor, upTo, batchSize);
+            for (TierChangeEvent event : events) {
+                emitter.send(event(event));
+                cursor = event.getId();
+            }
+        } while (events.size() == batchSize);
+        return cursor;
+    }
+
+    private void send(List<TierChangeEvent> events) {
+
+        for (SseEmitter subscriber : subscribers) {
+            try {
+                for (TierChangeEvent event : events) {
+                    subscriber.send(event(event));
+                }
+            } catch (IOException | RuntimeException ex) {
+                subscribers.remove(subscriber);
+                subscriber.completeWithError(ex);
+            }
+        }
+        lastSent = System.nanoTime();
+    }
+
+    // an idle connection gets a comment now and then, so a dead one is noticed and dropped
+    private void heartbeat() {
+
+        if (subscribers.isEmpty() || System.nanoTime() - lastSent < heartbeatInterval.toNanos()) {
+            return;
+        }
+        for (SseEmitter subscriber : subscribers) {
+            try {
+                subscriber.send(SseEmitter.event().comment("keep-alive"));
+            } catch (IOException | RuntimeException ex) {
+                subscribers.remove(subscriber);
+                subscriber.completeWithError(ex);
+            }
+        }
+        lastSent = System.nanoTime();
+    }
+
+    private static SseEmitter.SseEventBuilder event(TierChangeEvent event) {
+        return SseEmitter.event()
+                .id(String.valueOf(event.getId()))
+                .name(EVENT_NAME)
+                .data(event, MediaType.APPLICATION_JSON);
+    }
+
+    private void checkEnabled() {
+        if (!outbox.isEnabled()) {
+            throw new FeatureUnavailableException("The tier change feed is not available: the outbox is off");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.spring.customer.outbox;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.entity.TierChangeEvent;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes tier transitions to the tier_change_outbox table and reads them back by offset. Every
+ * record method has to run in the transaction that changes the tier, so the event commits or
+ * rolls back with the change. The lookup touches and nightly demotions are mirrored by an
+ * INSERT ... SELECT with the same conditions, run just before the UPDATE, so only rows whose
+ * tier actually moves get an event; bulk create, bulk update and CSV import lock and read the
+ * previous tiers of their chunk first and record the stored rows in one batch.
+ * <p>
+ * The outbox is one table with one id sequence; with several shards there would be one per
+ * shard, so it is switched off while sharding is on.
+ */
+@Component
+public class TierChangeOutbox {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TierChangeOutbox.class);
+
+    static final String COLUMNS = "customer_id, from_tier, to_tier, changed_at";
+
+    private static final String INSERT =
+            "insert into tier_change_outbox (" + COLUMNS + ") values (?, ?, ?, ?)";
+
+    // the tier CustomerRepo.touchLastPurchaseDate gives a touched row
+    private static final String RECORD_TOUCHES =
+            "insert into tier_change_outbox (" + COLUMNS + ") select id, tier, to_tier, ? from ("
+                    + "select id, tier, case when annual_spend >= ? then 'PLATINUM' "
+                    + "when annual_spend >= ? then 'GOLD' else 'SILVER' end as to_tier from customer "
+                    + "where id in (%s) and version = ? and (last_purchase_date is null or last_purchase_date < ?)) t "
+                    + "where tier is distinct from to_tier";
+
+    // the rows CustomerRepo.demoteLapsedPlatinum and demoteLapsedGold change
+    private static final String RECORD_PLATINUM_DEMOTIONS =
+            "insert into tier_change_outbox (" + COLUMNS + ") select id, tier, "
+                    + "case when annual_spend >= ? and last_purchase_date > ? then 'GOLD' else 'SILVER' end, ? "
+                    + "from customer where tier = 'PLATINUM' and (last_purchase_date is null or last_purchase_date <= ?)";
+    private static final String RECORD_GOLD_DEMOTIONS =
+            "insert into tier_change_outbox (" + COLUMNS + ") select id, tier, 'SILVER', ? "
+                    + "from customer where tier = 'GOLD' and (last_purchase_date is null or last_purchase_date <= ?)";
+
+    private static final String SELECT_AFTER =
+            "select id, " + COLUMNS + " from tier_change_outbox where id > ? and id <= ? order by id fetch first ? rows only";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration retention;
+
+    @Autowired
+    public TierChangeOutbox(JdbcTemplate jdbcTemplate, Clock clock, CustomerShards customerShards,
+                            @Value("${customer.outbox.enabled:true}") boolean enabled,
+                            @Value("${customer.outbox.retention:P7D}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.enabled = enabled && !customerShards.isSharded();
+        this.retention = retention;
+        if (enabled && customerShards.isSharded()) {
+            log.warn("Tier change outbox is off: it is not available with sharding enabled");
+        }
+    }
+
+    /** An outbox that records nothing, for unit tests and benchmarks. */
+    public static TierChangeOutbox disabled() {
+        return new TierChangeOutbox(null, Clock.systemUTC(), CustomerShards.unsharded(), false, Duration.ZERO);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Records a transition of one customer; nothing when the tier stays the same. */
+    public void record(UUID customerId, Membership fromTier, Membership toTier) {
+
+        if (!enabled || fromTier == toTier || toTier == null) {
+            return;
+        }
+        jdbcTemplate.update(INSERT, customerId, name(fromTier), name(toTier), now());
+        log.debug("Recorded tier change of customer id: {} from {} to {}", customerId, fromTier, toTier);
+    }
+
+    /**
+     * Records the transitions of customers a bulk statement stored, in one batch; a customer
+     * missing from {@code previousTiers} is new.
+     */
+    public int record(Map<UUID, Membership> previousTiers, Collection<Customer> stored) {
+
+        if (!enabled || stored.isEmpty()) {
+            return 0;
+        }
+        OffsetDateTime now = now();
+        List<Object[]> rows = new ArrayList<>(stored.size());
+        for (Customer customer : stored) {
+            Membership fromTier = previousTiers.get(customer.getId());
+            if (customer.getTier() != null && customer.getTier() != fromTier) {
+                rows.add(new Object[]{customer.getId(), name(fromTier), name(customer.getTier()), now});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, rows);
+        }
+        return rows.size();
+    }
+
+    /**
+     * Records the transitions the touch of these ids, read at {@code version}, to {@code date}
+     * is about to make.
+     */
+    public int recordTouches(List<UUID> ids, LocalDate date, Long version, TierCalculator tierCalculator) {
+
+        if (!enabled || ids.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>(ids.size() + 4);
+        args.add(now());
+        args.add(tierCalculator.platinumSpend());
+        args.add(tierCalculator.goldSpend());
+        args.addAll(ids);
+        args.add(version);
+        args.add(date);
+
+        String sql = String.format(RECORD_TOUCHES, String.join(",", Collections.nCopies(ids.size(), "?")));
+        return jdbcTemplate.update(sql, args.toArray());
+    }
+
+    /** Records the demotions the nightly tier refresh is about to make. */
+    public int recordDemotions(LocalDate today, TierCalculator tierCalculator) {
+
+        if (!enabled) {
+            return 0;
+        }
+        OffsetDateTime now = now();
+        LocalDate goldCutoff = tierCalculator.goldCutoff(today);
+        return jdbcTemplate.update(RECORD_PLATINUM_DEMOTIONS,
+                tierCalculator.goldSpend(), goldCutoff, now, tierCalculator.platinumCutoff(today))
+                + jdbcTemplate.update(RECORD_GOLD_DEMOTIONS, now, goldCutoff);
+    }
+
+    /** Up to {@code limit} events with an id in (after, upTo], in id order. */
+    public List<TierChangeEvent> readAfter(long after, long upTo, int limit) {
+
+        return jdbcTemplate.query(SELECT_AFTER, (resultSet, row) -> mapRow(resultSet), after, upTo, limit);
+    }
+
+    public long latestId() {
+
+        Long latest = jdbcTemplate.queryForObject("select max(id) from tier_change_outbox", Long.class);
+        return latest != null ? latest : 0L;
+    }
+
+    @Scheduled(cron = "${customer.outbox.purge-cron:0 30 0 * * *}")
+    public int purge() {
+
+        if (!enabled) {
+            return 0;
+        }
+        int purged = jdbcTemplate.update("delete from tier_change_outbox where changed_at < ?",
+                now().minus(retention));
+        log.info("Purged {} tier change event(s) older than {}", purged, retention);
+        return purged;
+    }
+
+    private OffsetDateTime now() {
+        return OffsetDateTime.now(clock).withOffsetSameInstant(ZoneOffset.UTC);
+    }
+
+    private static String name(Membership tier) {
+        return tier != null ? tier.name() : null;
+    }
+
+    private static TierChangeEvent mapRow(ResultSet resultSet) throws SQLException {
+
+        String fromTier = resultSet.getString("from_tier");
+        return new TierChangeEvent(
+                resultSet.getLong("id"),
+                resultSet.getObject("customer_id", UUID.class),
+                fromTier != null ? Membership.valueOf(fromTier) : null,
+                Membership.valueOf(resultSet.getString("to_tier")),
+                resultSet.getObject("changed_at", OffsetDateTime.class).toInstant());
+    }
+}
@@ -0,0 +1,401 @@
+package com.spring.customer.repository;
+
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.CustomerSelection;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.tier.TierColumns;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access for reads that must not materialize the result: rows are pulled from a
+ * forward-only, read-only cursor with the given fetch size and handed over one at a time.
+ * With several shards the reads go through them one after the other.
+ */
+@Repository
+public class CustomerJdbcRepo {
+
+    static final String SELECT_COLUMNS =
+            "select id, name, email, annual_spend, last_purchase_date, tier, version from customer";
+
+    // annual_spend has scale 2, so the cents are exact
+    static final String SELECT_TIER_COLUMNS =
+            "select id, cast(annual_spend * 100 as bigint) as spend_cents, last_purchase_date from customer";
+
+    // standard MERGE (H2, PostgreSQL 15+): new emails are inserted, known ones overwritten with a version bump
+    static final String UPSERT_BY_EMAIL =
+            "merge into customer c using (values (cast(? as uuid), ?, ?, cast(? as numeric(19, 2)), cast(? as date), ?)) "
+                    + "s(id, name, email, annual_spend, last_purchase_date, tier) on c.email = s.email "
+                    + "when matched then update set name = s.name, annual_spend = s.annual_spend, "
+                    + "last_purchase_date = s.last_purchase_date, tier = s.tier, version = c.version + 1 "
+                    + "when not matched then insert (id, name, email, annual_spend, last_purchase_date, tier, version) "
+                    + "values (s.id, s.name, s.email, s.annual_spend, s.last_purchase_date, s.tier, 0)";
+
+    // the tier from the row as it is after the update; coalesce treats a missing spend as zero like TierCalculator
+    private static final String TIER_CASE =
+            "case when coalesce(%1$s, 0) >= ? and %2$s > ? then 'PLATINUM' "
+                    + "when coalesce(%1$s, 0) >= ? and %2$s > ? then 'GOLD' else 'SILVER' end";
+
+    private static final int IN_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerShards customerShards;
+
+    public CustomerJdbcRepo(JdbcTemplate jdbcTemplate, CustomerShards customerShards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.customerShards = customerShards;
+    }
+
+    public void streamAll(int fetchSize, Consumer<Customer> consumer) {
+
+        streamMatching(null, null, null, fetchSize, consumer);
+    }
+
+    /**
+     * Customers in id order whose spend lies in [minSpend, maxSpend] and whose last purchase is
+     * after purchasedAfter, read through a forward-only cursor; null bounds are left out. With
+     * several shards the order holds within each shard.
+     */
+    public void streamMatching(BigDecimal minSpend, BigDecimal maxSpend, LocalDate purchasedAfter,
+                               int fetchSize, Consumer<Customer> consumer) {
+
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS);
+        List<Object> args = new ArrayList<>(3);
+        if (minSpend != null) {
+            sql.append(args.isEmpty() ? " where" : " and").append(" annual_spend >= ?");
+            args.add(minSpend);
+        }
+        if (maxSpend != null) {
+            sql.append(args.isEmpty() ? " where" : " and").append(" annual_spend <= ?");
+            args.add(maxSpend);
+        }
+        if (purchasedAfter != null) {
+            sql.append(args.isEmpty() ? " where" : " and").append(" last_purchase_date > ?");
+            args.add(purchasedAfter);
+        }
+        sql.append(" order by id");
+
+        customerShards.forEachShard(() -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, resultSet -> {
+            Customer customer = mapRow(resultSet);
+            if (customerShards.owns(customer.getId())) {
+                consumer.accept(customer);
+            }
+        }));
+    }
+
+    public long count() {
+
+        return customerShards.onEveryShard(() -> {
+            Long count = jdbcTemplate.queryForObject("select count(*) from customer", Long.class);
+            return count != null ? count : 0L;
+        }).stream().mapToLong(Long::longValue).sum();
+    }
+
+    /** Every stored email, in no particular order, read through a forward-only cursor. */
+    public void streamEmails(int fetchSize, Consumer<String> consumer) {
+
+        customerShards.forEachShard(() -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement("select id, email from customer",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, resultSet -> {
+            if (customerShards.owns(resultSet.getObject(1, UUID.class))) {
+                consumer.accept(resultSet.getString(2));
+            }
+        }));
+    }
+
+    /**
+     * Inserts or overwrites the customers by email in one JDBC batch. Customers without an id
+     * get a random one if they turn out to be new; the id of an existing row is kept.
+     */
+    public void upsertByEmail(List<Customer> customers) {
+
+        jdbcTemplate.batchUpdate(UPSERT_BY_EMAIL, customers, customers.size(), (statement, customer) -> {
+            statement.setObject(1, customer.getId() != null ? customer.getId() : UUID.randomUUID());
+            statement.setString(2, customer.getName());
+            statement.setString(3, customer.getEmail());
+            statement.setBigDecimal(4, customer.getAnnualSpend());
+            statement.setObject(5, customer.getLastPurchaseDate());
+            statement.setString(6, customer.getTier() != null ? customer.getTier().name() : null);
+        });
+    }
+
+    /**
+     * Applies the patch in one statement: only the patched columns are set, the version is
+     * bumped, and the tier is recalculated in the same UPDATE when spend or purchase date change.
+     * The updated row is read back from the statement itself instead of a second query, through
+     * an H2 data change delta table (FINAL TABLE); like the bulk statements below, this is H2
+     * only. Returns null when no row has the id, or the expected version when one is given.
+     */
+    public Customer patch(UUID id, CustomerPatch patch, Long expectedVersion, TierCalculator tierCalculator) {
+
+        List<Object> args = new ArrayList<>(12);
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS.replace(" from customer", " from final table (update customer set "))
+                .append(setClause(patch, tierCalculator, args))
+                .append(" where id = ?");
+        args.add(id);
+        if (expectedVersion != null) {
+            sql.append(" and version = ?");
+            args.add(expectedVersion);
+        }
+        sql.append(")");
+
+        List<Customer> updated = jdbcTemplate.query(sql.toString(), (resultSet, row) -> mapRow(resultSet), args.toArray());
+        return updated.isEmpty() ? null : updated.get(0);
+    }
+
+    /** The stored tier, with the row locked until the end of the transaction; null for an unknown id. */
+    public Membership lockTier(UUID id) {
+
+        List<String> tiers = jdbcTemplate.queryForList("select tier from customer where id = ? for update", String.class, id);
+        return tiers.isEmpty() || tiers.get(0) == null ? null : Membership.valueOf(tiers.get(0));
+    }
+
+    /**
+     * The stored tiers of one chunk of the selection, as {@link #updateSelected} with the same
+     * arguments would pick it, in id order and locked until the end of the transaction.
+     */
+    public Map<UUID, Membership> lockSelectedTiers(CustomerSelection selection, UUID after, int limit) {
+
+        List<Object> args = new ArrayList<>();
+        String sql = "select id, tier from customer where id in (" + selectedIds(selection, after, limit, args)
+                + ") order by id for update";
+
+        Map<UUID, Membership> tiers = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, resultSet -> {
+            String tier = resultSet.getString("tier");
+            tiers.put(resultSet.getObject("id", UUID.class), tier != null ? Membership.valueOf(tier) : null);
+        }, args.toArray());
+        return tiers;
+    }
+
+    /** The stored tiers of the customers with these emails, locked until the end of the transaction. */
+    public Map<String, Membership> lockTiersByEmail(List<String> emails) {
+
+        Map<String, Membership> tiers = new HashMap<>();
+        for (int from = 0; from < emails.size(); from += IN_CHUNK) {
+            List<String> chunk = emails.subList(from, Math.min(from + IN_CHUNK, emails.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("select email, tier from customer where email in (" + placeholders + ") for update",
+                    resultSet -> {
+                        String tier = resultSet.getString("tier");
+                        tiers.put(resultSet.getString("email"), tier != null ? Membership.valueOf(tier) : null);
+                    }, chunk.toArray());
+        }
+        return tiers;
+    }
+
+    /**
+     * Deletes, in one statement, the first {@code limit} selected customers with an id above
+     * {@code after} (from the start when null) and returns their ids in id order, so the caller
+     * can continue after the last one. H2 only: the ids come from an OLD TABLE delta table.
+     */
+    public List<UUID> deleteSelected(CustomerSelection selection, UUID after, int limit) {
+
+        List<Object> args = new ArrayList<>();
+        String sql = "select id from old table (delete from customer where id in ("
+                + selectedIds(selection, after, limit, args) + ")) order by id";
+
+        return jdbcTemplate.queryForList(sql, UUID.class, args.toArray());
+    }
+
+    /**
+     * Applies the patch to the first {@code limit} selected customers with an id above
+     * {@code after} in one statement, as {@link #patch} does for a single customer, and returns
+     * the updated rows in id order.
+     */
+    public List<Customer> updateSelected(CustomerSelection selection, UUID after, int limit,
+                                         CustomerPatch patch, TierCalculator tierCalculator) {
+
+        List<Object> args = new ArrayList<>();
+        String set = setClause(patch, tierCalculator, args);
+        String sql = SELECT_COLUMNS.replace(" from customer", " from final table (update customer set ")
+                + set + " where id in (" + selectedIds(selection, after, limit, args) + ")) order by id";
+
+        return jdbcTemplate.query(sql, (resultSet, row) -> mapRow(resultSet), args.toArray());
+    }
+
+    /** SET list for the patched columns plus the tier when it depends on them, and the version bump. */
+    private static String setClause(CustomerPatch patch, TierCalculator tierCalculator, List<Object> args) {
+
+        StringBuilder set = new StringBuilder();
+        if (patch.isNameSet()) {
+            set.append("name = ?, ");
+            args.add(patch.getName());
+        }
+        if (patch.isEmailSet()) {
+            set.append("email = ?, ");
+            args.add(patch.getEmail());
+        }
+        if (patch.isAnnualSpendSet()) {
+            set.append("annual_spend = cast(? as numeric(19, 2)), ");
+            args.add(patch.getAnnualSpend());
+        }
+        if (patch.isLastPurchaseDateSet()) {
+            set.append("last_purchase_date = cast(? as date), ");
+            args.add(patch.getLastPurchaseDate());
+        }
+        if (patch.changesTier()) {
+            // SET expressions see the old row, so the patched values go in as parameters again
+            String spend = patch.isAnnualSpendSet() ? "cast(? as numeric(19, 2))" : "annual_spend";
+            String date = patch.isLastPurchaseDateSet() ? "cast(? as date)" : "last_purchase_date";
+            set.append("tier = ").append(String.format(TIER_CASE, spend, date)).append(", ");
+
+            LocalDate today = tierCalculator.today();
+            addTierArgs(args, patch, tierCalculator.platinumSpend(), tierCalculator.platinumCutoff(today));
+            addTierArgs(args, patch, tierCalculator.goldSpend(), tierCalculator.goldCutoff(today));
+        }
+        return set.append("version = version + 1").toString();
+    }
+
+    /** Subquery for the ids of one chunk of the selection, in id order. */
+    private static String selectedIds(CustomerSelection selection, UUID after, int limit, List<Object> args) {
+
+        List<String> conditions = new ArrayList<>(6);
+        if (selection.hasIds()) {
+            conditions.add("id in (" + String.join(",", Collections.nCopies(selection.getIds().size(), "?")) + ")");
+            args.addAll(selection.getIds());
+        }
+        if (selection.getTier() != null) {
+            conditions.add("tier = ?");
+            args.add(selection.getTier().name());
+        }
+        if (selection.getMinSpend() != null) {
+            conditions.add("annual_spend >= ?");
+            args.add(selection.getMinSpend());
+        }
+        if (selection.getMaxSpend() != null) {
+            conditions.add("annual_spend <= ?");
+            args.add(selection.getMaxSpend());
+        }
+        if (selection.getPurchasedBefore() != null) {
+            conditions.add("last_purchase_date < ?");
+            args.add(selection.getPurchasedBefore());
+        }
+        if (after != null) {
+            conditions.add("id > ?");
+            args.add(after);
+        }
+        args.add(limit);
+
+        return "select id from customer"
+                + (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions))
+                + " order by id fetch first ? rows only";
+    }
+
+    private static void addTierArgs(List<Object> args, CustomerPatch patch, BigDecimal minSpend, LocalDate cutoff) {
+
+        if (patch.isAnnualSpendSet()) {
+            args.add(patch.getAnnualSpend());
+        }
+        args.add(minSpend);
+        if (patch.isLastPurchaseDateSet()) {
+            args.add(patch.getLastPurchaseDate());
+        }
+        args.add(cutoff);
+    }
+
+    /** Customers with the given emails; unknown emails are simply absent from the result. */
+    public List<Customer> findByEmails(List<String> emails) {
+
+        List<Customer> customers = new ArrayList<>(emails.size());
+        for (int from = 0; from < emails.size(); from += IN_CHUNK) {
+            List<String> chunk = emails.subList(from, Math.min(from + IN_CHUNK, emails.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query(SELECT_COLUMNS + " where email in (" + placeholders + ")",
+                    resultSet -> {
+                        customers.add(mapRow(resultSet));
+                    }, chunk.toArray());
+        }
+        return customers;
+    }
+
+    /** Tier columns of the given customers; unknown ids are simply absent from the result. */
+    public TierColumns loadTierColumns(List<UUID> ids) {
+
+        TierColumns columns = new TierColumns(ids.size());
+
+        customerShards.forEachShard(() -> {
+            for (int from = 0; from < ids.size(); from += IN_CHUNK) {
+                List<UUID> chunk = ids.subList(from, Math.min(from + IN_CHUNK, ids.size()));
+                String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+                jdbcTemplate.query(SELECT_TIER_COLUMNS + " where id in (" + placeholders + ")",
+                        resultSet -> {
+                            addTierRow(columns, resultSet);
+                        }, chunk.toArray());
+            }
+        });
+        return columns;
+    }
+
+    /** Tier columns of every customer, read through a forward-only cursor. */
+    public TierColumns loadAllTierColumns(int fetchSize) {
+
+        TierColumns columns = new TierColumns((int) count());
+
+        customerShards.forEachShard(() -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_TIER_COLUMNS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, resultSet -> {
+            addTierRow(columns, resultSet);
+        }));
+        return columns;
+    }
+
+    private void addTierRow(TierColumns columns, ResultSet resultSet) throws SQLException {
+
+        UUID id = resultSet.getObject("id", UUID.class);
+        if (!customerShards.owns(id)) {
+            return;
+        }
+        LocalDate lastPurchaseDate = resultSet.getObject("last_purchase_date", LocalDate.class);
+        columns.add(
+                id,
+                resultSet.getLong("spend_cents"),
+                lastPurchaseDate != null ? lastPurchaseDate.toEpochDay() : TierCalculator.NO_PURCHASE);
+    }
+
+    static Customer mapRow(ResultSet resultSet) throws SQLException {
+
+        Customer customer = new Customer(
+                resultSet.getObject("id", UUID.class),
+                resultSet.getString("name"),
+                resultSet.getString("email"),
+                resultSet.getBigDecimal("annual_spend"),
+                resultSet.getObject("last_purchase_date", LocalDate.class));
+
+        String tier = resultSet.getString("tier");
+        customer.setTier(tier != null ? Membership.valueOf(tier) : null);
+        customer.setVersion(resultSet.getLong("version"));
+
+        return customer;
+    }
+}
@@ -1,10 +1,20 @@
 package com.spring.customer.repository;
 
 import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.Membership;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,7 +23,79 @@ import java.util.UUID;
 public interface CustomerRepo extends JpaRepository<Customer, UUID> {
 
 
+    // read-only lookups: outside a write transaction these may be served by a read replica
+    @Override
+    @Transactional(readOnly = true)
+    Optional<Customer> findById(UUID id);
+    @Transactional(readOnly = true)
     List<Customer> findAllByName(String name);
+    @Transactional(readOnly = true)
     Optional<Customer> findByEmail(String email);
+    boolean existsByEmail(String email);
+    boolean existsByEmailAndIdNot(String email, UUID id);
+
+    @Query("select c.email from Customer c where c.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Transactional(readOnly = true)
+    @Query("select c.version from Customer c where c.id = :id")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    // one DELETE without loading the entity; the count tells whether the customer existed
+    @Modifying
+    @Query("delete from Customer c where c.id = :id")
+    int deleteRowById(@Param("id") UUID id);
+
+    List<Customer> findAllByOrderByIdAsc(Limit limit);
+    List<Customer> findByIdGreaterThanOrderByIdAsc(UUID after, Limit limit);
+
+    Slice<Customer> findByTier(Membership tier, Pageable pageable);
+
+    @Query("select c.tier, count(c) from Customer c group by c.tier")
+    List<Object[]> countByTier();
+
+    // a touched customer has purchased "today", so only the spend thresholds decide the tier; a row
+    // written since the lookup read it (another version) keeps the lastPurchaseDate that write set
+    @Modifying
+    @Query("update Customer c set c.lastPurchaseDate = :date, c.tier = case " +
+            "when c.annualSpend >= :platinumSpend then com.spring.customer.enumerator.Membership.PLATINUM " +
+            "when c.annualSpend >= :goldSpend then com.spring.customer.enumerator.Membership.GOLD " +
+            "else com.spring.customer.enumerator.Membership.SILVER end " +
+            "where c.id in :ids and c.version = :version " +
+            "and (c.lastPurchaseDate is null or c.lastPurchaseDate < :date)")
+    int touchLastPurchaseDate(@Param("ids") Collection<UUID> ids, @Param("date") LocalDate date,
+                              @Param("version") Long version,
+                              @Param("platinumSpend") BigDecimal platinumSpend,
+                              @Param("goldSpend") BigDecimal goldSpend);
+
+    @Modifying
+    @Query("update Customer c set c.tier = case " +
+            "when c.annualSpend >= :goldSpend and c.lastPurchaseDate > :goldCutoff " +
+            "then com.spring.customer.enumerator.Membership.GOLD " +
+            "else com.spring.customer.enumerator.Membership.SILVER end " +
+            "where c.tier = com.spring.customer.enumerator.Membership.PLATINUM " +
+            "and (c.lastPurchaseDate is null or c.lastPurchaseDate <= :platinumCutoff)")
+    int demoteLapsedPlatinum(@Param("platinumCutoff") LocalDate platinumCutoff,
+                             @Param("goldSpend") BigDecimal goldSpend,
+                             @Param("goldCutoff") LocalDate goldCutoff);
+
+    @Modifying
+    @Query("update Customer c set c.tier = com.spring.customer.enumerator.Membership.SILVER " +
+            "where c.tier = com.spring.customer.enumerator.Membership.GOLD " +
+            "and (c.lastPurchaseDate is null or c.lastPurchaseDate <= :goldCutoff)")
+    int demoteLapsedGold(@Param("goldCutoff") LocalDate goldCutoff);
+
+    @Modifying
+    @Query("update Customer c set c.tier = case " +
+            "when c.annualSpend >= :platinumSpend and c.lastPurchaseDate > :platinumCutoff " +
+            "then com.spring.customer.enumerator.Membership.PLATINUM " +
+            "when c.annualSpend >= :goldSpend and c.lastPurchaseDate > :goldCutoff " +
+            "then com.spring.customer.enumerator.Membership.GOLD " +
+            "else com.spring.customer.enumerator.Membership.SILVER end " +
+            "where c.tier is null")
+    int backfillMissingTiers(@Param("platinumSpend") BigDecimal platinumSpend,
+                             @Param("platinumCutoff") LocalDate platinumCutoff,
+                             @Param("goldSpend") BigDecimal goldSpend,
+                             @Param("goldCutoff") LocalDate goldCutoff);
 
 }
@@ -0,0 +1,11 @@
+package com.spring.customer.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A handler's return value on its way to the client, written by {@link EnvelopeSerializer} as
+ * {@code {"data":...,"message":...,"status":...}} — the same JSON as {@link ApiResponse}, without
+ * copying the body into one first.
+ */
+@JsonSerialize(using = EnvelopeSerializer.class)
+public record Envelope(Object data, String message, int status) { }
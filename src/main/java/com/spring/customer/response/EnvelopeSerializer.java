@@ -0,0 +1,73 @@
+package com.spring.customer.response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes an {@link Envelope} straight to the generator. The data is serialized in place; a
+ * {@link Stream} or {@link Iterator} is written element by element as a JSON array, so a
+ * handler can return one without collecting it into a list first. The stream is closed once
+ * written, and it is consumed after the handler returned, so it must not need an open
+ * transaction.
+ */
+public class EnvelopeSerializer extends StdSerializer<Envelope> {
+
+    public EnvelopeSerializer() {
+        super(Envelope.class);
+    }
+
+    @Override
+    public void serialize(Envelope envelope, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+
+        generator.writeStartObject();
+        generator.writeFieldName("data");
+        writeData(envelope.data(), generator, provider);
+        generator.writeStringField("message", envelope.message());
+        generator.writeNumberField("status", envelope.status());
+        generator.writeEndObject();
+    }
+
+    private static void writeData(Object data, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+
+        if (data instanceof Stream<?> stream) {
+            try (stream) {
+                writeElements(stream.iterator(), generator, provider);
+            }
+        } else if (data instanceof Iterator<?> iterator) {
+            writeElements(iterator, generator, provider);
+        } else {
+            provider.defaultSerializeValue(data, generator);
+        }
+    }
+
+    private static void writeElements(Iterator<?> elements, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+
+        Class<?> lastType = null;
+        JsonSerializer<Object> serializer = null;
+
+        generator.writeStartArray();
+        while (elements.hasNext()) {
+            Object element = elements.next();
+            if (element == null) {
+                generator.writeNull();
+                continue;
+            }
+            // elements nearly always share one type, so the lookup is done once
+            if (element.getClass() != lastType) {
+                lastType = element.getClass();
+                serializer = provider.findTypedValueSerializer(lastType, true, null);
+            }
+            serializer.serialize(element, generator, provider);
+        }
+        generator.writeEndArray();
+    }
+}
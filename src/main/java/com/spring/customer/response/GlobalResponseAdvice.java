@@ -1,32 +1,58 @@
 package com.spring.customer.response;
 
-import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.http.server.ServletServerHttpResponse;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Puts every JSON response body into the {@code {"data", "message", "status"}} envelope by
+ * handing an {@link Envelope} to the converter, which {@link EnvelopeSerializer} streams out.
+ * <p>
+ * Whether a handler method is enveloped is worked out once per method and cached: bodies that
+ * are already an {@link ApiResponse} (the exception handlers), byte arrays, and the handlers
+ * of springdoc and actuator are left alone, so for them the advice is not called at all.
+ */
 @ControllerAdvice
 public class GlobalResponseAdvice implements ResponseBodyAdvice<Object> {
 
+    private static final String SUCCESS = "Success";
+
+    // these write their own formats (OpenAPI documents, Prometheus text, actuator JSON)
+    private static final List<String> EXCLUDED_PACKAGES = List.of("org.springdoc.", "org.springframework.boot.actuate.");
+
+    private final Map<Method, Boolean> envelopedRoutes = new ConcurrentHashMap<>();
+
     @Override
     public boolean supports(MethodParameter returnType,
                             Class<? extends HttpMessageConverter<?>> converterType) {
 
-        if (returnType.getParameterType().equals(ApiResponse.class)) {
+        if (!AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType)) {
             return false;
         }
 
-        if (returnType.getParameterType().equals(byte[].class)) {
-            return false;
+        Method method = returnType.getMethod();
+        if (method == null) {
+            return true;
         }
 
-        return true;
+        Boolean enveloped = envelopedRoutes.get(method);
+        if (enveloped == null) {
+            enveloped = envelopedRoutes.computeIfAbsent(method, m -> isEnveloped(returnType));
+        }
+        return enveloped;
     }
 
     @Override
@@ -37,33 +63,40 @@ public class GlobalResponseAdvice implements ResponseBodyAdvice<Object> {
                                   ServerHttpRequest request,
                                   ServerHttpResponse response) {
 
-
-        String path = request.getURI().getPath();
-        if (path.startsWith("/v3/api-docs") || path.startsWith("/swagger")) {
+        // declared as Object or a supertype, so only the runtime value tells
+        if (body instanceof ApiResponse<?> || body instanceof Envelope) {
             return body;
         }
 
-
-        if (body instanceof ApiResponse<?>) {
+        int status = 200;
+        if (response instanceof ServletServerHttpResponse servletResponse) {
+            status = servletResponse.getServletResponse().getStatus();
+        }
+        // these carry no body, not even an envelope
+        if (status == 204 || status == 304) {
             return body;
         }
 
-        int status = 200;
-        if (response instanceof ServletServerHttpResponse servletResponse) {
-            HttpServletResponse httpResponse = servletResponse.getServletResponse();
-            status = httpResponse.getStatus();
+        return new Envelope(body, SUCCESS, status);
+    }
+
+    static boolean isEnveloped(MethodParameter returnType) {
+
+        String handlerClass = returnType.getContainingClass().getName();
+        for (String excluded : EXCLUDED_PACKAGES) {
+            if (handlerClass.startsWith(excluded)) {
+                return false;
+            }
         }
 
-        if (body instanceof ResponseEntity<?> entity) {
-            return ResponseEntity
-                    .status(entity.getStatusCode())
-                    .body(new ApiResponse<>(
-                            entity.getBody(),
-                            "Success",
-                            entity.getStatusCode().value()
-                    ));
+        Class<?> bodyType = returnType.getParameterType();
+        if (HttpEntity.class.isAssignableFrom(bodyType)) {
+            bodyType = ResolvableType.forMethodParameter(returnType).as(HttpEntity.class)
+                    .getGeneric(0).resolve(Object.class);
         }
 
-        return new ApiResponse<>(body, "Success", status);
+        return !ApiResponse.class.isAssignableFrom(bodyType)
+                && !Envelope.class.isAssignableFrom(bodyType)
+                && bodyType != byte[].class;
     }
 }
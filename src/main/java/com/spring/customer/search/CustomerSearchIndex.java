@@ -0,0 +1,441 @@
+package com.spring.customer.search;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.service.CustomerChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over customer name words and the words of the email local part.
+ * <p>
+ * Terms live in a sorted map so a prefix query is a range scan, and every term keeps its
+ * customer ids sorted so a page can be cut without looking at all matches. Typo tolerance
+ * uses single-character deletions (the SymSpell scheme): every name word of three or more
+ * characters is also registered under each of its one-deletion variants, so a query finds
+ * words within one insertion, deletion, substitution or transposition through a handful of
+ * hash lookups instead of scanning the vocabulary. Email words are nearly all unique, so
+ * they are only matched exactly or by prefix to keep the deletion map small.
+ * <p>
+ * Reads are lock-free; writes are serialized, which is fine because they follow the much
+ * rarer create/update/delete calls. The write lock is a ReentrantLock rather than a monitor so
+ * a virtual thread waiting on it does not pin its carrier.
+ */
+@Component
+public class CustomerSearchIndex implements CustomerChangeListener {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CustomerSearchIndex.class);
+
+    static final int EXACT_SCORE = 3;
+    static final int PREFIX_SCORE = 2;
+    static final int FUZZY_SCORE = 1;
+
+    private static final int MIN_FUZZY_LENGTH = 3;
+    private static final int MAX_CANDIDATES = 10_000;
+    private static final char EMAIL_SEPARATOR = '@';
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final ConcurrentSkipListMap<String, Postings> idsByTerm = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Set<String>> termsByDeletion = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Postings> fuzzyTerms = new ConcurrentHashMap<>();
+    // "name words@email words", one compact string per customer
+    private final ConcurrentHashMap<UUID, String> termsById = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final CustomerJdbcRepo customerJdbcRepo;
+
+    public CustomerSearchIndex(CustomerJdbcRepo customerJdbcRepo) {
+        this.customerJdbcRepo = customerJdbcRepo;
+    }
+
+    public record Hits(List<UUID> ids, boolean hasNext) { }
+
+    /** Ids of the customers having one term; the size is tracked because the set's own is O(n). */
+    private static final class Postings {
+        private final ConcurrentSkipListSet<UUID> ids = new ConcurrentSkipListSet<>();
+        private volatile int size;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        customerJdbcRepo.streamAll(1000, this::index);
+        log.info("Search index built with {} customer(s) and {} term(s) in {} ms",
+                termsById.size(), idsByTerm.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void customerSaved(Customer customer) {
+        index(customer);
+    }
+
+    @Override
+    public void customerDeleted(UUID id) {
+        remove(id);
+    }
+
+    public void index(Customer customer) {
+
+        UUID id = customer.getId();
+        String[] nameTerms = tokenize(customer.getName());
+        String[] emailTerms = tokenize(localPart(customer.getEmail()));
+        String terms = String.join(" ", nameTerms) + EMAIL_SEPARATOR + String.join(" ", emailTerms);
+
+        writeLock.lock();
+        try {
+            String previous = termsById.put(id, terms);
+            if (terms.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                unlinkAll(previous, id);
+            }
+            for (String term : nameTerms) {
+                link(term, id, true);
+            }
+            for (String term : emailTerms) {
+                link(term, id, false);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(UUID id) {
+        writeLock.lock();
+        try {
+            String previous = termsById.remove(id);
+            if (previous != null) {
+                unlinkAll(previous, id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return termsById.size();
+    }
+
+    /**
+     * Every query word has to match a term exactly, by prefix or within one edit, scoring
+     * {@value #EXACT_SCORE}, {@value #PREFIX_SCORE} and {@value #FUZZY_SCORE}. Customers are
+     * ranked by the summed score; ties are broken by the matched term and then by id so pages
+     * are stable. A word matching more than {@value #MAX_CANDIDATES} customers is cut off there
+     * when it has to be intersected with other words.
+     */
+    public Hits search(String query, int offset, int limit) {
+
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0) {
+            return new Hits(List.of(), false);
+        }
+
+        int wanted = offset + limit + 1;
+        Map<String, SortedMap<String, Postings>> fuzzy = new HashMap<>();
+        List<UUID> ranked = tokens.length == 1
+                ? new ArrayList<>(collect(tokens[0], fuzzy, wanted).keySet())
+                : intersect(tokens, fuzzy, wanted);
+
+        List<UUID> page = offset < ranked.size()
+                ? ranked.subList(offset, Math.min(ranked.size(), offset + limit))
+                : List.of();
+
+        return new Hits(List.copyOf(page), ranked.size() > offset + limit);
+    }
+
+
+    /**
+     * Customers matching one word, best first: exact term, then prefix terms in term order, then
+     * fuzzy terms, each term's ids in id order. Stops once {@code wanted} customers are found.
+     */
+    private LinkedHashMap<UUID, Integer> collect(String token, Map<String, SortedMap<String, Postings>> fuzzy,
+                                                 int wanted) {
+
+        LinkedHashMap<UUID, Integer> scores = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Postings> entry : idsByTerm.tailMap(token, true).entrySet()) {
+            String term = entry.getKey();
+            if (!term.startsWith(token)) {
+                break;
+            }
+            int score = term.length() == token.length() ? EXACT_SCORE : PREFIX_SCORE;
+            if (addAll(scores, entry.getValue(), score, wanted)) {
+                return scores;
+            }
+        }
+
+        for (Postings postings : fuzzy.computeIfAbsent(token, this::fuzzyMatches).values()) {
+            if (addAll(scores, postings, FUZZY_SCORE, wanted)) {
+                return scores;
+            }
+        }
+
+        return scores;
+    }
+
+    private static boolean addAll(Map<UUID, Integer> scores, Postings postings, int score, int wanted) {
+        for (UUID id : postings.ids) {
+            scores.putIfAbsent(id, score);
+            if (scores.size() >= wanted) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects candidates for the most selective word only and checks the other words against
+     * each candidate's own terms, so a common first name does not cost a large intersection.
+     */
+    private List<UUID> intersect(String[] tokens, Map<String, SortedMap<String, Postings>> fuzzy, int wanted) {
+
+        String driver = tokens[0];
+        long fewest = Long.MAX_VALUE;
+        for (String token : tokens) {
+            long count = countMatches(token, fuzzy, fewest);
+            if (count < fewest) {
+                fewest = count;
+                driver = token;
+            }
+        }
+        if (fewest == 0) {
+            return List.of();
+        }
+
+        Map<UUID, Integer> totals = new HashMap<>();
+        for (Map.Entry<UUID, Integer> candidate : collect(driver, fuzzy, MAX_CANDIDATES).entrySet()) {
+            String terms = termsById.get(candidate.getKey());
+            if (terms == null) {
+                continue;
+            }
+            int total = candidate.getValue();
+            for (String token : tokens) {
+                if (token.equals(driver)) {
+                    continue;
+                }
+                int score = score(token, terms);
+                if (score == 0) {
+                    total = 0;
+                    break;
+                }
+                total += score;
+            }
+            if (total > 0) {
+                totals.put(candidate.getKey(), total);
+            }
+        }
+
+        Comparator<Map.Entry<UUID, Integer>> ranking = Map.Entry.<UUID, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+
+        PriorityQueue<Map.Entry<UUID, Integer>> top = new PriorityQueue<>(ranking.reversed());
+        for (Map.Entry<UUID, Integer> entry : totals.entrySet()) {
+            top.offer(entry);
+            if (top.size() > wanted) {
+                top.poll();
+            }
+        }
+
+        List<Map.Entry<UUID, Integer>> best = new ArrayList<>(top);
+        best.sort(ranking);
+        return best.stream().map(Map.Entry::getKey).toList();
+    }
+
+    /** Number of customers a word matches, counted only until it reaches {@code limit}. */
+    private long countMatches(String token, Map<String, SortedMap<String, Postings>> fuzzy, long limit) {
+
+        long count = 0;
+        for (Map.Entry<String, Postings> entry : idsByTerm.tailMap(token, true).entrySet()) {
+            if (!entry.getKey().startsWith(token) || count >= limit) {
+                break;
+            }
+            count += entry.getValue().size;
+        }
+        if (count >= limit) {
+            return count;
+        }
+        for (Postings postings : fuzzy.computeIfAbsent(token, this::fuzzyMatches).values()) {
+            count += postings.size;
+        }
+        return count;
+    }
+
+    /** Best score of a query word against one customer's indexed terms, 0 when nothing matches. */
+    private static int score(String token, String terms) {
+
+        int best = 0;
+        int separator = terms.indexOf(EMAIL_SEPARATOR);
+        int start = 0;
+        while (start < terms.length()) {
+            int end = start;
+            while (end < terms.length() && terms.charAt(end) != ' ' && terms.charAt(end) != EMAIL_SEPARATOR) {
+                end++;
+            }
+            if (end > start) {
+                String term = terms.substring(start, end);
+                if (term.equals(token)) {
+                    return EXACT_SCORE;
+                } else if (term.startsWith(token)) {
+                    best = PREFIX_SCORE;
+                } else if (best == 0 && end <= separator && token.length() >= MIN_FUZZY_LENGTH
+                        && term.length() >= MIN_FUZZY_LENGTH && distance(token, term) <= 1) {
+                    best = FUZZY_SCORE;
+                }
+            }
+            start = end + 1;
+        }
+        return best;
+    }
+
+    /** Name words within one edit of the query word, excluding the word itself, in term order. */
+    private SortedMap<String, Postings> fuzzyMatches(String token) {
+
+        SortedMap<String, Postings> matches = new TreeMap<>();
+        if (token.length() < MIN_FUZZY_LENGTH) {
+            return matches;
+        }
+
+        Set<String> candidates = new HashSet<>(termsByDeletion.getOrDefault(token, Set.of()));
+        for (String deletion : deletions(token)) {
+            candidates.add(deletion);
+            candidates.addAll(termsByDeletion.getOrDefault(deletion, Set.of()));
+        }
+
+        for (String term : candidates) {
+            Postings postings = fuzzyTerms.get(term);
+            if (postings != null && !term.equals(token) && distance(token, term) <= 1) {
+                matches.put(term, postings);
+            }
+        }
+        return matches;
+    }
+
+    private void link(String term, UUID id, boolean fuzzy) {
+        Postings postings = idsByTerm.computeIfAbsent(term, t -> new Postings());
+        if (postings.ids.add(id)) {
+            postings.size++;
+        }
+        if (fuzzy && term.length() >= MIN_FUZZY_LENGTH && fuzzyTerms.putIfAbsent(term, postings) == null) {
+            for (String deletion : deletions(term)) {
+                termsByDeletion.computeIfAbsent(deletion, d -> ConcurrentHashMap.newKeySet()).add(term);
+            }
+        }
+    }
+
+    private void unlinkAll(String terms, UUID id) {
+        for (String term : terms.split("[ @]")) {
+            if (!term.isEmpty()) {
+                unlink(term, id);
+            }
+        }
+    }
+
+    private void unlink(String term, UUID id) {
+        Postings postings = idsByTerm.get(term);
+        if (postings == null || !postings.ids.remove(id) || --postings.size > 0) {
+            return;
+        }
+        idsByTerm.remove(term);
+        if (fuzzyTerms.remove(term) != null) {
+            for (String deletion : deletions(term)) {
+                Set<String> terms = termsByDeletion.get(deletion);
+                if (terms != null) {
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        termsByDeletion.remove(deletion);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String localPart(String email) {
+        if (email == null) {
+            return null;
+        }
+        int at = email.indexOf('@');
+        return at >= 0 ? email.substring(0, at) : email;
+    }
+
+    /** Lower-cased, accent-free words made of letters and digits, without duplicates. */
+    static String[] tokenize(String text) {
+
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+
+        String normalized = normalize(text);
+        List<String> tokens = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = normalized.substring(start, i);
+                if (!tokens.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens.toArray(String[]::new);
+    }
+
+    private static String normalize(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+                return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+            }
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> deletions(String term) {
+        List<String> deletions = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            deletions.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return deletions;
+    }
+
+    /** Optimal string alignment distance, i.e. Levenshtein plus adjacent transpositions. */
+    static int distance(String a, String b) {
+
+        if (Math.abs(a.length() - b.length()) > 1) {
+            return 2;
+        }
+
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
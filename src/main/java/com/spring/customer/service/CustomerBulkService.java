@@ -0,0 +1,19 @@
+package com.spring.customer.service;
+
+import com.spring.customer.dto.BulkChangeResult;
+import com.spring.customer.dto.BulkCreateResult;
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.CustomerSelection;
+import com.spring.customer.entity.Customer;
+
+import java.util.List;
+
+public interface CustomerBulkService {
+
+    List<BulkCreateResult> createCustomers(List<Customer> customers);
+
+    BulkChangeResult deleteCustomers(CustomerSelection selection);
+
+    BulkChangeResult updateCustomers(CustomerSelection selection, CustomerPatch patch);
+
+}
@@ -0,0 +1,18 @@
+package com.spring.customer.service;
+
+import com.spring.customer.entity.Customer;
+
+import java.util.UUID;
+
+/**
+ * Callback for in-memory structures derived from the customer table. Notifications are
+ * delivered after the writing transaction commits; implementations must copy whatever
+ * they keep because the customer instance may still be mutated by the caller.
+ */
+public interface CustomerChangeListener {
+
+    void customerSaved(Customer customer);
+
+    void customerDeleted(UUID id);
+
+}
@@ -0,0 +1,61 @@
+package com.spring.customer.service;
+
+import com.spring.customer.entity.Customer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+@Component
+public class CustomerChangePublisher {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CustomerChangePublisher.class);
+
+    private final List<CustomerChangeListener> listeners;
+
+    public CustomerChangePublisher(List<CustomerChangeListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    public void saved(Customer customer) {
+        afterCommit(listener -> listener.customerSaved(customer));
+    }
+
+    public void deleted(UUID id) {
+        afterCommit(listener -> listener.customerDeleted(id));
+    }
+
+    private void afterCommit(Consumer<CustomerChangeListener> notification) {
+
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(notification);
+                }
+            });
+        } else {
+            dispatch(notification);
+        }
+    }
+
+    private void dispatch(Consumer<CustomerChangeListener> notification) {
+        for (CustomerChangeListener listener : listeners) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException ex) {
+                log.error("Customer change listener {} failed", listener.getClass().getSimpleName(), ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.spring.customer.service;
+
+import com.spring.customer.dto.ImportJobStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+public interface CustomerImportService {
+
+    ImportJobStatus startImport(InputStream csv) throws IOException;
+    ImportJobStatus getStatus(UUID jobId);
+    void writeRejectedRows(UUID jobId, OutputStream out) throws IOException;
+
+}
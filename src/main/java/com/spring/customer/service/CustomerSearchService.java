@@ -0,0 +1,10 @@
+package com.spring.customer.service;
+
+import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.dto.PageDto;
+
+public interface CustomerSearchService {
+
+    PageDto<CustomerDto> searchCustomers(String query, int page, int size);
+
+}
@@ -1,10 +1,14 @@
 package com.spring.customer.service;
 
+import com.spring.customer.dto.CursorPageDto;
 import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.PageDto;
 import com.spring.customer.entity.Customer;
 import com.spring.customer.enumerator.Membership;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface CustomerService {
@@ -14,7 +18,13 @@ public interface CustomerService {
     List<CustomerDto> getCustomerByName(String name);
     CustomerDto getCustomerByEmail(String email);
     CustomerDto updateCustomer(CustomerDto customerDto,UUID id);
+    CustomerDto updateCustomer(CustomerDto customerDto, UUID id, Long expectedVersion);
+    CustomerDto patchCustomer(UUID id, CustomerPatch patch, Long expectedVersion, boolean returnRepresentation);
+    Long getCustomerVersion(UUID id);
     void deleteCustomer(UUID id);
+    PageDto<CustomerDto> getCustomersByTier(Membership tier, int page, int size);
+    Map<Membership, Long> countCustomersByTier();
+    CursorPageDto<CustomerDto> getCustomers(UUID after, Integer size);
      Membership calculateTier(Customer customer);
 
 }
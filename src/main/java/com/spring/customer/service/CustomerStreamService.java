@@ -0,0 +1,15 @@
+package com.spring.customer.service;
+
+import com.spring.customer.dto.CustomerExportFilter;
+import com.spring.customer.enumerator.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface CustomerStreamService {
+
+    void writeNdjson(OutputStream out) throws IOException;
+
+    void export(CustomerExportFilter filter, ExportFormat format, OutputStream out) throws IOException;
+
+}
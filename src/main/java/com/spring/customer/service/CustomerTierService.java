@@ -0,0 +1,18 @@
+package com.spring.customer.service;
+
+import com.spring.customer.dto.TierEvaluationResult;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.tier.TierColumns;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface CustomerTierService {
+
+    TierEvaluationResult evaluateTiers(List<UUID> ids);
+
+    TierEvaluationResult evaluateAllTiers();
+
+    Membership[] evaluate(TierColumns columns);
+
+}
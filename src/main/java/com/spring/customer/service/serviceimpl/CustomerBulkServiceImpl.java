@@ -0,0 +1,330 @@
+package com.spring.customer.service.serviceimpl;
+
+import com.spring.customer.cache.CustomerEmailFilter;
+import com.spring.customer.dto.BulkChangeResult;
+import com.spring.customer.dto.BulkCreateResult;
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.CustomerSelection;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.BulkItemStatus;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.exceptionhandling.FeatureUnavailableException;
+import com.spring.customer.mapper.CustomerMapper;
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.repository.CustomerRepo;
+import com.spring.customer.service.CustomerBulkService;
+import com.spring.customer.service.CustomerChangePublisher;
+import com.spring.customer.service.CustomerService;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class CustomerBulkServiceImpl implements CustomerBulkService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CustomerBulkServiceImpl.class);
+
+    private static final String DUPLICATE_EMAIL = "Duplicate or invalid data (email already exists)";
+
+    private final CustomerRepo customerRepo;
+    private final CustomerJdbcRepo customerJdbcRepo;
+    private final CustomerShards customerShards;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerService customerService;
+    private final CustomerMapper customerMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final CustomerChangePublisher customerChangePublisher;
+    private final TierCalculator tierCalculator;
+    private final TierChangeOutbox tierChangeOutbox;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public CustomerBulkServiceImpl(CustomerRepo customerRepo,
+                                   CustomerJdbcRepo customerJdbcRepo,
+                                   CustomerShards customerShards,
+                                   CustomerEmailFilter customerEmailFilter,
+                                   CustomerService customerService,
+                                   CustomerMapper customerMapper,
+                                   Validator validator,
+                                   TransactionTemplate transactionTemplate,
+                                   CustomerChangePublisher customerChangePublisher,
+                                   TierCalculator tierCalculator,
+                                   TierChangeOutbox tierChangeOutbox,
+                                   @Value("${customer.bulk.chunk-size:500}") int chunkSize,
+                                   @Value("${customer.bulk.max-items:10000}") int maxItems) {
+        this.customerRepo = customerRepo;
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.customerShards = customerShards;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerService = customerService;
+        this.customerMapper = customerMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.customerChangePublisher = customerChangePublisher;
+        this.tierCalculator = tierCalculator;
+        this.tierChangeOutbox = tierChangeOutbox;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    @Override
+    public List<BulkCreateResult> createCustomers(List<Customer> customers) {
+
+        // chunks are saved in one transaction, which cannot span shards
+        if (customerShards.isSharded()) {
+            throw new FeatureUnavailableException("Bulk create is not available with sharding enabled");
+        }
+
+        if (customers.size() > maxItems) {
+            throw new IllegalArgumentException(
+                    "Bulk request exceeds the limit of " + maxItems + " customers");
+        }
+
+        log.info("Request received to bulk create {} customer(s)", customers.size());
+
+        BulkCreateResult[] results = new BulkCreateResult[customers.size()];
+        Set<String> requestEmails = new HashSet<>();
+        List<Integer> accepted = new ArrayList<>(customers.size());
+
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+
+            String error = validate(customer);
+            if (error != null) {
+                results[i] = BulkCreateResult.rejected(i, BulkItemStatus.INVALID, error);
+            } else if (!requestEmails.add(customer.getEmail())) {
+                results[i] = BulkCreateResult.rejected(i, BulkItemStatus.DUPLICATE,
+                        "Duplicate email within the request: " + customer.getEmail());
+            } else {
+                customer.setId(null);
+                customer.setTier(customerService.calculateTier(customer));
+                accepted.add(i);
+            }
+        }
+
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> saveChunk(customers, chunk, results));
+            } catch (DataIntegrityViolationException ex) {
+                log.warn("Batch insert of {} customer(s) failed, retrying one by one", chunk.size());
+                saveIndividually(customers, chunk, results);
+            }
+        }
+
+        log.info("Bulk create finished. Created: {}, Rejected: {}",
+                Arrays.stream(results).filter(r -> r.getStatus() == BulkItemStatus.CREATED).count(),
+                Arrays.stream(results).filter(r -> r.getStatus() != BulkItemStatus.CREATED).count());
+
+        return Arrays.asList(results);
+    }
+
+
+    /**
+     * Deletes the selected customers with one DELETE per chunk. Each statement returns the ids it
+     * removed, so the caches and the search index are told without reading the rows first.
+     */
+    @Override
+    public BulkChangeResult deleteCustomers(CustomerSelection selection) {
+
+        checkSelection(selection, "Bulk delete");
+        log.info("Request received to bulk delete customers, ids: {}, criteria: {}",
+                selection.hasIds() ? selection.getIds().size() : 0, selection.hasCriteria());
+
+        BulkChangeResult result = inChunks(selection, (chunk, after) -> {
+            List<UUID> deleted = customerJdbcRepo.deleteSelected(chunk, after, chunkSize);
+            deleted.forEach(customerChangePublisher::deleted);
+            return deleted;
+        });
+
+        log.info("Bulk delete finished. Deleted: {} in {} statement(s)", result.getAffected(), result.getStatements());
+        return result;
+    }
+
+
+    /**
+     * Sets annualSpend and/or lastPurchaseDate on the selected customers with one UPDATE per
+     * chunk, which also recalculates the tier and bumps the version of every row it changes.
+     * With the outbox on, each chunk runs in a transaction that first locks the chunk and reads
+     * its tiers, so the transitions of the update are recorded with it.
+     */
+    @Override
+    public BulkChangeResult updateCustomers(CustomerSelection selection, CustomerPatch patch) {
+
+        checkSelection(selection, "Bulk update");
+        if (patch.isNameSet() || patch.isEmailSet()) {
+            throw new IllegalArgumentException("Bulk update can only set annualSpend and lastPurchaseDate");
+        }
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Bulk update needs at least one field to set");
+        }
+        log.info("Request received to bulk update customers, ids: {}, criteria: {}",
+                selection.hasIds() ? selection.getIds().size() : 0, selection.hasCriteria());
+
+        BulkChangeResult result = inChunks(selection, (chunk, after) -> {
+            List<Customer> updated = tierChangeOutbox.isEnabled()
+                    ? transactionTemplate.execute(status -> updateRecorded(chunk, after, patch))
+                    : customerJdbcRepo.updateSelected(chunk, after, chunkSize, patch, tierCalculator);
+            updated.forEach(customerChangePublisher::saved);
+            return updated.stream().map(Customer::getId).toList();
+        });
+
+        log.info("Bulk update finished. Updated: {} in {} statement(s)", result.getAffected(), result.getStatements());
+        return result;
+    }
+
+
+    private List<Customer> updateRecorded(CustomerSelection chunk, UUID after, CustomerPatch patch) {
+
+        Map<UUID, Membership> previousTiers = customerJdbcRepo.lockSelectedTiers(chunk, after, chunkSize);
+        if (previousTiers.isEmpty()) {
+            return List.of();
+        }
+        List<Customer> updated = customerJdbcRepo.updateSelected(chunk.withIds(new ArrayList<>(previousTiers.keySet())),
+                null, previousTiers.size(), patch, tierCalculator);
+        tierChangeOutbox.record(previousTiers, updated);
+        return updated;
+    }
+
+
+    /** One statement of a bulk change: the ids it changed, in id order. */
+    private interface ChunkStatement {
+        List<UUID> run(CustomerSelection chunk, UUID after);
+    }
+
+
+    /**
+     * Runs the statement over the selection chunk by chunk: listed ids in slices of the chunk
+     * size, criteria by id ranges, continuing after the last id changed. Every statement commits
+     * on its own, so a large purge never holds its locks for long.
+     */
+    private BulkChangeResult inChunks(CustomerSelection selection, ChunkStatement statement) {
+
+        long affected = 0;
+        int statements = 0;
+
+        if (selection.hasIds()) {
+            List<UUID> ids = selection.getIds().stream().distinct().toList();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                affected += statement.run(selection.withIds(ids.subList(from, Math.min(from + chunkSize, ids.size()))), null).size();
+                statements++;
+            }
+            return new BulkChangeResult(affected, statements);
+        }
+
+        UUID after = null;
+        List<UUID> changed;
+        do {
+            changed = statement.run(selection, after);
+            statements++;
+            affected += changed.size();
+            if (!changed.isEmpty()) {
+                after = changed.get(changed.size() - 1);
+            }
+        } while (changed.size() == chunkSize);
+
+        return new BulkChangeResult(affected, statements);
+    }
+
+
+    private void checkSelection(CustomerSelection selection, String operation) {
+
+        // one statement covers a chunk on one database, which sharding does not give
+        if (customerShards.isSharded()) {
+            throw new FeatureUnavailableException(operation + " is not available with sharding enabled");
+        }
+        if (selection == null || (!selection.hasIds() && !selection.hasCriteria() && !selection.isAll())) {
+            throw new IllegalArgumentException(operation + " needs ids, criteria or \"all\": true");
+        }
+        if (selection.hasIds() && selection.getIds().size() > maxItems) {
+            throw new IllegalArgumentException(
+                    operation + " exceeds the limit of " + maxItems + " ids");
+        }
+        if (selection.getMinSpend() != null && selection.getMaxSpend() != null
+                && selection.getMinSpend().compareTo(selection.getMaxSpend()) > 0) {
+            throw new IllegalArgumentException("minSpend must not be greater than maxSpend");
+        }
+    }
+
+
+    private void saveChunk(List<Customer> customers, List<Integer> chunk, BulkCreateResult[] results) {
+
+        // only emails the filter cannot rule out are looked up
+        List<String> candidates = chunk.stream()
+                .map(i -> customers.get(i).getEmail())
+                .filter(customerEmailFilter::mightContain)
+                .toList();
+        Set<String> existing = candidates.isEmpty()
+                ? Set.of() : new HashSet<>(customerRepo.findExistingEmails(candidates));
+
+        List<Integer> toSave = new ArrayList<>(chunk.size());
+        for (Integer i : chunk) {
+            if (existing.contains(customers.get(i).getEmail())) {
+                results[i] = BulkCreateResult.rejected(i, BulkItemStatus.DUPLICATE, DUPLICATE_EMAIL);
+            } else {
+                toSave.add(i);
+            }
+        }
+
+        List<Customer> saved = customerRepo.saveAll(toSave.stream().map(customers::get).toList());
+        customerRepo.flush();
+        tierChangeOutbox.record(Map.of(), saved);
+
+        for (int j = 0; j < saved.size(); j++) {
+            int index = toSave.get(j);
+            results[index] = BulkCreateResult.created(index, customerMapper.toDto(saved.get(j)));
+            customerChangePublisher.saved(saved.get(j));
+        }
+    }
+
+
+    private void saveIndividually(List<Customer> customers, List<Integer> chunk, BulkCreateResult[] results) {
+
+        for (Integer i : chunk) {
+            Customer customer = customers.get(i);
+            customer.setId(null);
+            try {
+                Customer saved = transactionTemplate.execute(status -> {
+                    Customer created = customerRepo.saveAndFlush(customer);
+                    tierChangeOutbox.record(created.getId(), null, created.getTier());
+                    return created;
+                });
+                results[i] = BulkCreateResult.created(i, customerMapper.toDto(saved));
+                customerChangePublisher.saved(saved);
+            } catch (DataIntegrityViolationException ex) {
+                results[i] = BulkCreateResult.rejected(i, BulkItemStatus.DUPLICATE, DUPLICATE_EMAIL);
+            }
+        }
+    }
+
+
+    private String validate(Customer customer) {
+
+        if (customer == null) {
+            return "Customer is required";
+        }
+
+        Set<ConstraintViolation<Customer>> violations = validator.validate(customer);
+        if (violations.isEmpty()) {
+            return null;
+        }
+
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
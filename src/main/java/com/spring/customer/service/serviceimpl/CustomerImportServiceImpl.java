@@ -0,0 +1,416 @@
+package com.spring.customer.service.serviceimpl;
+
+import com.spring.customer.cache.CustomerCache;
+import com.spring.customer.csv.CsvFormatException;
+import com.spring.customer.csv.CsvRowReader;
+import com.spring.customer.csv.CsvRowWriter;
+import com.spring.customer.dto.ImportJobStatus;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.ImportJobState;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.exceptionhandling.FeatureUnavailableException;
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.service.CustomerChangePublisher;
+import com.spring.customer.service.CustomerImportService;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Imports customers from CSV files of any size. The upload is spooled to disk and the request
+ * returns at once; a background job then parses the file record by record, validates every row
+ * against the {@link Customer} constraints and upserts the valid ones by email, one JDBC batch
+ * and one transaction per chunk. Rejected rows go to a CSV file with the reason in front, and
+ * so does a record that is not CSV (a stray quote, an over-long line): only that record is
+ * lost, reading goes on at the next line.
+ * <p>
+ * The header names the columns (name and email are required, annualSpend and lastPurchaseDate
+ * optional, any other column is ignored), so a file from the export can be imported as is.
+ */
+@Service
+public class CustomerImportServiceImpl implements CustomerImportService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CustomerImportServiceImpl.class);
+
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+    private static final int IO_BUFFER = 64 * 1024;
+
+    private final CustomerJdbcRepo customerJdbcRepo;
+    private final CustomerShards customerShards;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final TierCalculator tierCalculator;
+    private final CustomerCache customerCache;
+    private final CustomerChangePublisher customerChangePublisher;
+    private final TierChangeOutbox tierChangeOutbox;
+    private final TaskExecutor taskExecutor;
+    private final Path directory;
+    private final int chunkSize;
+    private final int retainedJobs;
+    private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public CustomerImportServiceImpl(CustomerJdbcRepo customerJdbcRepo,
+                                     CustomerShards customerShards,
+                                     Validator validator,
+                                     TransactionTemplate transactionTemplate,
+                                     TierCalculator tierCalculator,
+                                     CustomerCache customerCache,
+                                     CustomerChangePublisher customerChangePublisher,
+                                     TierChangeOutbox tierChangeOutbox,
+                                     @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                     @Value("${customer.import.directory:${java.io.tmpdir}/customer-import}") Path directory,
+                                     @Value("${customer.import.chunk-size:1000}") int chunkSize,
+                                     @Value("${customer.import.retained-jobs:100}") int retainedJobs) {
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.customerShards = customerShards;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.tierCalculator = tierCalculator;
+        this.customerCache = customerCache;
+        this.customerChangePublisher = customerChangePublisher;
+        this.tierChangeOutbox = tierChangeOutbox;
+        this.taskExecutor = taskExecutor;
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        this.retainedJobs = retainedJobs;
+    }
+
+    @Override
+    public ImportJobStatus startImport(InputStream csv) throws IOException {
+
+        // the upsert matches rows by email, which does not say which shard a row belongs to
+        if (customerShards.isSharded()) {
+            throw new FeatureUnavailableException("CSV import is not available with sharding enabled");
+        }
+
+        Files.createDirectories(directory);
+        ImportJob job = new ImportJob(UUID.randomUUID(), directory);
+
+        long bytes = Files.copy(csv, job.spoolFile);
+        log.info("Import job {} queued, {} byte(s) spooled", job.id, bytes);
+
+        jobs.put(job.id, job);
+        evictFinishedJobs();
+        taskExecutor.execute(() -> run(job));
+
+        return job.status();
+    }
+
+    @Override
+    public ImportJobStatus getStatus(UUID jobId) {
+
+        return job(jobId).status();
+    }
+
+    @Override
+    public void writeRejectedRows(UUID jobId, OutputStream out) throws IOException {
+
+        ImportJob job = job(jobId);
+        if (Files.exists(job.rejectedFile)) {
+            Files.copy(job.rejectedFile, out);
+        }
+    }
+
+
+    private void run(ImportJob job) {
+
+        job.startedAt = Instant.now();
+        job.state = ImportJobState.RUNNING;
+        log.info("Import job {} started", job.id);
+
+        try (BufferedReader reader = new BufferedReader(
+                     Files.newBufferedReader(job.spoolFile, StandardCharsets.UTF_8), IO_BUFFER);
+             BufferedWriter rejectedOut = new BufferedWriter(
+                     Files.newBufferedWriter(job.rejectedFile, StandardCharsets.UTF_8), IO_BUFFER)) {
+
+            CsvRowReader csv = new CsvRowReader(reader, MAX_RECORD_LENGTH);
+            CsvRowWriter rejected = new CsvRowWriter(rejectedOut);
+
+            List<String> header = csv.next();
+            if (header == null) {
+                throw new IllegalArgumentException("The file is empty");
+            }
+            Columns columns = Columns.of(header);
+            rejected.field("record").field("error").fields(header).endRow();
+
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            List<String> record;
+            while ((record = nextRecord(job, csv, rejected)) != null) {
+                job.rowsRead++;
+                Row row = new Row(csv.getRecordNumber(), record);
+                row.error = parse(row, columns);
+                if (row.error != null) {
+                    reject(job, rejected, row);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    write(job, rejected, chunk);
+                    chunk.clear();
+                }
+            }
+            write(job, rejected, chunk);
+
+            job.finish(ImportJobState.COMPLETED, null);
+            log.info("Import job {} completed. Read: {}, Accepted: {}, Rejected: {}, rows/s: {}",
+                    job.id, job.rowsRead, job.rowsAccepted, job.rowsRejected, job.status().getRowsPerSecond());
+
+        } catch (Exception ex) {
+            job.finish(ImportJobState.FAILED, ex.getMessage());
+            log.error("Import job {} failed after {} row(s)", job.id, job.rowsRead, ex);
+        } finally {
+            try {
+                Files.deleteIfExists(job.spoolFile);
+            } catch (IOException ex) {
+                log.warn("Could not delete spool file {}", job.spoolFile, ex);
+            }
+        }
+    }
+
+    // a record that is not CSV is rejected with the line it started on, and reading goes on after that line
+    private static List<String> nextRecord(ImportJob job, CsvRowReader csv, CsvRowWriter rejected) throws IOException {
+
+        while (true) {
+            try {
+                return csv.next();
+            } catch (CsvFormatException ex) {
+                job.rowsRead++;
+                Row row = new Row(ex.getRecordNumber(), List.of(ex.getLine()));
+                row.error = ex.getReason();
+                reject(job, rejected, row);
+            }
+        }
+    }
+
+    private String parse(Row row, Columns columns) {
+
+        if (row.record.size() != columns.count) {
+            return "Expected " + columns.count + " fields, found " + row.record.size();
+        }
+
+        BigDecimal annualSpend;
+        try {
+            annualSpend = columns.annualSpend < 0 || row.record.get(columns.annualSpend).isBlank()
+                    ? null : new BigDecimal(row.record.get(columns.annualSpend).trim());
+        } catch (NumberFormatException ex) {
+            return "annualSpend: not a number";
+        }
+
+        LocalDate lastPurchaseDate;
+        try {
+            lastPurchaseDate = columns.lastPurchaseDate < 0 || row.record.get(columns.lastPurchaseDate).isBlank()
+                    ? null : LocalDate.parse(row.record.get(columns.lastPurchaseDate).trim());
+        } catch (DateTimeParseException ex) {
+            return "lastPurchaseDate: expected yyyy-MM-dd";
+        }
+
+        Customer customer = new Customer(null, row.record.get(columns.name), row.record.get(columns.email),
+                annualSpend, lastPurchaseDate);
+
+        Set<ConstraintViolation<Customer>> violations = validator.validate(customer);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+
+        customer.setTier(tierCalculator.calculate(customer));
+        row.customer = customer;
+        return null;
+    }
+
+    private void write(ImportJob job, CsvRowWriter rejected, List<Row> chunk) throws IOException {
+
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsert(chunk));
+            job.rowsAccepted += chunk.size();
+            log.debug("Import job {} upserted {} row(s)", job.id, chunk.size());
+        } catch (DataAccessException ex) {
+            log.warn("Import job {}: batch upsert of {} row(s) failed, retrying one by one", job.id, chunk.size());
+            for (Row row : chunk) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> upsert(List.of(row)));
+                    job.rowsAccepted++;
+                } catch (DataAccessException rowEx) {
+                    row.error = "Not stored: " + NestedExceptionUtils.getMostSpecificCause(rowEx).getMessage();
+                    reject(job, rejected, row);
+                }
+            }
+        }
+    }
+
+    // the rows are read back so the cache and the change listeners see the stored ids; with the
+    // outbox on, the tiers of known emails are locked and read first so the transitions are recorded
+    private void upsert(List<Row> rows) {
+
+        List<String> emails = rows.stream().map(row -> row.customer.getEmail()).toList();
+        Map<String, Membership> previousTiers = tierChangeOutbox.isEnabled()
+                ? customerJdbcRepo.lockTiersByEmail(emails) : Map.of();
+
+        customerJdbcRepo.upsertByEmail(rows.stream().map(row -> row.customer).toList());
+
+        List<Customer> stored = customerJdbcRepo.findByEmails(emails);
+        if (tierChangeOutbox.isEnabled()) {
+            Map<UUID, Membership> previousById = new HashMap<>();
+            for (Customer customer : stored) {
+                if (previousTiers.containsKey(customer.getEmail())) {
+                    previousById.put(customer.getId(), previousTiers.get(customer.getEmail()));
+                }
+            }
+            tierChangeOutbox.record(previousById, stored);
+        }
+        for (Customer customer : stored) {
+            customerCache.invalidate(customer.getId());
+            customerChangePublisher.saved(customer);
+        }
+    }
+
+    private static void reject(ImportJob job, CsvRowWriter rejected, Row row) throws IOException {
+
+        job.rowsRejected++;
+        rejected.field(Long.toString(row.recordNumber)).field(row.error).fields(row.record).endRow();
+    }
+
+    private ImportJob job(UUID jobId) {
+
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new EntityNotFoundException("Import job not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    private void evictFinishedJobs() {
+
+        if (jobs.size() <= retainedJobs) {
+            return;
+        }
+
+        List<ImportJob> finished = jobs.values().stream()
+                .filter(job -> job.finishedAt != null)
+                .sorted(Comparator.comparing(job -> job.finishedAt))
+                .toList();
+
+        for (int i = 0; i < finished.size() && jobs.size() > retainedJobs; i++) {
+            ImportJob job = finished.get(i);
+            jobs.remove(job.id);
+            try {
+                Files.deleteIfExists(job.rejectedFile);
+            } catch (IOException ex) {
+                log.warn("Could not delete rejected-row file {}", job.rejectedFile, ex);
+            }
+        }
+    }
+
+
+    /** Positions of the known columns in the header, -1 when absent. */
+    private record Columns(int count, int name, int email, int annualSpend, int lastPurchaseDate) {
+
+        static Columns of(List<String> header) {
+
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                positions.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+
+            Columns columns = new Columns(header.size(),
+                    positions.getOrDefault("name", -1),
+                    positions.getOrDefault("email", -1),
+                    positions.getOrDefault("annualspend", -1),
+                    positions.getOrDefault("lastpurchasedate", -1));
+
+            if (columns.name < 0 || columns.email < 0) {
+                throw new IllegalArgumentException("The header must name the columns name and email, found: " + header);
+            }
+            return columns;
+        }
+    }
+
+    private static final class Row {
+
+        private final long recordNumber;
+        private final List<String> record;
+        private Customer customer;
+        private String error;
+
+        private Row(long recordNumber, List<String> record) {
+            this.recordNumber = recordNumber;
+            this.record = record;
+        }
+    }
+
+    /** Written by the job thread only; volatile so status requests see the progress. */
+    private static final class ImportJob {
+
+        private final UUID id;
+        private final Path spoolFile;
+        private final Path rejectedFile;
+        private volatile ImportJobState state = ImportJobState.QUEUED;
+        private volatile long rowsRead;
+        private volatile long rowsAccepted;
+        private volatile long rowsRejected;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private ImportJob(UUID id, Path directory) {
+            this.id = id;
+            this.spoolFile = directory.resolve(id + ".csv");
+            this.rejectedFile = directory.resolve(id + "-rejected.csv");
+        }
+
+        private void finish(ImportJobState finalState, String message) {
+            finishedAt = Instant.now();
+            error = message;
+            state = finalState;
+        }
+
+        private ImportJobStatus status() {
+
+            Instant from = startedAt;
+            Instant until = finishedAt != null ? finishedAt : Instant.now();
+            long rowsPerSecond = 0;
+            if (from != null) {
+                long millis = Math.max(1, until.toEpochMilli() - from.toEpochMilli());
+                rowsPerSecond = rowsRead * 1000 / millis;
+            }
+
+            return new ImportJobStatus(id, state, rowsRead, rowsAccepted, rowsRejected,
+                    rowsPerSecond, from, finishedAt, error);
+        }
+    }
+}
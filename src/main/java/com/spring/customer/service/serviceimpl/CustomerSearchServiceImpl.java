@@ -0,0 +1,86 @@
+package com.spring.customer.service.serviceimpl;
+
+import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.dto.PageDto;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.mapper.CustomerMapper;
+import com.spring.customer.repository.CustomerRepo;
+import com.spring.customer.search.CustomerSearchIndex;
+import com.spring.customer.service.CustomerSearchService;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class CustomerSearchServiceImpl implements CustomerSearchService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CustomerSearchServiceImpl.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_QUERY_LENGTH = 100;
+
+    private final CustomerSearchIndex customerSearchIndex;
+    private final CustomerRepo customerRepo;
+    private final CustomerShards customerShards;
+    private final CustomerMapper customerMapper;
+    private final TierCalculator tierCalculator;
+
+    public CustomerSearchServiceImpl(CustomerSearchIndex customerSearchIndex, CustomerRepo customerRepo,
+                                     CustomerShards customerShards, CustomerMapper customerMapper,
+                                     TierCalculator tierCalculator) {
+        this.customerSearchIndex = customerSearchIndex;
+        this.customerRepo = customerRepo;
+        this.customerShards = customerShards;
+        this.customerMapper = customerMapper;
+        this.tierCalculator = tierCalculator;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageDto<CustomerDto> searchCustomers(String query, int page, int size) {
+
+        if (query == null || query.isBlank() || query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException(
+                    "q must not be blank and at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(
+                    "page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        log.info("Searching customers for: {}, page: {}, size: {}", query, page, size);
+
+        CustomerSearchIndex.Hits hits = customerSearchIndex.search(query, page * size, size);
+
+        // the index ranks, the table stays the source of truth for the returned fields
+        Map<UUID, Customer> byId = customerShards.onEveryShard(() -> customerRepo.findAllById(hits.ids())
+                        .stream()
+                        .filter(customer -> customerShards.owns(customer.getId()))
+                        .toList())
+                .stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+
+        List<CustomerDto> content = hits.ids()
+                .stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(customer -> customerMapper.toDto(customer, tierCalculator.calculate(customer)))
+                .toList();
+
+        log.debug("Search for: {} returned {} customer(s)", query, content.size());
+
+        return new PageDto<>(content, page, size, hits.hasNext());
+    }
+}
@@ -1,35 +1,86 @@
 package com.spring.customer.service.serviceimpl;
 
+import com.spring.customer.cache.CustomerCache;
+import com.spring.customer.cache.CustomerEmailFilter;
+import com.spring.customer.datasource.ReadWriteRoutingDataSource;
+import com.spring.customer.dto.CursorPageDto;
 import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.dto.CustomerPatch;
 import com.spring.customer.entity.Customer;
 import com.spring.customer.enumerator.Membership;
 import com.spring.customer.exceptionhandling.CustomerNotFoundException;
+import com.spring.customer.exceptionhandling.DuplicateEmailException;
+import com.spring.customer.exceptionhandling.PreconditionFailedException;
+import com.spring.customer.mapper.CustomerMapper;
+import com.spring.customer.metrics.CustomerMetrics;
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.repository.CustomerJdbcRepo;
 import com.spring.customer.repository.CustomerRepo;
+import com.spring.customer.dto.PageDto;
+import com.spring.customer.service.CustomerChangePublisher;
 import com.spring.customer.service.CustomerService;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.touch.CustomerTouchBuffer;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
 
 public class CustomerServiceImpl implements CustomerService {
     private final CustomerRepo customerRepo;
-    private final ModelMapper modelMapper;
+    private final CustomerJdbcRepo customerJdbcRepo;
+    private final CustomerShards customerShards;
+    private final CustomerMapper customerMapper;
+    private final CustomerCache customerCache;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerTouchBuffer customerTouchBuffer;
+    private final TierCalculator tierCalculator;
+    private final CustomerChangePublisher customerChangePublisher;
+    private final TierChangeOutbox tierChangeOutbox;
+    private final CustomerMetrics customerMetrics;
+    private final int defaultListingPageSize;
+
+    private static final int MAX_PAGE_SIZE = 1000;
 
     private static final Logger log =
             LoggerFactory.getLogger(CustomerServiceImpl.class);
 
-    public CustomerServiceImpl(CustomerRepo customerRepo, ModelMapper modelMapper) {
+    public CustomerServiceImpl(CustomerRepo customerRepo, CustomerJdbcRepo customerJdbcRepo, CustomerShards customerShards, CustomerMapper customerMapper,
+                               CustomerCache customerCache, CustomerEmailFilter customerEmailFilter,
+                               CustomerTouchBuffer customerTouchBuffer,
+                               TierCalculator tierCalculator, CustomerChangePublisher customerChangePublisher,
+                               TierChangeOutbox tierChangeOutbox, CustomerMetrics customerMetrics,
+                               @Value("${customer.listing.default-page-size:100}") int defaultListingPageSize) {
         this.customerRepo = customerRepo;
-        this.modelMapper = modelMapper;
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.customerShards = customerShards;
+        this.customerMapper = customerMapper;
+        this.customerCache = customerCache;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerTouchBuffer = customerTouchBuffer;
+        this.tierCalculator = tierCalculator;
+        this.customerChangePublisher = customerChangePublisher;
+        this.tierChangeOutbox = tierChangeOutbox;
+        this.customerMetrics = customerMetrics;
+        this.defaultListingPageSize = defaultListingPageSize;
     }
 
     @Override
@@ -37,14 +88,28 @@ public class CustomerServiceImpl implements CustomerService {
 
         log.info("Request received to create customer. Email: {}", customer.getEmail());
 
-        Customer savedCustomer = customerRepo.save(customer);
+        ensureEmailAvailable(customer.getEmail(), null);
+
+        // a client supplied id is ignored; the new id decides the shard
+        UUID id = UUID.randomUUID();
+        customer.setId(id);
+        long stamp = customerCache.stamp();
+
+        customer.setTier(calculateTier(customer));
+        Customer savedCustomer = customerShards.inTransactionOnShardOf(id, () -> {
+            customerShards.claimEmail(customer.getEmail(), id);
+            Customer saved = customerRepo.save(customer);
+            tierChangeOutbox.record(id, null, saved.getTier());
+            return saved;
+        });
+        customerCache.put(savedCustomer, stamp);
+        customerChangePublisher.saved(savedCustomer);
 
         //int x = 10 / 0;
 
         log.debug("Customer saved successfully with id: {}", savedCustomer.getId());
 
-        CustomerDto customerDto = modelMapper.map(savedCustomer, CustomerDto.class);
-        customerDto.setTier(calculateTier(savedCustomer));
+        CustomerDto customerDto = customerMapper.toDto(savedCustomer, savedCustomer.getTier());
 
         log.info("Customer created successfully. Id: {}, Tier: {}",
                 customerDto.getId(), customerDto.getTier());
@@ -58,26 +123,37 @@ public class CustomerServiceImpl implements CustomerService {
 
         log.info("Fetching customer with id: {}", id);
 
-        Customer customer = customerRepo.findById(id)
+        Customer cached = customerCache.getById(id);
+        if (cached != null && tierCalculator.today().equals(cached.getLastPurchaseDate())) {
+            log.debug("Serving customer id: {} from cache", id);
+            return toDto(cached);
+        }
+        if (customerCache.isMissing(id)) {
+            log.debug("Customer id: {} is known to be missing", id);
+            throw new CustomerNotFoundException("Customer not found with id: " + id);
+        }
+        long stamp = customerCache.stamp();
+
+        // a miss is only cached once the primary agrees; a replica may not have the row yet
+        Customer customer = ReadWriteRoutingDataSource.confirmedOnPrimary(
+                        () -> customerShards.onShardOf(id, () -> customerRepo.findById(id)))
                 .orElseThrow(() -> {
-                    log.error("Customer not found with id: {}", id);
+                    log.debug("Customer not found with id: {}", id);
+                    customerCache.putMissing(id, stamp);
                     return new CustomerNotFoundException(
                             "Customer not found with id: " + id
                     );
                 });
 
-        log.info("Customer found with id: {}", id);
-
-        customer.setLastPurchaseDate(LocalDate.now());
-        log.debug("Updated lastPurchaseDate for customer id: {}", id);
+        log.debug("Customer found with id: {}", id);
 
-        Customer updatedCustomer = customerRepo.save(customer);
-        log.info("Customer updated successfully with id: {}", id);
+        Customer updatedCustomer = customerTouchBuffer.touch(customer);
+        customerCache.put(updatedCustomer, stamp);
+        log.debug("Customer touched successfully with id: {}", id);
 
-        CustomerDto response = modelMapper.map(updatedCustomer, CustomerDto.class);
-        response.setTier(calculateTier(customer));
+        CustomerDto response = customerMapper.toDto(updatedCustomer, calculateTier(updatedCustomer));
 
-        log.info("Customer response prepared for id: {}, tier: {}",
+        log.debug("Customer response prepared for id: {}, tier: {}",
                 id, response.getTier());
 
         return response;
@@ -89,23 +165,14 @@ public class CustomerServiceImpl implements CustomerService {
 
         log.info("Fetching customers with name: {}", name);
 
-        List<CustomerDto> customerDtoList = customerRepo.findAllByName(name)
+        List<CustomerDto> customerDtoList = customerShards.onEveryShard(() -> owned(customerRepo.findAllByName(name)))
                 .stream()
-                .map(customer -> {
-                    log.debug("Mapping customer entity with id: {}", customer.getId());
-
-                    CustomerDto dto = modelMapper.map(customer, CustomerDto.class);
-                    dto.setTier(calculateTier(customer));
-
-                    log.debug("Calculated tier {} for customer id: {}",
-                            dto.getTier(), customer.getId());
-
-                    return dto;
-                })
+                .flatMap(List::stream)
+                .map(customer -> customerMapper.toDto(customer, calculateTier(customer)))
                 .toList();
 
         if (customerDtoList.isEmpty()) {
-            log.warn("No customers found with name: {}", name);
+            log.debug("No customers found with name: {}", name);
             throw new CustomerNotFoundException(
                     "Customer not found with name: " + name
             );
@@ -123,9 +190,23 @@ public class CustomerServiceImpl implements CustomerService {
 
         log.info("Fetching customer with email: {}", email);
 
-        Customer customer = customerRepo.findByEmail(email)
+        Customer cached = customerCache.getByEmail(email);
+        if (cached != null && tierCalculator.today().equals(cached.getLastPurchaseDate())) {
+            log.debug("Serving customer email: {} from cache", email);
+            return toDto(cached);
+        }
+        if (customerCache.isMissingEmail(email)) {
+            log.debug("Customer email: {} is known to be missing", email);
+            throw new CustomerNotFoundException("Customer not found with email: " + email);
+        }
+        long stamp = customerCache.stamp();
+
+        Customer customer = (customerShards.isSharded()
+                ? findByEmailInIndex(email)
+                : ReadWriteRoutingDataSource.confirmedOnPrimary(() -> customerRepo.findByEmail(email)))
                 .orElseThrow(() -> {
-                    log.warn("Customer not found with email: {}", email);
+                    log.debug("Customer not found with email: {}", email);
+                    customerCache.putMissingEmail(email, stamp);
                     return new CustomerNotFoundException(
                             "Customer not found with email: " + email
                     );
@@ -133,18 +214,14 @@ public class CustomerServiceImpl implements CustomerService {
 
         log.debug("Customer found with id: {}", customer.getId());
 
-        customer.setLastPurchaseDate(LocalDate.now());
-        log.debug("Updated lastPurchaseDate for customer id: {}",
-                customer.getId());
-
-        Customer updatedCustomer = customerRepo.save(customer);
-        log.info("Customer updated successfully with id: {}",
+        Customer updatedCustomer = customerTouchBuffer.touch(customer);
+        customerCache.put(updatedCustomer, stamp);
+        log.debug("Customer touched successfully with id: {}",
                 updatedCustomer.getId());
 
-        CustomerDto response = modelMapper.map(updatedCustomer, CustomerDto.class);
-        response.setTier(calculateTier(customer));
+        CustomerDto response = customerMapper.toDto(updatedCustomer, calculateTier(updatedCustomer));
 
-        log.info("Returning customer response for email: {}", email);
+        log.debug("Returning customer response for email: {}", email);
         log.debug("Customer tier calculated as: {}", response.getTier());
 
         return response;
@@ -152,37 +229,106 @@ public class CustomerServiceImpl implements CustomerService {
 
 
 
+    /** Across shards the email index names the customer, so only its shard is asked. */
+    private Optional<Customer> findByEmailInIndex(String email) {
+
+        return customerShards.customerWithEmail(email)
+                .flatMap(id -> customerShards.onShardOf(id, () -> customerRepo.findById(id)))
+                .filter(found -> email.equals(found.getEmail()));
+    }
+
+
+    @Override
+    public Long getCustomerVersion(UUID id) {
+
+        Customer cached = customerCache.getById(id);
+        if (cached != null && cached.getVersion() != null) {
+            return cached.getVersion();
+        }
+        if (customerCache.isMissing(id)) {
+            return null;
+        }
+
+        return customerShards.onShardOf(id, () -> customerRepo.findVersionById(id)).orElse(null);
+    }
+
+
     @Override
     public CustomerDto updateCustomer(CustomerDto customerDto, UUID id) {
 
+        return updateCustomer(customerDto, id, null);
+    }
+
+
+    /**
+     * Updates the customer if it is still at {@code expectedVersion} (any version when null).
+     * The save checks the version loaded here, so an update that raced with another one fails
+     * instead of overwriting it. Runs in one transaction on the customer's shard so the read and
+     * the save both go to the primary; the flush makes a version conflict surface here rather
+     * than at commit.
+     */
+    @Override
+    public CustomerDto updateCustomer(CustomerDto customerDto, UUID id, Long expectedVersion) {
+
+        return customerShards.inTransactionOnShardOf(id, () -> update(customerDto, id, expectedVersion));
+    }
+
+
+    private CustomerDto update(CustomerDto customerDto, UUID id, Long expectedVersion) {
+
         log.info("Updating customer with id: {}", id);
 
         Customer customer = customerRepo.findById(id)
                 .orElseThrow(() -> {
-                    log.warn("Customer not found with id: {}", id);
+                    log.debug("Customer not found with id: {}", id);
                     return new CustomerNotFoundException(
                             "Customer not found with id: " + id
                     );
                 });
 
+        if (expectedVersion != null && !expectedVersion.equals(customer.getVersion())) {
+            log.warn("Update rejected for id: {}, expected version: {}, current: {}",
+                    id, expectedVersion, customer.getVersion());
+            throw new PreconditionFailedException(
+                    "Customer with id: " + id + " has been modified, current version: " + customer.getVersion());
+        }
+
+        if (customerDto.getEmail() != null && !customerDto.getEmail().equals(customer.getEmail())) {
+            ensureEmailAvailable(customerDto.getEmail(), id);
+            customerShards.claimEmail(customerDto.getEmail(), id);
+        }
+
         log.debug("Existing customer found. Updating fields for id: {}", id);
 
-        customer.setName(customerDto.getName());
-        customer.setEmail(customerDto.getEmail());
-        customer.setLastPurchaseDate(customerDto.getLastPurchaseDate());
-        customer.setAnnualSpend(customerDto.getAnnualSpend());
+        Membership previousTier = customer.getTier();
+
+        customerMapper.updateEntity(customerDto, customer);
 
         log.debug("Customer fields updated for id: {}", id);
 
-        customerDto.setTier(calculateTier(customer));
+        customer.setTier(calculateTier(customer));
+        customerDto.setTier(customer.getTier());
         log.debug("Customer tier calculated as: {} for id: {}",
                 customerDto.getTier(), id);
 
-        Customer updatedCustomer = customerRepo.save(customer);
+        Customer updatedCustomer;
+        try {
+            updatedCustomer = customerRepo.save(customer);
+            customerRepo.flush();
+        } catch (OptimisticLockingFailureException ex) {
+            customerCache.invalidate(id);
+            if (expectedVersion != null) {
+                throw new PreconditionFailedException(
+                        "Customer with id: " + id + " has been modified concurrently");
+            }
+            throw ex;
+        }
+        tierChangeOutbox.record(id, previousTier, updatedCustomer.getTier());
+        customerCache.invalidate(id);
+        customerChangePublisher.saved(updatedCustomer);
         log.info("Customer updated successfully with id: {}", id);
 
-        CustomerDto response =
-                modelMapper.map(updatedCustomer, CustomerDto.class);
+        CustomerDto response = customerMapper.toDto(updatedCustomer);
 
         log.info("Returning updated customer response for id: {}", id);
 
@@ -190,64 +336,263 @@ public class CustomerServiceImpl implements CustomerService {
     }
 
 
+    /**
+     * Applies a merge patch with a single UPDATE of the patched columns that also returns the
+     * new row; nothing is read first, except the locked tier when the patch can change it and
+     * the transition goes to the outbox. Only when no row was updated does a version lookup tell
+     * a missing customer from a stale If-Match. Without returnRepresentation the result carries
+     * just the version and purchase date for the ETag, and the tier and mapping are skipped.
+     */
+    @Override
+    public CustomerDto patchCustomer(UUID id, CustomerPatch patch, Long expectedVersion, boolean returnRepresentation) {
+
+        log.info("Patching customer with id: {}", id);
+
+        if (patch.isEmpty()) {
+            // an empty merge patch changes nothing, so there is nothing to write
+            Customer customer = customerShards.onShardOf(id, () -> customerRepo.findById(id))
+                    .orElseThrow(() -> new CustomerNotFoundException("Customer not found with id: " + id));
+            checkVersion(id, expectedVersion, customer.getVersion());
+            return patched(customer, returnRepresentation);
+        }
+
+        if (patch.isEmailSet()) {
+            ensureEmailAvailable(patch.getEmail(), id);
+        }
+
+        // the outbox needs the tier before the update: read it under a row lock in the same transaction
+        boolean recordsTier = patch.changesTier() && tierChangeOutbox.isEnabled();
+        // across shards the new email is claimed in the index, settled when the transaction completes
+        boolean claimsEmail = patch.isEmailSet() && customerShards.isSharded();
+        Customer patched = recordsTier || claimsEmail
+                ? customerShards.inTransactionOnShardOf(id, () -> {
+                    if (claimsEmail) {
+                        customerShards.claimEmail(patch.getEmail(), id);
+                    }
+                    Membership previousTier = recordsTier ? customerJdbcRepo.lockTier(id) : null;
+                    Customer updated = customerJdbcRepo.patch(id, patch, expectedVersion, tierCalculator);
+                    if (updated != null && recordsTier) {
+                        tierChangeOutbox.record(id, previousTier, updated.getTier());
+                    }
+                    return updated;
+                })
+                : customerShards.onShardOf(id, () -> customerJdbcRepo.patch(id, patch, expectedVersion, tierCalculator));
+        if (patched == null) {
+            Long version = customerShards.onShardOf(id, () -> customerRepo.findVersionById(id)).orElse(null);
+            if (version == null) {
+                log.debug("Customer not found with id: {}", id);
+                throw new CustomerNotFoundException("Customer not found with id: " + id);
+            }
+            log.warn("Patch rejected for id: {}, expected version: {}, current: {}", id, expectedVersion, version);
+            throw new PreconditionFailedException(
+                    "Customer with id: " + id + " has been modified, current version: " + version);
+        }
+
+        customerCache.invalidate(id);
+        customerChangePublisher.saved(patched);
+        log.info("Customer patched successfully with id: {}, version: {}", id, patched.getVersion());
+
+        return patched(patched, returnRepresentation);
+    }
+
+
+    private void checkVersion(UUID id, Long expectedVersion, Long version) {
+
+        if (expectedVersion != null && !expectedVersion.equals(version)) {
+            log.warn("Update rejected for id: {}, expected version: {}, current: {}",
+                    id, expectedVersion, version);
+            throw new PreconditionFailedException(
+                    "Customer with id: " + id + " has been modified, current version: " + version);
+        }
+    }
+
+
+    private CustomerDto patched(Customer customer, boolean returnRepresentation) {
+
+        if (returnRepresentation) {
+            return customerMapper.toDto(customer);
+        }
+        CustomerDto versionOnly = new CustomerDto();
+        versionOnly.setVersion(customer.getVersion());
+        versionOnly.setLastPurchaseDate(customer.getLastPurchaseDate());
+        return versionOnly;
+    }
+
+
     @Override
-    @Transactional
     public void deleteCustomer(UUID id) {
 
         log.info("Request received to delete customer with id: {}", id);
 
-        Customer customer = customerRepo.findById(id)
-                .orElseThrow(() -> {
-                    log.warn("Delete failed. Customer not found with id: {}", id);
-                    return new RuntimeException(
-                            "Customer not found or already removed with id: " + id
-                    );
-                });
+        int deleted = customerShards.onShardOf(id, () -> customerRepo.deleteRowById(id));
+        if (deleted == 0) {
+            log.warn("Delete failed. Customer not found with id: {}", id);
+            throw new CustomerNotFoundException(
+                    "Customer not found or already removed with id: " + id
+            );
+        }
+
+        customerShards.releaseEmails(id);
+        customerCache.invalidate(id);
+        customerChangePublisher.deleted(id);
+
+        log.info("Customer deleted successfully. Id: {}", id);
+    }
+
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageDto<CustomerDto> getCustomersByTier(Membership tier, int page, int size) {
+
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(
+                    "page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE);
+        }
 
-        log.debug("Customer found for deletion. Id: {}, Name: {}",
-                id, customer.getName());
+        log.info("Fetching {} customers, page: {}, size: {}", tier, page, size);
 
-        customerRepo.delete(customer);
+        // with several shards, each returns its first (page + 1) * size rows and the merge skips the earlier pages
+        int skip = customerShards.isSharded() ? page * size : 0;
+        PageRequest pageRequest = customerShards.isSharded()
+                ? PageRequest.of(0, skip + size, Sort.by("id"))
+                : PageRequest.of(page, size, Sort.by("id"));
 
-        log.info("Customer deleted successfully. Id: {}, Name: {}",
-                id, customer.getName());
+        List<Slice<Customer>> slices = customerShards.onEveryShard(() -> {
+            Slice<Customer> slice = customerRepo.findByTier(tier, pageRequest);
+            return new SliceImpl<>(owned(slice.getContent()), pageRequest, slice.hasNext());
+        });
+        List<Customer> customers = merged(slices.stream().map(Slice::getContent).toList());
+
+        List<CustomerDto> content = customers.stream()
+                .skip(skip)
+                .limit(size)
+                .map(this::toDto)
+                .toList();
+        boolean hasNext = customers.size() > skip + size || slices.stream().anyMatch(Slice::hasNext);
+
+        return new PageDto<>(content, page, size, hasNext);
     }
 
 
     @Override
-    public  Membership calculateTier(Customer customer) {
+    @Transactional(readOnly = true)
+    public Map<Membership, Long> countCustomersByTier() {
 
-        log.debug("Calculating membership tier for customer. Id: {}",
-                customer.getId());
+        Map<Membership, Long> counts = new EnumMap<>(Membership.class);
+        for (Membership membership : Membership.values()) {
+            counts.put(membership, 0L);
+        }
+
+        for (List<Object[]> shardCounts : customerShards.onEveryShard(customerRepo::countByTier)) {
+            for (Object[] row : shardCounts) {
+                if (row[0] != null) {
+                    counts.merge((Membership) row[0], (Long) row[1], Long::sum);
+                }
+            }
+        }
+
+        log.info("Customer count per tier: {}", counts);
 
-        BigDecimal spend = customer.getAnnualSpend();
-        BigDecimal spends = spend != null ? spend : BigDecimal.ZERO;
+        return counts;
+    }
 
-        LocalDate lastPurchase = customer.getLastPurchaseDate();
-        LocalDate now = LocalDate.now();
 
-        log.debug("Customer spend: {}, Last purchase date: {}",
-                spends, lastPurchase);
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<CustomerDto> getCustomers(UUID after, Integer size) {
 
-        Membership membership;
+        int pageSize = size != null ? size : defaultListingPageSize;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
 
-        if (spends.compareTo(BigDecimal.valueOf(10000)) >= 0
-                && lastPurchase != null
-                && lastPurchase.isAfter(now.minusMonths(6))) {
+        log.info("Listing customers after: {}, size: {}", after, pageSize);
 
-            membership = Membership.PLATINUM;
+        Limit limit = Limit.of(pageSize + 1);
+        List<Customer> customers = merged(customerShards.onEveryShard(() -> owned(after == null
+                ? customerRepo.findAllByOrderByIdAsc(limit)
+                : customerRepo.findByIdGreaterThanOrderByIdAsc(after, limit))));
 
-        } else if (spends.compareTo(BigDecimal.valueOf(1000)) >= 0
-                && lastPurchase != null
-                && lastPurchase.isAfter(now.minusMonths(12))) {
+        boolean hasNext = customers.size() > pageSize;
+        List<CustomerDto> content = customers.stream()
+                .limit(pageSize)
+                .map(this::toDto)
+                .toList();
 
-            membership = Membership.GOLD;
+        UUID nextCursor = hasNext ? content.get(content.size() - 1).getId() : null;
 
-        } else {
-            membership = Membership.SILVER;
+        return new CursorPageDto<>(content, pageSize, nextCursor);
+    }
+
+
+    /**
+     * Rejects an email another customer already has. The filter clears most new emails without
+     * a query; the rest are checked against the unique index, so no INSERT is tried just to fail.
+     * Two concurrent creates can still both pass; on one shard the unique constraint then
+     * rejects one, across shards the claim in the email index does.
+     */
+    private void ensureEmailAvailable(String email, UUID ownId) {
+
+        if (email == null) {
+            return;
+        }
+        if (!customerEmailFilter.mightContain(email)) {
+            customerMetrics.emailChecked(false, false);
+            return;
+        }
+
+        boolean taken = customerShards.onEveryShard(() -> ownId == null
+                        ? customerRepo.existsByEmail(email)
+                        : customerRepo.existsByEmailAndIdNot(email, ownId))
+                .contains(Boolean.TRUE);
+        customerMetrics.emailChecked(true, taken);
+
+        if (taken) {
+            log.debug("Email already taken: {}", email);
+            throw new DuplicateEmailException("Customer already exists with email: " + email);
+        }
+    }
+
+
+    private List<Customer> owned(List<Customer> customers) {
+
+        return customerShards.isSharded()
+                ? customers.stream().filter(customer -> customerShards.owns(customer.getId())).toList()
+                : customers;
+    }
+
+
+    /** The shards' results as one list in id order; a single shard's result is already sorted. */
+    private static List<Customer> merged(List<List<Customer>> perShard) {
+
+        if (perShard.size() == 1) {
+            return perShard.get(0);
         }
+        return perShard.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Customer::getId, CustomerShards.ID_ORDER))
+                .toList();
+    }
+
+
+    private CustomerDto toDto(Customer customer) {
+
+        return customerMapper.toDto(customer, calculateTier(customer));
+    }
+
+
+    @Override
+    public  Membership calculateTier(Customer customer) {
+
+        log.debug("Calculating membership tier for customer. Id: {}",
+                customer.getId());
+
+        log.debug("Customer spend: {}, Last purchase date: {}",
+                customer.getAnnualSpend(), customer.getLastPurchaseDate());
+
+        Membership membership = tierCalculator.calculate(customer);
 
-        log.info("Calculated membership tier: {} for customer Id: {}",
+        log.debug("Calculated membership tier: {} for customer Id: {}",
                 membership, customer.getId());
 
         return membership;
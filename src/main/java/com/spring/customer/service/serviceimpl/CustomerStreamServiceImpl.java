@@ -0,0 +1,173 @@
+package com.spring.customer.service.serviceimpl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.spring.customer.csv.CsvRowWriter;
+import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.dto.CustomerExportFilter;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.ExportFormat;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.mapper.CustomerMapper;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.service.CustomerStreamService;
+import com.spring.customer.tier.TierCalculator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+public class CustomerStreamServiceImpl implements CustomerStreamService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CustomerStreamServiceImpl.class);
+
+    private static final List<String> CSV_HEADER =
+            List.of("id", "name", "email", "annualSpend", "lastPurchaseDate", "tier");
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    private final CustomerJdbcRepo customerJdbcRepo;
+    private final TierCalculator tierCalculator;
+    private final CustomerMapper customerMapper;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter dtoWriter;
+    private final int fetchSize;
+
+    public CustomerStreamServiceImpl(CustomerJdbcRepo customerJdbcRepo,
+                                     TierCalculator tierCalculator,
+                                     CustomerMapper customerMapper,
+                                     ObjectMapper objectMapper,
+                                     @Value("${customer.stream.fetch-size:1000}") int fetchSize) {
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.tierCalculator = tierCalculator;
+        this.customerMapper = customerMapper;
+        this.objectMapper = objectMapper;
+        this.dtoWriter = objectMapper.writerFor(CustomerDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.fetchSize = fetchSize;
+    }
+
+    // a read-only transaction turns autocommit off, which drivers such as PostgreSQL's need to honour the fetch size
+    @Override
+    @Transactional(readOnly = true)
+    public void writeNdjson(OutputStream out) throws IOException {
+
+        log.info("Streaming all customers as NDJSON, fetch size: {}", fetchSize);
+
+        long[] rows = new long[1];
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+
+            customerJdbcRepo.streamAll(fetchSize, customer -> {
+                CustomerDto dto = customerMapper.toDto(customer, tierCalculator.calculate(customer));
+                try {
+                    dtoWriter.writeValue(generator, dto);
+                    generator.writeRaw('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        log.info("Streamed {} customer(s) as NDJSON", rows[0]);
+    }
+
+    /**
+     * Writes the matching customers in id order. The database narrows by spend and, for a tier
+     * filter, by that tier's thresholds; the tier computed for today decides, so the stored tier
+     * column is never trusted. The output is flushed but not closed.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void export(CustomerExportFilter filter, ExportFormat format, OutputStream out) throws IOException {
+
+        log.info("Exporting customers as {}, tier: {}, spend: [{}, {}], fetch size: {}",
+                format, filter.getTier(), filter.getMinSpend(), filter.getMaxSpend(), fetchSize);
+
+        long rows;
+        if (format == ExportFormat.CSV) {
+            CsvRowWriter csv = new CsvRowWriter(
+                    new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER));
+            csv.fields(CSV_HEADER).endRow();
+            rows = exportMatching(filter, (customer, tier) -> writeCsvRow(csv, customer, tier));
+            csv.flush();
+        } else {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            rows = exportMatching(filter, (customer, tier) -> {
+                dtoWriter.writeValue(generator, customerMapper.toDto(customer, tier));
+                generator.writeRaw('\n');
+            });
+            generator.close();
+        }
+
+        log.info("Exported {} customer(s) as {}", rows, format);
+    }
+
+    private long exportMatching(CustomerExportFilter filter, RowWriter rowWriter) throws IOException {
+
+        Membership wanted = filter.getTier();
+        BigDecimal minSpend = filter.getMinSpend();
+        LocalDate purchasedAfter = null;
+        if (wanted == Membership.PLATINUM || wanted == Membership.GOLD) {
+            LocalDate today = tierCalculator.today();
+            BigDecimal tierSpend = wanted == Membership.PLATINUM
+                    ? tierCalculator.platinumSpend() : tierCalculator.goldSpend();
+            minSpend = minSpend == null ? tierSpend : minSpend.max(tierSpend);
+            purchasedAfter = wanted == Membership.PLATINUM
+                    ? tierCalculator.platinumCutoff(today) : tierCalculator.goldCutoff(today);
+        }
+
+        long[] rows = new long[1];
+        try {
+            customerJdbcRepo.streamMatching(minSpend, filter.getMaxSpend(), purchasedAfter, fetchSize, customer -> {
+                Membership tier = tierCalculator.calculate(customer);
+                if (wanted != null && tier != wanted) {
+                    return;
+                }
+                try {
+                    rowWriter.write(customer, tier);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return rows[0];
+    }
+
+    private static void writeCsvRow(CsvRowWriter csv, Customer customer, Membership tier) throws IOException {
+
+        csv.field(customer.getId().toString())
+                .field(customer.getName())
+                .field(customer.getEmail())
+                .field(customer.getAnnualSpend() != null ? customer.getAnnualSpend().toPlainString() : null)
+                .field(customer.getLastPurchaseDate() != null ? customer.getLastPurchaseDate().toString() : null)
+                .field(tier.name())
+                .endRow();
+    }
+
+    private interface RowWriter {
+        void write(Customer customer, Membership tier) throws IOException;
+    }
+}
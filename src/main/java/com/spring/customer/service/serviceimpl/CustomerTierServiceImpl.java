@@ -0,0 +1,148 @@
+package com.spring.customer.service.serviceimpl;
+
+import com.spring.customer.dto.TierEvaluationResult;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.service.CustomerTierService;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.tier.TierColumns;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Read-only tier scoring for many customers at once. Only the two tier columns are loaded, into
+ * primitive arrays, and evaluated in parallel on the common fork/join pool. Nothing is written:
+ * neither the stored tier nor lastPurchaseDate changes.
+ */
+@Service
+public class CustomerTierServiceImpl implements CustomerTierService {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CustomerTierServiceImpl.class);
+
+    private final CustomerJdbcRepo customerJdbcRepo;
+    private final TierCalculator tierCalculator;
+    private final int maxIds;
+    private final int parallelThreshold;
+    private final int fetchSize;
+
+    public CustomerTierServiceImpl(CustomerJdbcRepo customerJdbcRepo,
+                                   TierCalculator tierCalculator,
+                                   @Value("${customer.tier.evaluation.max-ids:100000}") int maxIds,
+                                   @Value("${customer.tier.evaluation.parallel-threshold:16384}") int parallelThreshold,
+                                   @Value("${customer.stream.fetch-size:1000}") int fetchSize) {
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.tierCalculator = tierCalculator;
+        this.maxIds = maxIds;
+        this.parallelThreshold = Math.max(parallelThreshold, 1);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TierEvaluationResult evaluateTiers(List<UUID> ids) {
+
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one customer id is required");
+        }
+        if (ids.size() > maxIds) {
+            throw new IllegalArgumentException(
+                    "Tier evaluation request exceeds the limit of " + maxIds + " ids");
+        }
+
+        log.info("Request received to evaluate tiers of {} customer(s)", ids.size());
+
+        List<UUID> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        TierColumns columns = customerJdbcRepo.loadTierColumns(distinct);
+        TierEvaluationResult result = group(columns, evaluate(columns));
+
+        if (columns.size() < distinct.size()) {
+            Set<UUID> found = new HashSet<>(columns.size() * 2);
+            for (int row = 0; row < columns.size(); row++) {
+                found.add(columns.id(row));
+            }
+            result.setNotFound(distinct.stream().filter(id -> !found.contains(id)).toList());
+        }
+
+        log.info("Evaluated tiers of {} customer(s), not found: {}",
+                result.getEvaluated(), result.getNotFound().size());
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TierEvaluationResult evaluateAllTiers() {
+
+        long start = System.nanoTime();
+        TierColumns columns = customerJdbcRepo.loadAllTierColumns(fetchSize);
+        TierEvaluationResult result = group(columns, evaluate(columns));
+
+        log.info("Evaluated tiers of all {} customer(s) in {} ms",
+                result.getEvaluated(), (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    @Override
+    public Membership[] evaluate(TierColumns columns) {
+
+        Membership[] tiers = new Membership[columns.size()];
+        ForkJoinPool.commonPool().invoke(new EvaluateTask(columns, tiers, 0, columns.size()));
+        return tiers;
+    }
+
+
+    private TierEvaluationResult group(TierColumns columns, Membership[] tiers) {
+
+        int[] counts = new int[Membership.values().length];
+        for (Membership tier : tiers) {
+            counts[tier.ordinal()]++;
+        }
+
+        Map<Membership, List<UUID>> grouped = new EnumMap<>(Membership.class);
+        for (Membership tier : Membership.values()) {
+            grouped.put(tier, new ArrayList<>(counts[tier.ordinal()]));
+        }
+        for (int row = 0; row < tiers.length; row++) {
+            grouped.get(tiers[row]).add(columns.id(row));
+        }
+
+        return new TierEvaluationResult(tiers.length, grouped, List.of());
+    }
+
+
+    /** Splits the rows in halves until a range is small enough to evaluate in one go. */
+    private class EvaluateTask extends RecursiveAction {
+
+        private final TierColumns columns;
+        private final Membership[] tiers;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(TierColumns columns, Membership[] tiers, int from, int to) {
+            this.columns = columns;
+            this.tiers = tiers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= parallelThreshold) {
+                tierCalculator.evaluate(columns.spendCents(), columns.lastPurchaseEpochDays(), tiers, from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateTask(columns, tiers, from, middle),
+                    new EvaluateTask(columns, tiers, middle, to));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.spring.customer.shard;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Runs repository work on the right shard. Work on one customer goes to the shard owning its id;
+ * lookups by other columns run on every shard in parallel and the results are combined by the
+ * caller. Rows a shard still holds for a bucket that moved elsewhere are filtered with
+ * {@link #owns(UUID)}. Emails are kept unique across shards by the {@link ShardEmailIndex}.
+ * <p>
+ * Without customer.sharding.enabled there is a single shard and all work runs directly on the
+ * calling thread, as it did before sharding existed.
+ */
+@Component
+public class CustomerShards {
+
+    /** Ids in database order: H2 and PostgreSQL compare UUIDs as unsigned bytes. */
+    public static final Comparator<UUID> ID_ORDER = (a, b) -> {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
+    private final ShardDirectory directory;
+    private final ShardEmailIndex emailIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final ExecutorService fanOut;
+
+    @Autowired
+    public CustomerShards(ObjectProvider<ShardDirectory> directory, ObjectProvider<ShardEmailIndex> emailIndex,
+                          PlatformTransactionManager transactionManager) {
+        this(directory.getIfAvailable(), emailIndex.getIfAvailable(), new TransactionTemplate(transactionManager));
+    }
+
+    CustomerShards(ShardDirectory directory, ShardEmailIndex emailIndex, TransactionTemplate transactionTemplate) {
+        this.directory = directory;
+        this.emailIndex = emailIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.newTransaction = transactionTemplate != null
+                ? new TransactionTemplate(transactionTemplate.getTransactionManager()) : null;
+        if (newTransaction != null) {
+            newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+        // fan-out tasks mostly wait on their shard's connection pool
+        this.fanOut = directory != null ? Executors.newVirtualThreadPerTaskExecutor() : null;
+    }
+
+    /** A single shard without transactions, for unit tests and benchmarks. */
+    public static CustomerShards unsharded() {
+        return new CustomerShards((ShardDirectory) null, null, (TransactionTemplate) null);
+    }
+
+    public boolean isSharded() {
+        return directory != null;
+    }
+
+    public int shardCount() {
+        return directory != null ? directory.shardCount() : 1;
+    }
+
+    /** Runs the work on the shard owning the id; a move of that id's bucket waits for it. */
+    public <T> T onShardOf(UUID id, Supplier<T> work) {
+
+        if (directory == null) {
+            return work.get();
+        }
+        Lock lock = directory.lock(ShardDirectory.bucketOf(id)).readLock();
+        lock.lock();
+        try {
+            return onShard(directory.shardOf(id), work);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the work in one transaction on the shard owning the id. The transaction commits before
+     * the bucket is released, so a move never copies the row while the change is uncommitted.
+     */
+    public <T> T inTransactionOnShardOf(UUID id, Supplier<T> work) {
+
+        if (transactionTemplate == null) {
+            return work.get();
+        }
+        return onShardOf(id, () -> transactionTemplate.execute(status -> work.get()));
+    }
+
+    /** Runs the work on every shard in parallel; the results are in shard order. */
+    public <T> List<T> onEveryShard(Supplier<T> work) {
+
+        if (directory == null) {
+            return List.of(work.get());
+        }
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(directory.shardCount());
+        for (int shard = 0; shard < directory.shardCount(); shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> onShard(target, work), fanOut));
+        }
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs the work on each shard in turn on the calling thread, e.g. to read through a cursor.
+     * Each shard gets a transaction of its own, since a caller's transaction is bound to the
+     * connection of one shard.
+     */
+    public void forEachShard(Runnable work) {
+
+        if (directory == null) {
+            work.run();
+            return;
+        }
+        for (int shard = 0; shard < directory.shardCount(); shard++) {
+            onShard(shard, () -> newTransaction.execute(status -> {
+                work.run();
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Claims the email for the customer in the email index, failing with a
+     * DuplicateEmailException when another customer holds it. Called inside the transaction
+     * writing the row, which settles the claim when it completes. Nothing to do on one shard,
+     * where the unique index on the email column decides.
+     */
+    public void claimEmail(String email, UUID id) {
+
+        if (emailIndex != null) {
+            emailIndex.claim(email, id);
+        }
+    }
+
+    /** The customer holding the email in the email index; only known while sharded. */
+    public Optional<UUID> customerWithEmail(String email) {
+
+        return emailIndex != null ? emailIndex.owner(email) : Optional.empty();
+    }
+
+    /** Releases the emails of a deleted customer. */
+    public void releaseEmails(UUID id) {
+
+        if (emailIndex != null) {
+            emailIndex.settle(id);
+        }
+    }
+
+    /** Whether a row read on the current shard belongs there, i.e. is not a leftover of a move. */
+    public boolean owns(UUID id) {
+
+        if (directory == null) {
+            return true;
+        }
+        Integer current = ShardContext.current();
+        return directory.shardOf(id) == (current != null ? current : 0);
+    }
+
+    private <T> T onShard(int shard, Supplier<T> work) {
+
+        Integer previous = ShardContext.enter(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+}
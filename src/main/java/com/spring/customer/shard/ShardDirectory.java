@@ -0,0 +1,156 @@
+package com.spring.customer.shard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * Which shard holds which customers. Ids fall into {@value #BUCKETS} buckets by their last byte
+ * (random in the UUIDs the service assigns) and each bucket belongs to one shard; the mapping
+ * lives in shard_directory on shard 0. A new directory spreads the buckets round robin over the
+ * configured shards; shards added later get buckets moved to them by {@link ShardRebalancer}.
+ * <p>
+ * Work on one customer holds its bucket's read lock, a move holds the write lock, so a move
+ * never copies a bucket while a write to it is in flight on this instance. Every reassignment
+ * bumps shard_directory_version; other instances poll it every customer.sharding.directory-refresh
+ * and reload the buckets that moved, under their own write locks.
+ */
+public class ShardDirectory implements AutoCloseable {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ShardDirectory.class);
+
+    public static final int BUCKETS = 256;
+
+    private final List<? extends DataSource> shards;
+    private final JdbcTemplate directory;
+    private final TransactionTemplate directoryTransaction;
+    private final AtomicIntegerArray owners = new AtomicIntegerArray(BUCKETS);
+    private final ReadWriteLock[] locks = new ReadWriteLock[BUCKETS];
+    private long version = -1;
+
+    public ShardDirectory(List<? extends DataSource> shards) {
+        this.shards = List.copyOf(shards);
+        this.directory = new JdbcTemplate(shards.get(0));
+        this.directoryTransaction = new TransactionTemplate(new DataSourceTransactionManager(shards.get(0)));
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            locks[bucket] = new ReentrantReadWriteLock();
+        }
+        load();
+    }
+
+    private void load() {
+
+        directory.execute("create table if not exists shard_directory (bucket int primary key, shard int not null)");
+        directory.execute("create table if not exists shard_directory_version (id int primary key, version bigint not null)");
+        if (directory.queryForObject("select count(*) from shard_directory", Integer.class) == 0) {
+            directory.batchUpdate("insert into shard_directory (bucket, shard) values (?, ?)",
+                    IntStream.range(0, BUCKETS)
+                            .mapToObj(bucket -> new Object[]{bucket, bucket % shards.size()})
+                            .toList());
+        }
+        if (directory.queryForObject("select count(*) from shard_directory_version", Integer.class) == 0) {
+            directory.update("insert into shard_directory_version (id, version) values (1, 0)");
+        }
+        refresh();
+    }
+
+    /**
+     * Reloads the directory when another instance (or this one) moved buckets since the last
+     * load. A bucket changes owner under its write lock, so work on it that is in flight
+     * finishes on the old shard first.
+     */
+    @Scheduled(initialDelayString = "${customer.sharding.directory-refresh:PT2S}",
+            fixedDelayString = "${customer.sharding.directory-refresh:PT2S}")
+    public synchronized boolean refresh() {
+
+        long current = directory.queryForObject("select version from shard_directory_version where id = 1", Long.class);
+        if (current == version) {
+            return false;
+        }
+
+        int[] loaded = new int[BUCKETS];
+        directory.query("select bucket, shard from shard_directory", resultSet -> {
+            int shard = resultSet.getInt("shard");
+            if (shard >= shards.size()) {
+                throw new IllegalStateException("Bucket " + resultSet.getInt("bucket") + " is stored on shard "
+                        + shard + ", but only " + shards.size() + " shard(s) are configured");
+            }
+            loaded[resultSet.getInt("bucket")] = shard;
+        });
+
+        int changed = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (version >= 0 && owners.get(bucket) == loaded[bucket]) {
+                continue;
+            }
+            Lock lock = locks[bucket].writeLock();
+            lock.lock();
+            try {
+                owners.set(bucket, loaded[bucket]);
+            } finally {
+                lock.unlock();
+            }
+            changed++;
+        }
+        if (version >= 0 && changed > 0) {
+            log.info("Reloaded the shard directory at version {}, {} bucket(s) changed owner", current, changed);
+        }
+        version = current;
+        return true;
+    }
+
+    public static int bucketOf(UUID id) {
+        return (int) (id.getLeastSignificantBits() & (BUCKETS - 1));
+    }
+
+    public int shardOf(UUID id) {
+        return owners.get(bucketOf(id));
+    }
+
+    public int ownerOf(int bucket) {
+        return owners.get(bucket);
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public DataSource shard(int shard) {
+        return shards.get(shard);
+    }
+
+    ReadWriteLock lock(int bucket) {
+        return locks[bucket];
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /** Records the new owner; the caller holds the bucket's write lock and has copied its rows. */
+    void reassign(int bucket, int shard) {
+        directoryTransaction.executeWithoutResult(status -> {
+            directory.update("update shard_directory set shard = ? where bucket = ?", shard, bucket);
+            directory.update("update shard_directory_version set version = version + 1 where id = 1");
+        });
+        owners.set(bucket, shard);
+    }
+}
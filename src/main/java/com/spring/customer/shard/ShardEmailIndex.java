@@ -0,0 +1,179 @@
+package com.spring.customer.shard;
+
+import com.spring.customer.exceptionhandling.DuplicateEmailException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Which customer holds which email while customers are spread over shards, where each shard's
+ * unique index only sees its own rows. customer_email_index on shard 0 has the email as its key,
+ * so of two customers claiming one email on different shards only one gets it.
+ * <p>
+ * A claim is written before the customer row, outside the row's transaction. When that
+ * transaction completes, {@link #settle(UUID)} makes the customer's claims match its row again:
+ * a rolled back create leaves no claim behind, an email change gives up the old one. A claim
+ * whose customer does not have the email (the instance stopped before settling) is taken over
+ * once it is older than customer.sharding.email-claim-grace, which leaves in-flight writes alone.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.sharding.enabled", havingValue = "true")
+public class ShardEmailIndex implements SmartInitializingSingleton {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ShardEmailIndex.class);
+
+    private static final String CLAIM =
+            "insert into customer_email_index (email, customer_id, claimed_at) values (?, ?, ?)";
+    private static final String CLAIM_IF_FREE = "insert into customer_email_index (email, customer_id, claimed_at) "
+            + "select ?, ?, ? where not exists (select 1 from customer_email_index where email = ?)";
+
+    private final ShardDirectory directory;
+    private final JdbcTemplate index;
+    private final Duration grace;
+
+    public ShardEmailIndex(ShardDirectory directory,
+                           @Value("${customer.sharding.email-claim-grace:PT1M}") Duration grace) {
+        this.directory = directory;
+        this.index = new JdbcTemplate(directory.shard(0));
+        this.grace = grace;
+    }
+
+    // runs once the entity manager factory created the customer table on shard 0
+    @Override
+    public void afterSingletonsInstantiated() {
+
+        boolean existed = ShardRebalancer.hasTable(directory.shard(0), "CUSTOMER_EMAIL_INDEX");
+        index.execute("create table if not exists customer_email_index "
+                + "(email varchar(255) primary key, customer_id uuid not null, claimed_at timestamp not null)");
+        index.execute("create index if not exists idx_customer_email_index_customer on customer_email_index (customer_id)");
+        if (!existed) {
+            backfill();
+        }
+    }
+
+    // customers stored before the index existed; of two with one email the first one read keeps it
+    private void backfill() {
+
+        Timestamp now = Timestamp.from(Instant.now());
+        int claimed = 0;
+        for (int shard = 0; shard < directory.shardCount(); shard++) {
+            if (!ShardRebalancer.hasTable(directory.shard(shard), "CUSTOMER")) {
+                continue;
+            }
+            int current = shard;
+            List<Object[]> claims = new ArrayList<>();
+            new JdbcTemplate(directory.shard(shard)).query("select id, email from customer", resultSet -> {
+                UUID id = resultSet.getObject("id", UUID.class);
+                if (directory.shardOf(id) == current) {
+                    String email = resultSet.getString("email");
+                    claims.add(new Object[]{email, id, now, email});
+                }
+            });
+            for (int updated : index.batchUpdate(CLAIM_IF_FREE, claims)) {
+                claimed += updated;
+            }
+        }
+        log.info("Indexed the emails of {} existing customer(s)", claimed);
+    }
+
+    /**
+     * Claims the email for the customer, or fails with a {@link DuplicateEmailException} when
+     * another customer holds it. Inside a transaction the customer's claims are settled when it
+     * completes; otherwise the caller settles them after writing the row.
+     */
+    public void claim(String email, UUID id) {
+
+        if (email == null) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        try {
+            index.update(CLAIM, email, id, now);
+        } catch (DuplicateKeyException ex) {
+            takeOver(email, id, now);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    settle(id);
+                }
+            });
+        }
+    }
+
+    private void takeOver(String email, UUID id, Timestamp now) {
+
+        UUID holder = owner(email).orElse(null);
+        if (id.equals(holder)) {
+            return;
+        }
+        if (holder == null) {
+            // released in the meantime
+            claim(email, id);
+            return;
+        }
+        if (!email.equals(emailOf(holder))) {
+            int taken = index.update("update customer_email_index set customer_id = ?, claimed_at = ? "
+                            + "where email = ? and customer_id = ? and claimed_at < ?",
+                    id, now, email, holder, Timestamp.from(now.toInstant().minus(grace)));
+            if (taken == 1) {
+                log.info("Took over the email claim of customer {} that does not have it", holder);
+                return;
+            }
+        }
+        log.debug("Email already claimed: {}", email);
+        throw new DuplicateEmailException("Customer already exists with email: " + email);
+    }
+
+    /** The customer holding the email, if any. */
+    public Optional<UUID> owner(String email) {
+
+        return index.query("select customer_id from customer_email_index where email = ?",
+                        (resultSet, row) -> resultSet.getObject(1, UUID.class), email)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Makes the customer's claims match its row: every other email is released, and the row's
+     * email is claimed again if it went missing. Without a row the customer holds nothing.
+     */
+    public void settle(UUID id) {
+
+        String email = emailOf(id);
+        if (email == null) {
+            index.update("delete from customer_email_index where customer_id = ?", id);
+            return;
+        }
+        index.update("delete from customer_email_index where customer_id = ? and email <> ?", id, email);
+        if (index.update(CLAIM_IF_FREE, email, id, Timestamp.from(Instant.now()), email) == 1) {
+            log.warn("Claimed the missing email index entry of customer {}", id);
+        }
+    }
+
+    private String emailOf(UUID id) {
+
+        return new JdbcTemplate(directory.shard(directory.shardOf(id)))
+                .query("select email from customer where id = ?", (resultSet, row) -> resultSet.getString(1), id)
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+}
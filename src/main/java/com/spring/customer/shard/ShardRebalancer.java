@@ -0,0 +1,352 @@
+package com.spring.customer.shard;
+
+import com.spring.customer.dto.ShardRebalanceResult;
+import com.spring.customer.exceptionhandling.RebalanceInProgressException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Brings newly configured shards into use while the application keeps serving. At startup a
+ * shard without a customer table gets the table layout of shard 0, and every shard gets an
+ * indexed bucket column computed from the id. {@link #rebalance()} then moves buckets from the
+ * shards holding the most to those below their even share, until every shard owns
+ * {@value ShardDirectory#BUCKETS} / N of them. It is started explicitly (POST /shards/rebalance)
+ * and runs on one instance at a time, serialized by a row lock on shard 0.
+ * <p>
+ * A move blocks work on the customers of that one bucket while its rows are copied and the
+ * directory is updated. The old rows stay until every instance has had time to reload the
+ * directory; writes that an instance still sent to the old shard meanwhile are then carried
+ * over, and the old rows are deleted. Reads across shards ignore rows a shard holds for buckets
+ * it does not own, so the copies are never seen twice.
+ */
+@Component
+@ConditionalOnProperty(name = "customer.sharding.enabled", havingValue = "true")
+public class ShardRebalancer implements SmartInitializingSingleton {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String IN_BUCKET = " where bucket = ?";
+
+    // H2 specific, like the table script below: the last byte of the id, as ShardDirectory.bucketOf
+    private static final String ADD_BUCKET_COLUMN = "alter table customer add column if not exists bucket int "
+            + "generated always as (bitand(cast(substring(cast(id as varbinary(16)) from 16 for 1) as tinyint), 255))";
+    private static final String ADD_BUCKET_INDEX = "create index if not exists idx_customer_bucket on customer (bucket)";
+
+    private final ShardDirectory directory;
+    private final Duration grace;
+
+    private record Move(int bucket, int from, int to, Map<UUID, Long> copied) { }
+
+    private record Rows(List<String> columns, List<Object[]> values) {
+        int index(String column) {
+            return columns.indexOf(column);
+        }
+    }
+
+    public ShardRebalancer(ShardDirectory directory,
+                           @Value("${customer.sharding.directory-refresh:PT2S}") Duration directoryRefresh) {
+        this.directory = directory;
+        // every instance reloads the directory at least once within two refresh intervals
+        this.grace = directoryRefresh.multipliedBy(2);
+    }
+
+    // runs once the entity manager factory created the customer table on shard 0
+    @Override
+    public void afterSingletonsInstantiated() {
+
+        JdbcTemplate first = new JdbcTemplate(directory.shard(0));
+        first.execute("create table if not exists shard_rebalance_lock (id int primary key)");
+        first.update("merge into shard_rebalance_lock key (id) values (1)");
+        addBucketColumn(first);
+
+        List<String> schema = null;
+        for (int shard = 1; shard < directory.shardCount(); shard++) {
+            JdbcTemplate target = new JdbcTemplate(directory.shard(shard));
+            if (hasTable(directory.shard(shard), "CUSTOMER")) {
+                addBucketColumn(target);
+                continue;
+            }
+            if (schema == null) {
+                schema = customerTableScript(directory.shard(0));
+            }
+            schema.forEach(target::execute);
+            log.info("Created the customer table on shard {}", shard);
+        }
+    }
+
+    private static void addBucketColumn(JdbcTemplate shard) {
+        shard.execute(ADD_BUCKET_COLUMN);
+        shard.execute(ADD_BUCKET_INDEX);
+    }
+
+    /**
+     * Moves buckets until the shards are balanced. Holds the rebalance lock on shard 0 for the
+     * whole run; a call while another instance (or request) holds it fails at once with a
+     * {@link RebalanceInProgressException}.
+     */
+    public ShardRebalanceResult rebalance() {
+
+        try (Connection lockConnection = directory.shard(0).getConnection()) {
+            lockConnection.setAutoCommit(false);
+            lock(lockConnection);
+            try {
+                return moveBuckets();
+            } finally {
+                lockConnection.rollback();
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not hold the rebalance lock", ex);
+        }
+    }
+
+    private static void lock(Connection connection) {
+        try (Statement statement = connection.createStatement();
+             ResultSet ignored = statement.executeQuery("select id from shard_rebalance_lock where id = 1 for update nowait")) {
+            log.debug("Holding the rebalance lock");
+        } catch (SQLException ex) {
+            throw new RebalanceInProgressException("Shards are already being rebalanced");
+        }
+    }
+
+    private ShardRebalanceResult moveBuckets() {
+
+        int shards = directory.shardCount();
+        List<List<Integer>> owned = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            owned.add(new ArrayList<>());
+        }
+        for (int bucket = 0; bucket < ShardDirectory.BUCKETS; bucket++) {
+            owned.get(directory.ownerOf(bucket)).add(bucket);
+        }
+
+        List<Move> moves = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int receiver = 0; receiver < shards; receiver++) {
+            while (owned.get(receiver).size() < share(receiver, shards)) {
+                int donor = 0;
+                for (int shard = 1; shard < shards; shard++) {
+                    if (owned.get(shard).size() - share(shard, shards)
+                            > owned.get(donor).size() - share(donor, shards)) {
+                        donor = shard;
+                    }
+                }
+                List<Integer> buckets = owned.get(donor);
+                int bucket = buckets.remove(buckets.size() - 1);
+                moves.add(new Move(bucket, donor, receiver, copy(bucket, donor, receiver)));
+                owned.get(receiver).add(bucket);
+            }
+        }
+
+        List<Integer> bucketsPerShard = owned.stream().map(List::size).toList();
+        if (moves.isEmpty()) {
+            return new ShardRebalanceResult(0, bucketsPerShard);
+        }
+
+        try {
+            Thread.sleep(grace.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Rebalance interrupted, old rows of {} moved bucket(s) are left in place", moves.size());
+            return new ShardRebalanceResult(moves.size(), bucketsPerShard);
+        }
+        int carriedOver = 0;
+        for (Move move : moves) {
+            carriedOver += finish(move);
+        }
+
+        log.info("Moved {} bucket(s) in {} ms, {} late write(s) carried over, buckets per shard: {}", moves.size(),
+                (System.nanoTime() - start) / 1_000_000, carriedOver, bucketsPerShard);
+        return new ShardRebalanceResult(moves.size(), bucketsPerShard);
+    }
+
+    private static int share(int shard, int shards) {
+        return ShardDirectory.BUCKETS / shards + (shard < ShardDirectory.BUCKETS % shards ? 1 : 0);
+    }
+
+    // copies the bucket and hands it to the new shard; returns the version of every row copied
+    private Map<UUID, Long> copy(int bucket, int from, int to) {
+
+        JdbcTemplate source = new JdbcTemplate(directory.shard(from));
+        JdbcTemplate target = new JdbcTemplate(directory.shard(to));
+
+        Lock lock = directory.lock(bucket).writeLock();
+        lock.lock();
+        try {
+            // leftovers of an earlier, interrupted move
+            target.update("delete from customer" + IN_BUCKET, bucket);
+
+            Rows rows = read(source, bucket);
+            if (!rows.values().isEmpty()) {
+                target.batchUpdate(insert(rows), rows.values());
+            }
+            directory.reassign(bucket, to);
+            log.debug("Moved bucket {} with {} customer(s) from shard {} to shard {}",
+                    bucket, rows.values().size(), from, to);
+            return versions(rows);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies what instances that had not reloaded the directory yet wrote to the old shard since
+     * the copy: new rows are added, changed ones replace the copy and deleted ones are removed,
+     * each only if the copy was not changed on the new shard in the meantime. Then the old rows go.
+     */
+    private int finish(Move move) {
+
+        JdbcTemplate source = new JdbcTemplate(directory.shard(move.from()));
+        JdbcTemplate target = new JdbcTemplate(directory.shard(move.to()));
+        TransactionTemplate targetTransaction =
+                new TransactionTemplate(new DataSourceTransactionManager(directory.shard(move.to())));
+
+        Lock lock = directory.lock(move.bucket()).writeLock();
+        lock.lock();
+        try {
+            Rows rows = read(source, move.bucket());
+            int idColumn = rows.index("ID");
+            int versionColumn = rows.index("VERSION");
+            String insert = insert(rows);
+
+            int carriedOver = targetTransaction.execute(status -> {
+                int changes = 0;
+                Map<UUID, Long> removed = new HashMap<>(move.copied());
+                for (Object[] row : rows.values()) {
+                    UUID id = (UUID) row[idColumn];
+                    Long version = row[versionColumn] != null ? ((Number) row[versionColumn]).longValue() : null;
+                    if (!move.copied().containsKey(id)) {
+                        target.update(insert, row);
+                        changes++;
+                    } else if (!Objects.equals(removed.get(id), version)) {
+                        if (deleteIfUnchanged(target, id, removed.get(id))) {
+                            target.update(insert, row);
+                            changes++;
+                        } else {
+                            log.warn("Customer id: {} changed on both shard {} and shard {} during a move, "
+                                    + "keeping shard {}", id, move.from(), move.to(), move.to());
+                        }
+                    }
+                    removed.remove(id);
+                }
+                for (Map.Entry<UUID, Long> gone : removed.entrySet()) {
+                    if (deleteIfUnchanged(target, gone.getKey(), gone.getValue())) {
+                        changes++;
+                    }
+                }
+                return changes;
+            });
+
+            source.update("delete from customer" + IN_BUCKET, move.bucket());
+            return carriedOver;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean deleteIfUnchanged(JdbcTemplate target, UUID id, Long version) {
+        return target.update("delete from customer where id = ? and version is not distinct from ?", id, version) == 1;
+    }
+
+    // every column but the generated bucket
+    private static Rows read(JdbcTemplate shard, int bucket) {
+
+        List<String> columns = new ArrayList<>();
+        List<Object[]> values = new ArrayList<>();
+        shard.query("select * from customer" + IN_BUCKET, (ResultSet resultSet) -> {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            if (columns.isEmpty()) {
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    columns.add(metaData.getColumnName(i));
+                }
+            }
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = resultSet.getObject(i + 1);
+            }
+            values.add(row);
+        }, bucket);
+
+        int generated = columns.indexOf("BUCKET");
+        if (generated < 0) {
+            return new Rows(columns, values);
+        }
+        columns.remove(generated);
+        List<Object[]> stored = new ArrayList<>(values.size());
+        for (Object[] row : values) {
+            Object[] copy = new Object[row.length - 1];
+            System.arraycopy(row, 0, copy, 0, generated);
+            System.arraycopy(row, generated + 1, copy, generated, row.length - generated - 1);
+            stored.add(copy);
+        }
+        return new Rows(columns, stored);
+    }
+
+    private static String insert(Rows rows) {
+        return "insert into customer (" + String.join(", ", rows.columns()) + ") values ("
+                + String.join(", ", Collections.nCopies(rows.columns().size(), "?")) + ")";
+    }
+
+    private static Map<UUID, Long> versions(Rows rows) {
+
+        int idColumn = rows.index("ID");
+        int versionColumn = rows.index("VERSION");
+        Map<UUID, Long> versions = new HashMap<>();
+        for (Object[] row : rows.values()) {
+            versions.put((UUID) row[idColumn],
+                    row[versionColumn] != null ? ((Number) row[versionColumn]).longValue() : null);
+        }
+        return versions;
+    }
+
+    static boolean hasTable(DataSource dataSource, String table) {
+        try (Connection connection = dataSource.getConnection();
+             ResultSet tables = connection.getMetaData().getTables(null, null, table, null)) {
+            return tables.next();
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not inspect a shard", ex);
+        }
+    }
+
+    // H2 specific: the customer table with its indexes and constraints as DDL
+    private static List<String> customerTableScript(DataSource dataSource) {
+
+        List<String> schema = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet script = statement.executeQuery("script nodata table customer")) {
+            while (script.next()) {
+                String sql = script.getString(1);
+                if (!sql.startsWith("CREATE USER")) {
+                    schema.add(sql);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not read the customer table layout", ex);
+        }
+        return schema;
+    }
+}
@@ -0,0 +1,80 @@
+package com.spring.customer.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single auto-configured DataSource with one per shard behind a
+ * {@link ShardRoutingDataSource}. Shard 0 is spring.datasource and also holds the shard
+ * directory; customer.sharding.urls lists the others, which share its credentials and driver.
+ * Shards are only ever appended: removing one that still owns buckets fails the startup.
+ */
+@Configuration
+@ConditionalOnProperty(name = "customer.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource shard0DataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("shard-0");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ShardDirectory shardDirectory(@Qualifier("shard0DataSource") HikariDataSource shard0DataSource,
+                                         DataSourceProperties properties,
+                                         @Value("${customer.sharding.urls:}") List<String> urls,
+                                         @Value("${customer.sharding.pool-size:20}") int poolSize,
+                                         @Value("${customer.datasource.routing.enabled:false}") boolean replicaRouting,
+                                         MeterRegistry meterRegistry) {
+        if (replicaRouting) {
+            throw new IllegalStateException(
+                    "customer.sharding.enabled and customer.datasource.routing.enabled cannot be combined yet");
+        }
+
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(shard0DataSource);
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource shard = new HikariDataSource();
+            shard.setJdbcUrl(url.trim());
+            shard.setDriverClassName(properties.determineDriverClassName());
+            shard.setUsername(properties.determineUsername());
+            shard.setPassword(properties.determinePassword());
+            shard.setMaximumPoolSize(poolSize);
+            shard.setPoolName("shard-" + shards.size());
+            shard.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            shards.add(shard);
+        }
+        return new ShardDirectory(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDirectory shardDirectory) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int shard = 0; shard < shardDirectory.shardCount(); shard++) {
+            shards.add(shardDirectory.shard(shard));
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(shards);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,176 @@
+package com.spring.customer.tier;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.Membership;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneId;
+
+/**
+ * Membership rules from {@link TierProperties}: PLATINUM, then GOLD, is given to a customer whose
+ * spend reaches the tier's minimum and whose last purchase is within its recency window;
+ * everyone else is SILVER.
+ * <p>
+ * Evaluation does not allocate. Thresholds are converted once, and the cutoff dates are worked
+ * out once per day of the injected {@link Clock} and reused until the clock passes midnight.
+ * The thresholds and cutoffs are exposed so bulk SQL updates can apply the same rules in the
+ * database.
+ */
+@Component
+public class TierCalculator {
+
+    /** Epoch day to pass to {@link #evaluate} for a customer without a purchase. */
+    public static final long NO_PURCHASE = Long.MIN_VALUE;
+
+    // highest first; the SQL in CustomerRepo assumes exactly these two ranked tiers
+    private static final Membership[] RANKED = {Membership.PLATINUM, Membership.GOLD};
+
+    private final Clock clock;
+    private final BigDecimal[] minSpend = new BigDecimal[RANKED.length];
+    private final long[] minSpendCents = new long[RANKED.length];
+    private final Period[] recency = new Period[RANKED.length];
+    private volatile Cutoffs cutoffs;
+
+    /** Cutoff epoch days per ranked tier, valid for [validFrom, validUntil) in clock millis. */
+    private record Cutoffs(long validFrom, long validUntil, LocalDate today, long[] epochDays) { }
+
+    @Autowired
+    public TierCalculator(Clock clock, TierProperties properties) {
+        this.clock = clock;
+
+        if (properties.getRules().containsKey(Membership.SILVER)) {
+            throw new IllegalStateException("SILVER is the default tier and takes no rule");
+        }
+        for (int i = 0; i < RANKED.length; i++) {
+            TierProperties.Rule rule = properties.getRules().get(RANKED[i]);
+            if (rule == null || rule.getMinSpend() == null || rule.getRecency() == null) {
+                throw new IllegalStateException("customer.tier.rules." + RANKED[i]
+                        + " needs both min-spend and recency");
+            }
+            minSpend[i] = rule.getMinSpend();
+            minSpendCents[i] = rule.getMinSpend().movePointRight(2)
+                    .setScale(0, RoundingMode.CEILING).longValueExact();
+            recency[i] = rule.getRecency();
+        }
+    }
+
+    /** Default rules on the system clock. */
+    public TierCalculator() {
+        this(Clock.systemDefaultZone(), new TierProperties());
+    }
+
+    public Membership calculate(Customer customer) {
+        return calculate(customer.getAnnualSpend(), customer.getLastPurchaseDate());
+    }
+
+    public Membership calculate(BigDecimal spend, LocalDate lastPurchase) {
+
+        if (lastPurchase == null) {
+            return Membership.SILVER;
+        }
+
+        BigDecimal spends = spend != null ? spend : BigDecimal.ZERO;
+        long purchased = lastPurchase.toEpochDay();
+        long[] cutoffDays = cutoffs().epochDays();
+
+        for (int i = 0; i < RANKED.length; i++) {
+            if (spends.compareTo(minSpend[i]) >= 0 && purchased > cutoffDays[i]) {
+                return RANKED[i];
+            }
+        }
+        return Membership.SILVER;
+    }
+
+    /**
+     * Primitive form for callers that already hold the raw column values: spend in cents (the
+     * column has scale 2) and the last purchase as an epoch day, or {@link #NO_PURCHASE}.
+     */
+    public Membership evaluate(long spendCents, long lastPurchaseEpochDay) {
+
+        long[] cutoffDays = cutoffs().epochDays();
+
+        for (int i = 0; i < RANKED.length; i++) {
+            if (spendCents >= minSpendCents[i] && lastPurchaseEpochDay > cutoffDays[i]) {
+                return RANKED[i];
+            }
+        }
+        return Membership.SILVER;
+    }
+
+    /**
+     * Evaluates rows {@code [from, to)} of the columns into {@code tiers}, reading the cutoffs
+     * once for the whole range.
+     */
+    public void evaluate(long[] spendCents, long[] lastPurchaseEpochDays, Membership[] tiers, int from, int to) {
+
+        long[] cutoffDays = cutoffs().epochDays();
+
+        for (int row = from; row < to; row++) {
+            Membership tier = Membership.SILVER;
+            for (int i = 0; i < RANKED.length; i++) {
+                if (spendCents[row] >= minSpendCents[i] && lastPurchaseEpochDays[row] > cutoffDays[i]) {
+                    tier = RANKED[i];
+                    break;
+                }
+            }
+            tiers[row] = tier;
+        }
+    }
+
+    /** Today on the engine's clock. */
+    public LocalDate today() {
+        return cutoffs().today();
+    }
+
+    public BigDecimal platinumSpend() {
+        return minSpend[0];
+    }
+
+    public BigDecimal goldSpend() {
+        return minSpend[1];
+    }
+
+    /** A PLATINUM purchase must be strictly after this date. */
+    public LocalDate platinumCutoff(LocalDate today) {
+        return today.minus(recency[0]);
+    }
+
+    /** A GOLD purchase must be strictly after this date. */
+    public LocalDate goldCutoff(LocalDate today) {
+        return today.minus(recency[1]);
+    }
+
+    private Cutoffs cutoffs() {
+
+        Cutoffs current = cutoffs;
+        long now = clock.millis();
+        if (current == null || now < current.validFrom() || now >= current.validUntil()) {
+            current = computeCutoffs();
+            cutoffs = current;
+        }
+        return current;
+    }
+
+    private Cutoffs computeCutoffs() {
+
+        ZoneId zone = clock.getZone();
+        LocalDate today = LocalDate.now(clock);
+
+        long[] epochDays = new long[RANKED.length];
+        for (int i = 0; i < RANKED.length; i++) {
+            epochDays[i] = today.minus(recency[i]).toEpochDay();
+        }
+
+        return new Cutoffs(
+                today.atStartOfDay(zone).toInstant().toEpochMilli(),
+                today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli(),
+                today,
+                epochDays);
+    }
+}
@@ -0,0 +1,56 @@
+package com.spring.customer.tier;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The two columns tiers depend on, held as primitive arrays for bulk evaluation: spend in cents
+ * and the last purchase as an epoch day ({@link TierCalculator#NO_PURCHASE} when there is none).
+ * Row {@code i} of every array belongs to {@code id(i)}.
+ */
+public class TierColumns {
+
+    private UUID[] ids;
+    private long[] spendCents;
+    private long[] lastPurchaseEpochDays;
+    private int size;
+
+    public TierColumns(int capacity) {
+        int initial = Math.max(capacity, 16);
+        this.ids = new UUID[initial];
+        this.spendCents = new long[initial];
+        this.lastPurchaseEpochDays = new long[initial];
+    }
+
+    public void add(UUID id, long spendCents, long lastPurchaseEpochDay) {
+
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            this.spendCents = Arrays.copyOf(this.spendCents, capacity);
+            lastPurchaseEpochDays = Arrays.copyOf(lastPurchaseEpochDays, capacity);
+        }
+        ids[size] = id;
+        this.spendCents[size] = spendCents;
+        lastPurchaseEpochDays[size] = lastPurchaseEpochDay;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public UUID id(int row) {
+        return ids[row];
+    }
+
+    /** Backing array, valid up to {@link #size()}. */
+    public long[] spendCents() {
+        return spendCents;
+    }
+
+    /** Backing array, valid up to {@link #size()}. */
+    public long[] lastPurchaseEpochDays() {
+        return lastPurchaseEpochDays;
+    }
+}
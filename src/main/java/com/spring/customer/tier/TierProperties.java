@@ -0,0 +1,59 @@
+package com.spring.customer.tier;
+
+import com.spring.customer.enumerator.Membership;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Period;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tier rules under {@code customer.tier.rules.<MEMBERSHIP>}: the minimum annual spend and how
+ * recent the last purchase must be. SILVER is what is left and takes no rule.
+ */
+@Component
+@ConfigurationProperties(prefix = "customer.tier")
+public class TierProperties {
+
+    private Map<Membership, Rule> rules = new EnumMap<>(Map.of(
+            Membership.PLATINUM, new Rule(BigDecimal.valueOf(10000), Period.ofMonths(6)),
+            Membership.GOLD, new Rule(BigDecimal.valueOf(1000), Period.ofMonths(12))));
+
+    public Map<Membership, Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(Map<Membership, Rule> rules) {
+        this.rules = rules;
+    }
+
+    public static class Rule {
+        private BigDecimal minSpend;
+        private Period recency;
+
+        public Rule() { }
+
+        public Rule(BigDecimal minSpend, Period recency) {
+            this.minSpend = minSpend;
+            this.recency = recency;
+        }
+
+        public BigDecimal getMinSpend() {
+            return minSpend;
+        }
+
+        public void setMinSpend(BigDecimal minSpend) {
+            this.minSpend = minSpend;
+        }
+
+        public Period getRecency() {
+            return recency;
+        }
+
+        public void setRecency(Period recency) {
+            this.recency = recency;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.spring.customer.tier;
+
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.repository.CustomerRepo;
+import com.spring.customer.shard.CustomerShards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Keeps the stored tier column honest as time passes. Tiers only ever drop without a write
+ * (a purchase leaves the recency window), so each run demotes the rows whose last purchase
+ * crossed a cutoff since the previous run; both statements are driven by the tier index.
+ * The demotions are recorded in the {@link TierChangeOutbox} in the same transaction.
+ */
+@Component
+public class TierRefreshJob {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(TierRefreshJob.class);
+
+    private final CustomerRepo customerRepo;
+    private final CustomerShards customerShards;
+    private final TierCalculator tierCalculator;
+    private final TierChangeOutbox tierChangeOutbox;
+    private final TransactionTemplate transactionTemplate;
+
+    public TierRefreshJob(CustomerRepo customerRepo, CustomerShards customerShards, TierCalculator tierCalculator,
+                          TierChangeOutbox tierChangeOutbox, TransactionTemplate transactionTemplate) {
+        this.customerRepo = customerRepo;
+        this.customerShards = customerShards;
+        this.tierCalculator = tierCalculator;
+        this.tierChangeOutbox = tierChangeOutbox;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillMissingTiers() {
+
+        LocalDate today = tierCalculator.today();
+        int updated = sum(customerShards.onEveryShard(() -> customerRepo.backfillMissingTiers(
+                tierCalculator.platinumSpend(), tierCalculator.platinumCutoff(today),
+                tierCalculator.goldSpend(), tierCalculator.goldCutoff(today))));
+
+        if (updated > 0) {
+            log.info("Backfilled tier for {} customer(s)", updated);
+        }
+    }
+
+    @Scheduled(cron = "${customer.tier.refresh-cron:0 5 0 * * *}")
+    public int demoteLapsedTiers() {
+
+        LocalDate today = tierCalculator.today();
+        LocalDate goldCutoff = tierCalculator.goldCutoff(today);
+
+        List<int[]> perShard = customerShards.onEveryShard(() -> transactionTemplate.execute(status -> {
+            tierChangeOutbox.recordDemotions(today, tierCalculator);
+            return new int[] {
+                    customerRepo.demoteLapsedPlatinum(tierCalculator.platinumCutoff(today), tierCalculator.goldSpend(), goldCutoff),
+                    customerRepo.demoteLapsedGold(goldCutoff)};
+        }));
+        int platinum = perShard.stream().mapToInt(counts -> counts[0]).sum();
+        int gold = perShard.stream().mapToInt(counts -> counts[1]).sum();
+
+        log.info("Tier refresh demoted {} PLATINUM and {} GOLD customer(s)", platinum, gold);
+
+        return platinum + gold;
+    }
+
+    private static int sum(List<Integer> perShard) {
+        return perShard.stream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,161 @@
+package com.spring.customer.touch;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.TouchMode;
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.repository.CustomerRepo;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records that a customer was looked up today ("touched") by moving its lastPurchaseDate.
+ * <p>
+ * In {@link TouchMode#SYNC} mode the touch is written straight away. In
+ * {@link TouchMode#BUFFERED} mode it is kept in memory, deduplicated per customer per day, and
+ * written by {@link #flush()} as one bulk UPDATE per chunk of ids read at the same version.
+ * Either way the UPDATE only sets lastPurchaseDate and re-derives the stored tier from the
+ * current spend, and only on rows still at the version the lookup read: a write that landed in
+ * between (PUT, PATCH, bulk update, import) keeps the lastPurchaseDate it set, and the touch
+ * itself does not bump the version. The tier changes it makes are recorded in the
+ * {@link TierChangeOutbox} in the same transaction.
+ */
+@Component
+public class CustomerTouchBuffer {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(CustomerTouchBuffer.class);
+
+    private final CustomerRepo customerRepo;
+    private final CustomerShards customerShards;
+    private final TierCalculator tierCalculator;
+    private final TierChangeOutbox tierChangeOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final TouchMode mode;
+    private final int batchSize;
+    private final ConcurrentHashMap<UUID, Touch> pending = new ConcurrentHashMap<>();
+
+    public CustomerTouchBuffer(CustomerRepo customerRepo,
+                               CustomerShards customerShards,
+                               TierCalculator tierCalculator,
+                               TierChangeOutbox tierChangeOutbox,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${customer.touch.mode:BUFFERED}") TouchMode mode,
+                               @Value("${customer.touch.batch-size:500}") int batchSize) {
+        this.customerRepo = customerRepo;
+        this.customerShards = customerShards;
+        this.tierCalculator = tierCalculator;
+        this.tierChangeOutbox = tierChangeOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.mode = mode;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Touches the customer and returns the state a lookup should report. The returned instance
+     * is a copy; the loaded entity is left untouched so nothing flushes it.
+     */
+    public Customer touch(Customer customer) {
+
+        LocalDate today = tierCalculator.today();
+        if (today.equals(customer.getLastPurchaseDate())) {
+            return customer;
+        }
+
+        Touch touch = new Touch(today, customer.getVersion());
+        if (mode == TouchMode.SYNC) {
+            customerShards.onShardOf(customer.getId(), () -> write(List.of(customer.getId()), touch));
+            log.debug("Updated lastPurchaseDate for customer id: {}", customer.getId());
+        } else {
+            pending.merge(customer.getId(), touch, Touch::latest);
+            log.debug("Buffered lastPurchaseDate touch for customer id: {}", customer.getId());
+        }
+
+        Customer touched = new Customer(customer.getId(), customer.getName(), customer.getEmail(),
+                customer.getAnnualSpend(), today);
+        touched.setTier(tierCalculator.calculate(touched));
+        touched.setVersion(customer.getVersion());
+        return touched;
+    }
+
+    @Scheduled(fixedDelayString = "${customer.touch.flush-interval:PT5S}")
+    public int flush() {
+
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        Map<Touch, List<UUID>> byTouch = new HashMap<>();
+        for (Map.Entry<UUID, Touch> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                byTouch.computeIfAbsent(entry.getValue(), touch -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        int updated = 0;
+        for (Map.Entry<Touch, List<UUID>> entry : byTouch.entrySet()) {
+            List<UUID> ids = entry.getValue();
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<UUID> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                try {
+                    // every shard updates the ids it holds
+                    updated += customerShards.onEveryShard(() -> write(chunk, entry.getKey()))
+                            .stream().mapToInt(Integer::intValue).sum();
+                } catch (RuntimeException ex) {
+                    log.error("Failed to flush {} lastPurchaseDate touch(es), re-queueing", chunk.size(), ex);
+                    chunk.forEach(id -> pending.merge(id, entry.getKey(), Touch::latest));
+                }
+            }
+        }
+
+        log.debug("Flushed lastPurchaseDate touches, {} row(s) updated", updated);
+        return updated;
+    }
+
+    private int write(List<UUID> ids, Touch touch) {
+
+        return transactionTemplate.execute(status -> {
+            tierChangeOutbox.recordTouches(ids, touch.date(), touch.version(), tierCalculator);
+            return customerRepo.touchLastPurchaseDate(ids, touch.date(), touch.version(),
+                    tierCalculator.platinumSpend(), tierCalculator.goldSpend());
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing {} pending lastPurchaseDate touch(es) before shutdown", pending.size());
+        flush();
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public TouchMode getMode() {
+        return mode;
+    }
+
+    /** The day a lookup touched a customer and the version it read; flushed ids are grouped by both. */
+    private record Touch(LocalDate date, Long version) {
+
+        // a later day wins, and on the same day the touch of a later read
+        static Touch latest(Touch queued, Touch touched) {
+            if (!touched.date.equals(queued.date)) {
+                return touched.date.isAfter(queued.date) ? touched : queued;
+            }
+            boolean laterRead = touched.version != null
+                    && (queued.version == null || touched.version > queued.version);
+            return laterRead ? touched : queued;
+        }
+    }
+}
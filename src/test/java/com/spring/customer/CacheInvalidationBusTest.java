@@ -0,0 +1,105 @@
+package com.spring.customer;
+
+import com.spring.customer.cache.CacheInvalidation;
+import com.spring.customer.cache.CacheInvalidationRelay;
+import com.spring.customer.cache.CustomerCache;
+import com.spring.customer.cache.CustomerEmailFilter;
+import com.spring.customer.cache.LoopbackInvalidationBus;
+import com.spring.customer.cache.UdpInvalidationBus;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CacheInvalidationBusTest {
+
+    /** One node's cache and relay; nodes built on the same bus see each other's changes. */
+    private record Node(CustomerCache cache, CacheInvalidationRelay relay) {
+
+        static Node on(LoopbackInvalidationBus bus) {
+            CustomerCache cache = new CustomerCache(100, Duration.ofMinutes(10), 100, Duration.ofMinutes(1));
+            CustomerEmailFilter filter = new CustomerEmailFilter(mock(CustomerJdbcRepo.class), 1000, 0.01);
+            return new Node(cache, new CacheInvalidationRelay(bus, cache, filter));
+        }
+    }
+
+    private Customer customer(UUID id, long version) {
+        Customer customer = new Customer(id, "Test", "a@test.com", BigDecimal.valueOf(100), LocalDate.now());
+        customer.setVersion(version);
+        return customer;
+    }
+
+
+    @Test
+    void shouldEvictOtherNodesAndRefuseTheOutdatedVersionAfterwards() {
+        LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+        Node writer = Node.on(bus);
+        Node reader = Node.on(bus);
+        UUID id = UUID.randomUUID();
+
+        reader.cache().put(customer(id, 1), reader.cache().stamp());
+        writer.cache().put(customer(id, 1), writer.cache().stamp());
+
+        writer.relay().customerSaved(customer(id, 2));
+
+        assertNull(reader.cache().getById(id));
+        assertNotNull(writer.cache().getById(id), "a node skips its own messages");
+
+        // a lookup that read version 1 before the update must not bring it back
+        long stamp = reader.cache().stamp();
+        reader.cache().put(customer(id, 1), stamp);
+        assertNull(reader.cache().getById(id));
+
+        reader.cache().put(customer(id, 2), stamp);
+        assertEquals(2L, reader.cache().getById(id).getVersion());
+    }
+
+    @Test
+    void shouldKeepNewerEntriesWhenAnInvalidationArrivesLate() {
+        LoopbackInvalidationBus bus = new LoopbackInvalidationBus();
+        Node writer = Node.on(bus);
+        Node reader = Node.on(bus);
+        UUID id = UUID.randomUUID();
+
+        reader.cache().put(customer(id, 3), reader.cache().stamp());
+        writer.relay().customerSaved(customer(id, 2));
+
+        assertEquals(3L, reader.cache().getById(id).getVersion());
+
+        writer.relay().customerDeleted(id);
+        assertNull(reader.cache().getById(id));
+        reader.cache().put(customer(id, 3), reader.cache().stamp());
+        assertNull(reader.cache().getById(id), "no version of a deleted customer is cached again");
+    }
+
+    @Test
+    void shouldCarryInvalidationsOverUdp() throws Exception {
+        UdpInvalidationBus receiver = new UdpInvalidationBus(0, "");
+        UdpInvalidationBus sender = new UdpInvalidationBus(0, "localhost:" + receiver.getLocalPort());
+        try {
+            BlockingQueue<CacheInvalidation> received = new LinkedBlockingQueue<>();
+            receiver.subscribe(received::add);
+
+            CacheInvalidation saved = new CacheInvalidation(UUID.randomUUID(), UUID.randomUUID(), "é@test.com", 7L, false);
+            CacheInvalidation deleted = new CacheInvalidation(UUID.randomUUID(), UUID.randomUUID(), null, null, true);
+            sender.publish(saved);
+            sender.publish(deleted);
+
+            assertEquals(saved, received.poll(5, TimeUnit.SECONDS));
+            assertEquals(deleted, received.poll(5, TimeUnit.SECONDS));
+        } finally {
+            sender.close();
+            receiver.close();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.spring.customer;
+
+import com.spring.customer.cache.CustomerEmailFilter;
+import com.spring.customer.dto.BulkChangeResult;
+import com.spring.customer.dto.BulkCreateResult;
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.CustomerSelection;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.BulkItemStatus;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.mapper.CustomerMapper;
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.repository.CustomerRepo;
+import com.spring.customer.service.CustomerChangePublisher;
+import com.spring.customer.service.CustomerService;
+import com.spring.customer.service.serviceimpl.CustomerBulkServiceImpl;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomerBulkServiceImplTest {
+
+    private CustomerRepo customerRepo;
+    private CustomerJdbcRepo customerJdbcRepo;
+    private CustomerService customerService;
+    private CustomerBulkServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        customerRepo = mock(CustomerRepo.class);
+        customerJdbcRepo = mock(CustomerJdbcRepo.class);
+        customerService = mock(CustomerService.class);
+        when(customerService.calculateTier(any())).thenReturn(Membership.GOLD);
+        when(customerRepo.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Customer> saved = new ArrayList<>(invocation.<List<Customer>>getArgument(0));
+            saved.forEach(c -> c.setId(UUID.randomUUID()));
+            return saved;
+        });
+
+        service = new CustomerBulkServiceImpl(
+                customerRepo,
+                customerJdbcRepo,
+                CustomerShards.unsharded(),
+                new CustomerEmailFilter(mock(CustomerJdbcRepo.class), 1000, 0.01),
+                customerService,
+                new CustomerMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new CustomerChangePublisher(List.of()),
+                new TierCalculator(),
+                TierChangeOutbox.disabled(),
+                2,
+                100
+        );
+    }
+
+    private Customer customer(String email) {
+        return new Customer(null, "Test", email, BigDecimal.valueOf(2000), LocalDate.now());
+    }
+
+
+    @Test
+    void shouldCreateValidCustomersInChunks() {
+        List<BulkCreateResult> results = service.createCustomers(List.of(
+                customer("a@test.com"), customer("b@test.com"), customer("c@test.com")));
+
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(r -> r.getStatus() == BulkItemStatus.CREATED));
+        assertEquals(Membership.GOLD, results.get(2).getCustomer().getTier());
+        verify(customerRepo, times(2)).saveAll(anyList());
+    }
+
+
+    @Test
+    void shouldReportInvalidAndDuplicateItemsWithoutFailingBatch() {
+        when(customerRepo.findExistingEmails(anyCollection())).thenReturn(List.of("taken@test.com"));
+
+        List<BulkCreateResult> results = service.createCustomers(List.of(
+                customer("a@test.com"),
+                customer("not-an-email"),
+                customer("a@test.com"),
+                customer("taken@test.com")));
+
+        assertEquals(BulkItemStatus.CREATED, results.get(0).getStatus());
+        assertEquals(BulkItemStatus.INVALID, results.get(1).getStatus());
+        assertTrue(results.get(1).getError().contains("email"));
+        assertEquals(BulkItemStatus.DUPLICATE, results.get(2).getStatus());
+        assertEquals(BulkItemStatus.DUPLICATE, results.get(3).getStatus());
+    }
+
+
+    @Test
+    void shouldFallBackToSingleInsertsWhenBatchViolatesConstraint() {
+        when(customerRepo.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(customerRepo.saveAndFlush(any())).thenAnswer(invocation -> {
+            Customer c = invocation.getArgument(0);
+            if (c.getEmail().equals("b@test.com")) {
+                throw new DataIntegrityViolationException("duplicate");
+            }
+            c.setId(UUID.randomUUID());
+            return c;
+        });
+
+        List<BulkCreateResult> results = service.createCustomers(List.of(
+                customer("a@test.com"), customer("b@test.com")));
+
+        assertEquals(BulkItemStatus.CREATED, results.get(0).getStatus());
+        assertEquals(BulkItemStatus.DUPLICATE, results.get(1).getStatus());
+    }
+
+
+    @Test
+    void shouldRejectOversizedRequest() {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            customers.add(customer(i + "@test.com"));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> service.createCustomers(customers));
+    }
+
+
+    @Test
+    void shouldDeleteListedIdsOneStatementPerChunk() {
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        when(customerJdbcRepo.deleteSelected(any(), isNull(), eq(2)))
+                .thenAnswer(invocation -> invocation.<CustomerSelection>getArgument(0).getIds());
+        CustomerSelection selection = new CustomerSelection();
+        selection.setIds(ids);
+
+        BulkChangeResult result = service.deleteCustomers(selection);
+
+        assertEquals(3, result.getAffected());
+        assertEquals(2, result.getStatements());
+    }
+
+
+    @Test
+    void shouldWalkCriteriaByIdUntilAChunkComesBackShort() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        Customer updated = customer("a@test.com");
+        updated.setId(UUID.randomUUID());
+        when(customerJdbcRepo.updateSelected(any(), isNull(), eq(2), any(), any()))
+                .thenReturn(List.of(withId(first), withId(second)));
+        when(customerJdbcRepo.updateSelected(any(), eq(second), eq(2), any(), any()))
+                .thenReturn(List.of(updated));
+        CustomerSelection selection = new CustomerSelection();
+        selection.setAll(true);
+        CustomerPatch patch = new CustomerPatch();
+        patch.setAnnualSpend(BigDecimal.ZERO);
+
+        BulkChangeResult result = service.updateCustomers(selection, patch);
+
+        assertEquals(3, result.getAffected());
+        assertEquals(2, result.getStatements());
+    }
+
+
+    @Test
+    void shouldRefuseAnEmptySelectionOrAnUpdateOfIdentityFields() {
+        CustomerPatch patch = new CustomerPatch();
+        patch.setEmail("a@test.com");
+        CustomerSelection all = new CustomerSelection();
+        all.setAll(true);
+
+        assertThrows(IllegalArgumentException.class, () -> service.deleteCustomers(new CustomerSelection()));
+        assertThrows(IllegalArgumentException.class, () -> service.updateCustomers(all, patch));
+        verifyNoInteractions(customerJdbcRepo);
+    }
+
+    private Customer withId(UUID id) {
+        Customer customer = customer(id + "@test.com");
+        customer.setId(id);
+        return customer;
+    }
+}
@@ -0,0 +1,93 @@
+package com.spring.customer;
+
+import com.spring.customer.cache.CustomerCache;
+import com.spring.customer.entity.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerCacheTest {
+
+    private final CustomerCache cache = new CustomerCache(100, Duration.ofMinutes(10), 100, Duration.ofMinutes(1));
+
+    private Customer customer(String email) {
+        return new Customer(UUID.randomUUID(), "Test", email, BigDecimal.valueOf(100), LocalDate.now());
+    }
+
+
+    @Test
+    void shouldResolveByIdAndEmail() {
+        Customer customer = customer("a@test.com");
+
+        cache.put(customer, cache.stamp());
+
+        assertEquals("a@test.com", cache.getById(customer.getId()).getEmail());
+        assertEquals(customer.getId(), cache.getByEmail("a@test.com").getId());
+        assertEquals(2, cache.stats().hitCount());
+    }
+
+    @Test
+    void shouldStoreDetachedSnapshot() {
+        Customer customer = customer("a@test.com");
+
+        cache.put(customer, cache.stamp());
+        customer.setName("Changed");
+
+        assertEquals("Test", cache.getById(customer.getId()).getName());
+    }
+
+    @Test
+    void shouldDiscardPutThatRacedWithInvalidation() {
+        Customer customer = customer("a@test.com");
+
+        long stamp = cache.stamp();
+        cache.invalidate(customer.getId());
+        cache.put(customer, stamp);
+
+        assertNull(cache.getById(customer.getId()));
+        assertNull(cache.getByEmail("a@test.com"));
+    }
+
+    @Test
+    void shouldDropEmailMappingWhenCustomerIsInvalidated() {
+        Customer customer = customer("a@test.com");
+
+        cache.put(customer, cache.stamp());
+        cache.invalidate(customer.getId());
+
+        assertNull(cache.getByEmail("a@test.com"));
+    }
+
+    @Test
+    void shouldRememberMissesUntilTheCustomerIsSaved() {
+        Customer customer = customer("a@test.com");
+
+        cache.putMissing(customer.getId(), cache.stamp());
+        cache.putMissingEmail("a@test.com", cache.stamp());
+        assertTrue(cache.isMissing(customer.getId()));
+        assertTrue(cache.isMissingEmail("a@test.com"));
+
+        cache.customerSaved(customer);
+
+        assertFalse(cache.isMissing(customer.getId()));
+        assertFalse(cache.isMissingEmail("a@test.com"));
+    }
+
+    @Test
+    void shouldDiscardMissThatRacedWithSave() {
+        Customer customer = customer("a@test.com");
+
+        long stamp = cache.stamp();
+        cache.customerSaved(customer);
+        cache.putMissing(customer.getId(), stamp);
+        cache.putMissingEmail("a@test.com", stamp);
+
+        assertFalse(cache.isMissing(customer.getId()));
+        assertFalse(cache.isMissingEmail("a@test.com"));
+    }
+}
@@ -2,36 +2,110 @@ package com.spring.customer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.spring.customer.controller.CustomerController;
+import com.spring.customer.dto.BulkChangeResult;
+import com.spring.customer.dto.BulkCreateResult;
+import com.spring.customer.dto.CursorPageDto;
 import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.CustomerSelection;
+import com.spring.customer.dto.ImportJobStatus;
+import com.spring.customer.dto.PageDto;
+import com.spring.customer.dto.TierChangeBatch;
+import com.spring.customer.dto.TierEvaluationResult;
 import com.spring.customer.entity.Customer;
+import com.spring.customer.entity.TierChangeEvent;
+import com.spring.customer.enumerator.BulkItemStatus;
+import com.spring.customer.enumerator.ExportFormat;
+import com.spring.customer.enumerator.ImportJobState;
 import com.spring.customer.enumerator.Membership;
+import com.spring.customer.exceptionhandling.PreconditionFailedException;
+import com.spring.customer.metrics.CustomerMetrics;
+import com.spring.customer.outbox.TierChangeFeed;
+import com.spring.customer.service.CustomerBulkService;
+import com.spring.customer.service.CustomerImportService;
+import com.spring.customer.service.CustomerSearchService;
 import com.spring.customer.service.CustomerService;
+import com.spring.customer.service.CustomerStreamService;
+import com.spring.customer.service.CustomerTierService;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.tier.TierProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(CustomerController.class)
+@Import({CustomerMetrics.class, SimpleMeterRegistry.class})
 class CustomerControllerTest {
 
+    // the tier clock, deliberately not the system date: lookups and their ETags follow it
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 15);
+
+    @TestConfiguration
+    static class TierClockConfig {
+        @Bean
+        TierCalculator tierCalculator() {
+            return new TierCalculator(Clock.fixed(TODAY.atTime(12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC),
+                    new TierProperties());
+        }
+    }
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private CustomerService customerService;
 
+    @MockBean
+    private CustomerBulkService customerBulkService;
+
+    @MockBean
+    private CustomerStreamService customerStreamService;
+
+    @MockBean
+    private CustomerSearchService customerSearchService;
+
+    @MockBean
+    private CustomerTierService customerTierService;
+
+    @MockBean
+    private CustomerImportService customerImportService;
+
+    @MockBean
+    private TierChangeFeed tierChangeFeed;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -70,6 +144,67 @@ class CustomerControllerTest {
     }
 
 
+    @Test
+    void addCustomers_shouldReturnPerItemResults() throws Exception {
+
+        Customer valid = new Customer(null, "sonu", "hhh@gmail.com", BigDecimal.valueOf(2000), LocalDate.of(2025, 10, 12));
+        Customer invalid = new Customer(null, "", "not-an-email", BigDecimal.TEN, null);
+
+        CustomerDto created = new CustomerDto(
+                UUID.randomUUID(),
+                "sonu",
+                "hhh@gmail.com",
+                BigDecimal.valueOf(2000),
+                LocalDate.of(2025, 10, 12),
+                Membership.GOLD
+        );
+
+        when(customerBulkService.createCustomers(anyList()))
+                .thenReturn(List.of(
+                        BulkCreateResult.created(0, created),
+                        BulkCreateResult.rejected(1, BulkItemStatus.INVALID, "email: Invalid email format")
+                ));
+
+        mockMvc.perform(post("/Customer/api/customers/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(valid, invalid))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.data[0].customer.tier").value("GOLD"))
+                .andExpect(jsonPath("$.data[1].status").value("INVALID"))
+                .andExpect(jsonPath("$.data[1].error").value("email: Invalid email format"));
+    }
+
+
+    @Test
+    void bulkDeleteAndUpdate_shouldPassTheSelectionAndTheValuesToSet() throws Exception {
+
+        when(customerBulkService.deleteCustomers(any(CustomerSelection.class))).thenReturn(new BulkChangeResult(2, 1));
+        when(customerBulkService.updateCustomers(any(CustomerSelection.class), any(CustomerPatch.class)))
+                .thenReturn(new BulkChangeResult(40, 3));
+
+        mockMvc.perform(post("/Customer/api/customers/bulk/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"purchasedBefore\":\"2020-01-01\",\"tier\":\"SILVER\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.affected").value(2));
+
+        mockMvc.perform(post("/Customer/api/customers/bulk/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"all\":true,\"set\":{\"annualSpend\":0}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.affected").value(40))
+                .andExpect(jsonPath("$.data.statements").value(3));
+
+        ArgumentCaptor<CustomerSelection> selection = ArgumentCaptor.forClass(CustomerSelection.class);
+        ArgumentCaptor<CustomerPatch> patch = ArgumentCaptor.forClass(CustomerPatch.class);
+        verify(customerBulkService).updateCustomers(selection.capture(), patch.capture());
+        assertTrue(selection.getValue().isAll());
+        assertTrue(patch.getValue().isAnnualSpendSet());
+        assertFalse(patch.getValue().isLastPurchaseDateSet());
+    }
+
+
     @Test
     void getCustomerById_shouldReturnCustomer() throws Exception {
         UUID id = UUID.randomUUID();
@@ -92,6 +227,36 @@ class CustomerControllerTest {
     }
 
 
+    @Test
+    void getCustomerById_shouldSendETagAndAnswer304FromTheVersion() throws Exception {
+        UUID id = UUID.randomUUID();
+
+        CustomerDto response = new CustomerDto(id, "sonu", "hhh@gmail.com",
+                BigDecimal.valueOf(2000), TODAY, Membership.GOLD);
+        response.setVersion(4L);
+        String etag = "\"4-" + TODAY.toEpochDay() + "\"";
+
+        when(customerService.getCustomerById(id)).thenReturn(response);
+        when(customerService.getCustomerVersion(id)).thenReturn(4L);
+
+        mockMvc.perform(get("/Customer/api/customers/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(jsonPath("$.data.version").doesNotExist());
+
+        mockMvc.perform(get("/Customer/api/customers/{id}", id).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        verify(customerService, times(1)).getCustomerById(id);
+
+        mockMvc.perform(get("/Customer/api/customers/{id}", id).header("If-None-Match", "\"3-1\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value(id.toString()));
+    }
+
+
     @Test
     void getCustomerByName_shouldReturnList() throws Exception {
 
@@ -119,6 +284,211 @@ class CustomerControllerTest {
 
 
 
+    @Test
+    void getCustomersByTier_shouldReturnPage() throws Exception {
+
+        CustomerDto platinum = new CustomerDto(
+                UUID.randomUUID(),
+                "sonu",
+                "hhh@gmail.com",
+                BigDecimal.valueOf(20000),
+                LocalDate.of(2025, 10, 12),
+                Membership.PLATINUM
+        );
+
+        when(customerService.getCustomersByTier(Membership.PLATINUM, 0, 20))
+                .thenReturn(new PageDto<>(List.of(platinum), 0, 20, false));
+
+        mockMvc.perform(get("/Customer/api/customers")
+                        .param("tier", "PLATINUM"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].tier").value("PLATINUM"))
+                .andExpect(jsonPath("$.data.hasNext").value(false));
+    }
+
+
+    @Test
+    void searchCustomers_shouldReturnRankedPage() throws Exception {
+
+        CustomerDto customer = new CustomerDto(
+                UUID.randomUUID(),
+                "Jigyasu Verma",
+                "jigyasu.verma@gmail.com",
+                BigDecimal.valueOf(2000),
+                LocalDate.of(2025, 10, 12),
+                Membership.GOLD
+        );
+
+        when(customerSearchService.searchCustomers("jigy", 0, 20))
+                .thenReturn(new PageDto<>(List.of(customer), 0, 20, false));
+
+        mockMvc.perform(get("/Customer/api/customers/search")
+                        .param("q", "jigy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].name").value("Jigyasu Verma"))
+                .andExpect(jsonPath("$.data.hasNext").value(false));
+    }
+
+
+    @Test
+    void countCustomersByTier_shouldReturnCounts() throws Exception {
+
+        when(customerService.countCustomersByTier())
+                .thenReturn(Map.of(Membership.SILVER, 4L, Membership.GOLD, 2L, Membership.PLATINUM, 1L));
+
+        mockMvc.perform(get("/Customer/api/customers/tiers/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.GOLD").value(2));
+    }
+
+
+
+    @Test
+    void evaluateTiers_shouldReturnIdsGroupedByTier() throws Exception {
+
+        UUID gold = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+
+        when(customerTierService.evaluateTiers(List.of(gold, missing)))
+                .thenReturn(new TierEvaluationResult(1, Map.of(Membership.GOLD, List.of(gold)), List.of(missing)));
+
+        mockMvc.perform(post("/Customer/api/customers/tiers/evaluate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(gold, missing))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.evaluated").value(1))
+                .andExpect(jsonPath("$.data.tiers.GOLD[0]").value(gold.toString()))
+                .andExpect(jsonPath("$.data.notFound[0]").value(missing.toString()));
+    }
+
+
+
+    @Test
+    void getCustomers_shouldReturnCursorPage() throws Exception {
+
+        UUID id = UUID.randomUUID();
+        UUID next = UUID.randomUUID();
+
+        CustomerDto customer = new CustomerDto(
+                next,
+                "sonu",
+                "hhh@gmail.com",
+                BigDecimal.valueOf(2000),
+                LocalDate.of(2025, 10, 12),
+                Membership.GOLD
+        );
+
+        when(customerService.getCustomers(id, 1))
+                .thenReturn(new CursorPageDto<>(List.of(customer), 1, next));
+
+        mockMvc.perform(get("/Customer/api/customers/list")
+                        .param("after", id.toString())
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].name").value("sonu"))
+                .andExpect(jsonPath("$.data.nextCursor").value(next.toString()));
+    }
+
+
+    @Test
+    void exportCustomers_shouldGzipWhenAccepted() throws Exception {
+
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("id,name\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(customerStreamService).export(any(), eq(ExportFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(get("/Customer/api/customers/export")
+                        .param("format", "csv")
+                        .param("tier", "GOLD")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"customers.csv\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("id,name\r\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        verify(customerStreamService).export(argThat(filter -> filter.getTier() == Membership.GOLD),
+                eq(ExportFormat.CSV), any());
+    }
+
+
+    @Test
+    void exportCustomers_shouldRejectAnInvertedSpendRange() throws Exception {
+
+        mockMvc.perform(get("/Customer/api/customers/export")
+                        .param("minSpend", "500")
+                        .param("maxSpend", "100"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("minSpend must not be greater than maxSpend"));
+    }
+
+
+    @Test
+    void importCustomers_shouldAcceptTheFileAndPointToTheJob() throws Exception {
+
+        UUID jobId = UUID.randomUUID();
+        when(customerImportService.startImport(any())).thenReturn(
+                new ImportJobStatus(jobId, ImportJobState.QUEUED, 0, 0, 0, 0, null, null, null));
+
+        mockMvc.perform(post("/Customer/api/customers/import")
+                        .contentType("text/csv")
+                        .content("name,email\r\nsonu,sonu@test.com\r\n"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/Customer/api/customers/import/" + jobId))
+                .andExpect(jsonPath("$.data.jobId").value(jobId.toString()))
+                .andExpect(jsonPath("$.data.state").value("QUEUED"));
+    }
+
+
+    @Test
+    void getImportStatus_shouldReturnProgressOr404() throws Exception {
+
+        UUID jobId = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        when(customerImportService.getStatus(jobId)).thenReturn(
+                new ImportJobStatus(jobId, ImportJobState.RUNNING, 2000, 1990, 10, 40000, null, null, null));
+        when(customerImportService.getStatus(unknown)).thenThrow(new EntityNotFoundException("Import job not found"));
+
+        mockMvc.perform(get("/Customer/api/customers/import/" + jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.rowsAccepted").value(1990))
+                .andExpect(jsonPath("$.data.rowsRejected").value(10))
+                .andExpect(jsonPath("$.data.rowsPerSecond").value(40000));
+
+        mockMvc.perform(get("/Customer/api/customers/import/" + unknown))
+                .andExpect(status().isNotFound());
+    }
+
+
+    @Test
+    void streamCustomers_shouldWriteNdjson() throws Exception {
+
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"name\":\"sonu\"}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(customerStreamService).writeNdjson(any());
+
+        MvcResult result = mockMvc.perform(get("/Customer/api/customers/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"name\":\"sonu\"}\n"));
+    }
+
+
+
     @Test
     void getCustomerByEmail_shouldReturnCustomer() throws Exception {
 
@@ -158,7 +528,7 @@ class CustomerControllerTest {
                 Membership.GOLD
         );
 
-        when(customerService.updateCustomer(any(CustomerDto.class), eq(id)))
+        when(customerService.updateCustomer(any(CustomerDto.class), eq(id), isNull()))
                 .thenReturn(updated);
 
         mockMvc.perform(put("/Customer/api/customers/{id}", id)
@@ -171,6 +541,149 @@ class CustomerControllerTest {
 
 
 
+    @Test
+    void updateCustomer_shouldPassTheIfMatchVersion() throws Exception {
+
+        UUID id = UUID.randomUUID();
+        CustomerDto updated = new CustomerDto(id, "sonu", "hhh@gmail.com",
+                BigDecimal.valueOf(2000), LocalDate.of(2025, 10, 12), Membership.GOLD);
+        updated.setVersion(8L);
+
+        when(customerService.updateCustomer(any(CustomerDto.class), eq(id), eq(7L)))
+                .thenReturn(updated);
+        when(customerService.updateCustomer(any(CustomerDto.class), eq(id), eq(-1L)))
+                .thenThrow(new PreconditionFailedException("Customer with id: " + id + " has been modified"));
+
+        mockMvc.perform(put("/Customer/api/customers/{id}", id)
+                        .header("If-Match", "\"7-20000\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updated)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"8-" + LocalDate.of(2025, 10, 12).toEpochDay() + "\""));
+
+        mockMvc.perform(put("/Customer/api/customers/{id}", id)
+                        .header("If-Match", "W/\"7-20000\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updated)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status").value(412));
+    }
+
+
+
+    @Test
+    void patchCustomer_shouldPassOnlyThePatchedFields() throws Exception {
+
+        UUID id = UUID.randomUUID();
+        CustomerDto patched = new CustomerDto(id, "sonu", "hhh@gmail.com",
+                null, LocalDate.of(2025, 10, 12), Membership.SILVER);
+        patched.setVersion(4L);
+
+        when(customerService.patchCustomer(eq(id), any(CustomerPatch.class), eq(3L), anyBoolean()))
+                .thenReturn(patched);
+
+        mockMvc.perform(patch("/Customer/api/customers/{id}", id)
+                        .header("If-Match", "\"3-20000\"")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"name\":\"sonu\",\"annualSpend\":null}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4-" + LocalDate.of(2025, 10, 12).toEpochDay() + "\""))
+                .andExpect(jsonPath("$.data.name").value("sonu"));
+
+        ArgumentCaptor<CustomerPatch> captor = ArgumentCaptor.forClass(CustomerPatch.class);
+        verify(customerService).patchCustomer(eq(id), captor.capture(), eq(3L), eq(true));
+        assertTrue(captor.getValue().isNameSet());
+        assertTrue(captor.getValue().isAnnualSpendSet());
+        assertNull(captor.getValue().getAnnualSpend());
+        assertFalse(captor.getValue().isEmailSet());
+        assertFalse(captor.getValue().isLastPurchaseDateSet());
+    }
+
+
+    @Test
+    void patchCustomer_shouldAnswerReturnMinimalWithoutABody() throws Exception {
+
+        UUID id = UUID.randomUUID();
+        CustomerDto versionOnly = new CustomerDto();
+        versionOnly.setVersion(4L);
+        versionOnly.setLastPurchaseDate(LocalDate.of(2025, 10, 12));
+
+        when(customerService.patchCustomer(eq(id), any(CustomerPatch.class), isNull(), eq(false)))
+                .thenReturn(versionOnly);
+
+        mockMvc.perform(patch("/Customer/api/customers/{id}", id)
+                        .header("Prefer", "return=minimal")
+                        .contentType("application/merge-patch+json")
+                        .content("{\"lastPurchaseDate\":\"2025-10-12\"}"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Preference-Applied", "return=minimal"))
+                .andExpect(header().string("ETag", "\"4-" + LocalDate.of(2025, 10, 12).toEpochDay() + "\""))
+                .andExpect(content().string(""));
+    }
+
+
+    @Test
+    void patchCustomer_shouldRejectInvalidAndReadOnlyFields() throws Exception {
+
+        UUID id = UUID.randomUUID();
+
+        for (String body : List.of("{\"email\":\"not-an-email\"}", "{\"name\":null}", "{\"tier\":\"GOLD\"}",
+                "{\"nmae\":\"x\"}", "{\"annualSpend\":-1}", "{\"lastPurchaseDate\":\"12/10/2025\"}", "[]")) {
+            mockMvc.perform(patch("/Customer/api/customers/{id}", id)
+                            .contentType("application/merge-patch+json")
+                            .content(body))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.status").value(400));
+        }
+        verify(customerService, never()).patchCustomer(any(), any(), any(), anyBoolean());
+    }
+
+
+    @Test
+    void getTierChanges_shouldReturnBatchAfterOffset() throws Exception {
+
+        UUID customerId = UUID.randomUUID();
+        TierChangeEvent change = new TierChangeEvent(42L, customerId, Membership.SILVER, Membership.GOLD,
+                Instant.parse("2025-10-12T10:15:30Z"));
+
+        when(tierChangeFeed.read(41L, 500)).thenReturn(new TierChangeBatch(List.of(change), 42L, false));
+        when(tierChangeFeed.read(0L, 5000)).thenThrow(new IllegalArgumentException("limit too large"));
+
+        mockMvc.perform(get("/Customer/api/customers/tiers/changes").param("after", "41"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.changes[0].id").value(42))
+                .andExpect(jsonPath("$.data.changes[0].customerId").value(customerId.toString()))
+                .andExpect(jsonPath("$.data.changes[0].fromTier").value("SILVER"))
+                .andExpect(jsonPath("$.data.changes[0].toTier").value("GOLD"))
+                .andExpect(jsonPath("$.data.lastEventId").value(42))
+                .andExpect(jsonPath("$.data.hasMore").value(false));
+
+        mockMvc.perform(get("/Customer/api/customers/tiers/changes").param("limit", "5000"))
+                .andExpect(status().isBadRequest());
+    }
+
+
+    @Test
+    void rebalanceShards_shouldAnswer501WhenNotSharded() throws Exception {
+
+        mockMvc.perform(post("/Customer/api/shards/rebalance"))
+                .andExpect(status().isNotImplemented())
+                .andExpect(jsonPath("$.status").value(501));
+    }
+
+
+    @Test
+    void unsupportedOperation_shouldAnswer500() throws Exception {
+
+        UUID id = UUID.randomUUID();
+        when(customerService.getCustomerById(id)).thenThrow(new UnsupportedOperationException());
+
+        mockMvc.perform(get("/Customer/api/customers/{id}", id))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.status").value(500));
+    }
+
+
     @Test
     void deleteCustomer_shouldReturn204() throws Exception {
 
@@ -0,0 +1,69 @@
+package com.spring.customer;
+
+import com.spring.customer.cache.CustomerEmailFilter;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomerEmailFilterTest {
+
+    private final CustomerJdbcRepo customerJdbcRepo = mock(CustomerJdbcRepo.class);
+    private final CustomerEmailFilter filter = new CustomerEmailFilter(customerJdbcRepo, 10_000, 0.01);
+
+    private void storedEmails(int count) {
+        when(customerJdbcRepo.count()).thenReturn((long) count);
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(1);
+            for (int i = 0; i < count; i++) {
+                consumer.accept("stored" + i + "@test.com");
+            }
+            return null;
+        }).when(customerJdbcRepo).streamEmails(anyInt(), any());
+    }
+
+
+    @Test
+    void shouldTreatEveryEmailAsPossiblyTakenUntilBuilt() {
+        assertTrue(filter.mightContain("new@test.com"));
+    }
+
+    @Test
+    void shouldNeverMissAStoredEmailAndRarelyFlagANewOne() {
+        storedEmails(10_000);
+        filter.rebuild();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("stored" + i + "@test.com"));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("new" + i + "@test.com")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positive rate near 1%, was " + falsePositives / 1000.0 + "%");
+    }
+
+    @Test
+    void shouldAddSavedEmailsIncludingThoseSavedDuringARebuild() {
+        when(customerJdbcRepo.count()).thenReturn(0L);
+        doAnswer(invocation -> {
+            filter.customerSaved(new Customer(UUID.randomUUID(), "Test", "during@test.com", null, null));
+            return null;
+        }).when(customerJdbcRepo).streamEmails(anyInt(), any());
+        filter.rebuild();
+
+        filter.customerSaved(new Customer(UUID.randomUUID(), "Test", "after@test.com", null, null));
+
+        assertTrue(filter.mightContain("during@test.com"));
+        assertTrue(filter.mightContain("after@test.com"));
+        assertFalse(filter.mightContain("never@test.com"));
+    }
+}
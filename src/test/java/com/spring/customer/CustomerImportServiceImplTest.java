@@ -0,0 +1,171 @@
+package com.spring.customer;
+
+import com.spring.customer.cache.CustomerCache;
+import com.spring.customer.dto.ImportJobStatus;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.ImportJobState;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.service.CustomerChangePublisher;
+import com.spring.customer.service.serviceimpl.CustomerImportServiceImpl;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomerImportServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    private CustomerJdbcRepo customerJdbcRepo;
+    private CustomerImportServiceImpl service;
+    private final List<Customer> upserted = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        customerJdbcRepo = mock(CustomerJdbcRepo.class);
+        doAnswer(invocation -> {
+            upserted.addAll(invocation.getArgument(0));
+            return null;
+        }).when(customerJdbcRepo).upsertByEmail(anyList());
+
+        // runs the job on the calling thread, so startImport returns once it is done
+        service = new CustomerImportServiceImpl(
+                customerJdbcRepo,
+                CustomerShards.unsharded(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new TierCalculator(),
+                new CustomerCache(100, Duration.ofMinutes(1), 100, Duration.ofMinutes(1)),
+                new CustomerChangePublisher(List.of()),
+                TierChangeOutbox.disabled(),
+                Runnable::run,
+                directory,
+                2,
+                100
+        );
+    }
+
+    private ImportJobStatus importCsv(String csv) throws Exception {
+        return service.startImport(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String rejectedRows(UUID jobId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeRejectedRows(jobId, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+
+    @Test
+    void shouldUpsertValidRowsInChunksAndRejectTheRest() throws Exception {
+        ImportJobStatus started = importCsv("""
+                id,name,email,annualSpend,lastPurchaseDate,tier\r
+                ,a,a@test.com,15000,2099-01-01,SILVER\r
+                ,b,not-an-email,100,,\r
+                ,"c, jr",c@test.com,,,\r
+                ,d,d@test.com,lots,,\r
+                ,e,e@test.com,100\r
+                ,f,f@test.com,100,2000-13-01,\r
+                """);
+
+        ImportJobStatus status = service.getStatus(started.getJobId());
+
+        assertEquals(ImportJobState.COMPLETED, status.getState());
+        assertEquals(6, status.getRowsRead());
+        assertEquals(2, status.getRowsAccepted());
+        assertEquals(4, status.getRowsRejected());
+        assertNotNull(status.getFinishedAt());
+
+        verify(customerJdbcRepo, times(1)).upsertByEmail(anyList());
+        assertEquals(List.of("a@test.com", "c@test.com"), upserted.stream().map(Customer::getEmail).toList());
+        assertEquals("c, jr", upserted.get(1).getName());
+        assertEquals(Membership.PLATINUM, upserted.get(0).getTier());
+        assertNull(upserted.get(1).getAnnualSpend());
+
+        assertEquals("""
+                record,error,id,name,email,annualSpend,lastPurchaseDate,tier\r
+                3,email: Invalid email format,,b,not-an-email,100,,\r
+                5,annualSpend: not a number,,d,d@test.com,lots,,\r
+                6,"Expected 6 fields, found 4",,e,e@test.com,100\r
+                7,lastPurchaseDate: expected yyyy-MM-dd,,f,f@test.com,100,2000-13-01,\r
+                """, rejectedRows(started.getJobId()));
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "the spool file is deleted, the rejected rows are kept");
+        }
+    }
+
+    @Test
+    void shouldRetryAFailedChunkRowByRow() throws Exception {
+        doThrow(new DataIntegrityViolationException("chunk"))
+                .doThrow(new DataIntegrityViolationException("value too long"))
+                .doNothing()
+                .when(customerJdbcRepo).upsertByEmail(anyList());
+
+        ImportJobStatus started = importCsv("name,email\na,a@test.com\nb,b@test.com\n");
+
+        ImportJobStatus status = service.getStatus(started.getJobId());
+        assertEquals(ImportJobState.COMPLETED, status.getState());
+        assertEquals(1, status.getRowsAccepted());
+        assertEquals(1, status.getRowsRejected());
+        assertTrue(rejectedRows(started.getJobId()).contains("2,Not stored: value too long,a,a@test.com"));
+    }
+
+    @Test
+    void shouldRejectARecordThatIsNotCsvAndReadOnAtTheNextLine() throws Exception {
+        ImportJobStatus started = importCsv("name,email\r\n"
+                + "a,a@test.com\r\n"
+                + "x" + "x".repeat(70_000) + "\r\n"
+                + "b,\"b@test.com\r\n"
+                + "c,c@test.com\r\n"
+                + "d,d@test.com\r\n");
+
+        ImportJobStatus status = service.getStatus(started.getJobId());
+        assertEquals(ImportJobState.COMPLETED, status.getState());
+        assertEquals(5, status.getRowsRead());
+        assertEquals(3, status.getRowsAccepted());
+        assertEquals(2, status.getRowsRejected());
+        assertEquals(List.of("a@test.com", "c@test.com", "d@test.com"), upserted.stream().map(Customer::getEmail).toList());
+
+        // the stray quote would take in the rest of the file; only its own line is lost
+        String rejected = rejectedRows(started.getJobId());
+        assertTrue(rejected.startsWith("record,error,name,email\r\n3,exceeds 65536 characters,xxx"));
+        assertTrue(rejected.endsWith("x\r\n4,ends inside a quoted field,\"b,\"\"b@test.com\"\r\n"));
+    }
+
+    @Test
+    void shouldFailTheJobWithoutTheRequiredColumns() throws Exception {
+        ImportJobStatus started = importCsv("name,mail\na,a@test.com\n");
+
+        ImportJobStatus status = service.getStatus(started.getJobId());
+        assertEquals(ImportJobState.FAILED, status.getState());
+        assertTrue(status.getError().contains("name and email"));
+        verifyNoInteractions(customerJdbcRepo);
+    }
+
+    @Test
+    void shouldThrowForAnUnknownJob() {
+        assertThrows(EntityNotFoundException.class, () -> service.getStatus(UUID.randomUUID()));
+    }
+}
@@ -0,0 +1,81 @@
+package com.spring.customer;
+
+import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.mapper.CustomerMapper;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerMapperTest {
+
+    private final CustomerMapper mapper = new CustomerMapper();
+
+    private Customer customer() {
+        Customer customer = new Customer(UUID.randomUUID(), "Test", "test@test.com",
+                BigDecimal.valueOf(2000), LocalDate.of(2025, 10, 12));
+        customer.setTier(Membership.GOLD);
+        return customer;
+    }
+
+
+    @Test
+    void toDto_shouldMatchModelMapper() {
+
+        Customer customer = customer();
+
+        CustomerDto expected = new ModelMapper().map(customer, CustomerDto.class);
+        CustomerDto actual = mapper.toDto(customer);
+
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getEmail(), actual.getEmail());
+        assertEquals(expected.getAnnualSpend(), actual.getAnnualSpend());
+        assertEquals(expected.getLastPurchaseDate(), actual.getLastPurchaseDate());
+        assertEquals(expected.getTier(), actual.getTier());
+    }
+
+
+    @Test
+    void toDto_shouldUseGivenTier() {
+
+        assertEquals(Membership.PLATINUM, mapper.toDto(customer(), Membership.PLATINUM).getTier());
+    }
+
+
+    @Test
+    void toEntity_shouldRoundTrip() {
+
+        CustomerDto dto = mapper.toDto(customer());
+        Customer entity = mapper.toEntity(dto);
+
+        assertEquals(dto.getId(), entity.getId());
+        assertEquals(dto.getEmail(), entity.getEmail());
+        assertEquals(dto.getTier(), entity.getTier());
+    }
+
+
+    @Test
+    void updateEntity_shouldKeepIdAndTier() {
+
+        Customer customer = customer();
+        UUID id = customer.getId();
+        CustomerDto changes = new CustomerDto(UUID.randomUUID(), "New", "new@test.com",
+                BigDecimal.TEN, LocalDate.of(2026, 1, 1), Membership.PLATINUM);
+
+        mapper.updateEntity(changes, customer);
+
+        assertEquals(id, customer.getId());
+        assertEquals(Membership.GOLD, customer.getTier());
+        assertEquals("New", customer.getName());
+        assertEquals("new@test.com", customer.getEmail());
+        assertEquals(BigDecimal.TEN, customer.getAnnualSpend());
+        assertEquals(LocalDate.of(2026, 1, 1), customer.getLastPurchaseDate());
+    }
+}
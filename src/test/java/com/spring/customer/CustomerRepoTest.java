@@ -0,0 +1,334 @@
+package com.spring.customer;
+
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.CustomerSelection;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.entity.TierChangeEvent;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.enumerator.TouchMode;
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.repository.CustomerRepo;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.tier.TierColumns;
+import com.spring.customer.touch.CustomerTouchBuffer;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({CustomerJdbcRepo.class, CustomerShards.class})
+class CustomerRepoTest {
+
+    @Autowired
+    private CustomerRepo customerRepo;
+
+    @Autowired
+    private CustomerJdbcRepo customerJdbcRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final TierCalculator tierCalculator = new TierCalculator();
+
+    private Customer save(String email, long spend, LocalDate lastPurchaseDate) {
+        Customer customer = new Customer(null, "Test", email, BigDecimal.valueOf(spend), lastPurchaseDate);
+        customer.setTier(tierCalculator.calculate(customer));
+        return customerRepo.saveAndFlush(customer);
+    }
+
+    private Membership storedTier(Customer customer) {
+        entityManager.clear();
+        return customerRepo.findById(customer.getId()).orElseThrow().getTier();
+    }
+
+
+    @Test
+    void shouldTouchDateAndRederiveTierFromSpend() {
+        Customer lapsed = save("a@test.com", 15000, LocalDate.now().minusYears(2));
+        assertEquals(Membership.SILVER, lapsed.getTier());
+
+        int updated = customerRepo.touchLastPurchaseDate(List.of(lapsed.getId()), LocalDate.now(), 0L,
+                tierCalculator.platinumSpend(), tierCalculator.goldSpend());
+
+        assertEquals(1, updated);
+        assertEquals(Membership.PLATINUM, storedTier(lapsed));
+    }
+
+    @Test
+    void shouldVersionUpdatesButNotTouches() {
+        Customer customer = save("v@test.com", 500, LocalDate.now().minusDays(3));
+        assertEquals(0L, customer.getVersion());
+
+        customerRepo.touchLastPurchaseDate(List.of(customer.getId()), LocalDate.now(), 0L,
+                tierCalculator.platinumSpend(), tierCalculator.goldSpend());
+        entityManager.clear();
+        assertEquals(0L, customerRepo.findVersionById(customer.getId()).orElseThrow());
+
+        Customer first = customerRepo.findById(customer.getId()).orElseThrow();
+        entityManager.clear();
+        Customer second = customerRepo.findById(customer.getId()).orElseThrow();
+        entityManager.clear();
+
+        first.setName("First");
+        assertEquals(1L, customerRepo.saveAndFlush(first).getVersion());
+        entityManager.clear();
+
+        second.setName("Second");
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> customerRepo.saveAndFlush(second));
+    }
+
+
+    @Test
+    void shouldNotLetABufferedTouchOverwriteALaterUpdate() {
+        CustomerTouchBuffer buffer = new CustomerTouchBuffer(customerRepo, CustomerShards.unsharded(), tierCalculator,
+                TierChangeOutbox.disabled(), new TransactionTemplate(transactionManager), TouchMode.BUFFERED, 10);
+        LocalDate lastMonth = LocalDate.now().minusMonths(1);
+        Customer customer = save("t@test.com", 500, LocalDate.now().minusDays(3));
+        Customer untouched = save("u@test.com", 500, LocalDate.now().minusDays(3));
+
+        buffer.touch(customer);
+        buffer.touch(untouched);
+        entityManager.clear();
+        Customer updated = customerRepo.findById(customer.getId()).orElseThrow();
+        updated.setLastPurchaseDate(lastMonth);
+        customerRepo.saveAndFlush(updated);
+
+        assertEquals(1, buffer.flush());
+        entityManager.clear();
+        assertEquals(lastMonth, customerRepo.findById(customer.getId()).orElseThrow().getLastPurchaseDate());
+        assertEquals(LocalDate.now(), customerRepo.findById(untouched.getId()).orElseThrow().getLastPurchaseDate());
+    }
+
+    @Test
+    void shouldStreamOnlyCustomersWithinSpendAndPurchaseBounds() {
+        Customer inRange = save("in@test.com", 2000, LocalDate.now().minusDays(10));
+        save("stale@test.com", 2000, LocalDate.now().minusYears(2));
+        save("low@test.com", 500, LocalDate.now());
+        save("high@test.com", 9000, LocalDate.now());
+
+        List<Customer> streamed = new ArrayList<>();
+        customerJdbcRepo.streamMatching(BigDecimal.valueOf(1000), BigDecimal.valueOf(5000),
+                LocalDate.now().minusYears(1), 10, streamed::add);
+
+        assertEquals(List.of(inRange.getId()), streamed.stream().map(Customer::getId).toList());
+
+        List<Customer> all = new ArrayList<>();
+        customerJdbcRepo.streamAll(10, all::add);
+        assertEquals(4, all.size());
+    }
+
+
+    @Test
+    void shouldDemoteOnlyLapsedTiers() {
+        LocalDate today = LocalDate.now();
+        Customer platinumToGold = save("a@test.com", 15000, today.minusMonths(5));
+        Customer stillPlatinum = save("b@test.com", 15000, today.minusMonths(1));
+        Customer goldToSilver = save("c@test.com", 2000, today.minusMonths(11));
+
+        LocalDate later = today.plusMonths(2);
+        customerRepo.demoteLapsedPlatinum(tierCalculator.platinumCutoff(later),
+                tierCalculator.goldSpend(), tierCalculator.goldCutoff(later));
+        customerRepo.demoteLapsedGold(tierCalculator.goldCutoff(later));
+
+        assertEquals(Membership.GOLD, storedTier(platinumToGold));
+        assertEquals(Membership.PLATINUM, storedTier(stillPlatinum));
+        assertEquals(Membership.SILVER, storedTier(goldToSilver));
+    }
+
+    @Test
+    void shouldQueryAndCountByTier() {
+        save("a@test.com", 15000, LocalDate.now());
+        save("b@test.com", 15000, LocalDate.now());
+        save("c@test.com", 10, LocalDate.now());
+
+        assertEquals(2, customerRepo.findByTier(Membership.PLATINUM, PageRequest.of(0, 10)).getNumberOfElements());
+        assertEquals(2, customerRepo.countByTier().size());
+    }
+
+    @Test
+    void shouldWalkAllCustomersWithKeysetPagesAndCursor() {
+        for (int i = 0; i < 5; i++) {
+            save(i + "@test.com", i * 1000L, LocalDate.now());
+        }
+
+        List<UUID> keyset = new ArrayList<>();
+        List<Customer> page = customerRepo.findAllByOrderByIdAsc(Limit.of(2));
+        while (!page.isEmpty()) {
+            page.forEach(c -> keyset.add(c.getId()));
+            page = customerRepo.findByIdGreaterThanOrderByIdAsc(page.get(page.size() - 1).getId(), Limit.of(2));
+        }
+
+        List<UUID> streamed = new ArrayList<>();
+        customerJdbcRepo.streamAll(2, c -> streamed.add(c.getId()));
+
+        assertEquals(5, keyset.size());
+        assertEquals(keyset, streamed);
+    }
+
+    @Test
+    void shouldLoadTierColumnsAsCentsAndEpochDays() {
+        Customer spender = customerRepo.saveAndFlush(new Customer(null, "Test", "a@test.com",
+                new BigDecimal("1234.56"), LocalDate.of(2025, 10, 12)));
+        Customer idle = customerRepo.saveAndFlush(new Customer(null, "Test", "b@test.com", null, null));
+
+        TierColumns selected = customerJdbcRepo.loadTierColumns(List.of(spender.getId(), UUID.randomUUID()));
+
+        assertEquals(1, selected.size());
+        assertEquals(spender.getId(), selected.id(0));
+        assertEquals(123456, selected.spendCents()[0]);
+        assertEquals(LocalDate.of(2025, 10, 12).toEpochDay(), selected.lastPurchaseEpochDays()[0]);
+
+        TierColumns all = customerJdbcRepo.loadAllTierColumns(1);
+
+        assertEquals(2, all.size());
+        int row = all.id(0).equals(idle.getId()) ? 0 : 1;
+        assertEquals(0, all.spendCents()[row]);
+        assertEquals(TierCalculator.NO_PURCHASE, all.lastPurchaseEpochDays()[row]);
+    }
+
+    @Test
+    void shouldUpsertByEmailAndBumpTheVersionOnUpdate() {
+        Customer existing = save("a@test.com", 500, LocalDate.now().minusDays(3));
+
+        Customer changed = new Customer(null, "Changed", "a@test.com", BigDecimal.valueOf(15000), LocalDate.now());
+        changed.setTier(Membership.PLATINUM);
+        Customer added = new Customer(null, "Added", "b@test.com", null, null);
+        added.setTier(Membership.SILVER);
+
+        customerJdbcRepo.upsertByEmail(List.of(changed, added));
+        entityManager.clear();
+
+        List<Customer> stored = customerJdbcRepo.findByEmails(List.of("a@test.com", "b@test.com", "c@test.com"));
+        assertEquals(2, stored.size());
+
+        Customer updated = customerRepo.findById(existing.getId()).orElseThrow();
+        assertEquals("Changed", updated.getName());
+        assertEquals(Membership.PLATINUM, updated.getTier());
+        assertEquals(1L, updated.getVersion());
+
+        Customer inserted = stored.stream().filter(c -> c.getEmail().equals("b@test.com")).findFirst().orElseThrow();
+        assertNotNull(inserted.getId());
+        assertEquals(0L, inserted.getVersion());
+    }
+
+    @Test
+    void shouldPatchOnlyTheGivenColumnsAndRederiveTheTier() {
+        Customer customer = save("a@test.com", 500, LocalDate.now().minusDays(3));
+        assertEquals(Membership.SILVER, customer.getTier());
+
+        CustomerPatch patch = new CustomerPatch();
+        patch.setAnnualSpend(BigDecimal.valueOf(15000));
+        patch.setName("Patched");
+
+        assertNull(customerJdbcRepo.patch(customer.getId(), patch, 7L, tierCalculator), "stale version");
+        Customer patched = customerJdbcRepo.patch(customer.getId(), patch, 0L, tierCalculator);
+
+        assertEquals("Patched", patched.getName());
+        assertEquals("a@test.com", patched.getEmail());
+        assertEquals(0, BigDecimal.valueOf(15000).compareTo(patched.getAnnualSpend()));
+        assertEquals(customer.getLastPurchaseDate(), patched.getLastPurchaseDate());
+        assertEquals(Membership.PLATINUM, patched.getTier());
+        assertEquals(1L, patched.getVersion());
+
+        CustomerPatch clearDate = new CustomerPatch();
+        clearDate.setLastPurchaseDate(null);
+        Customer cleared = customerJdbcRepo.patch(customer.getId(), clearDate, null, tierCalculator);
+
+        assertNull(cleared.getLastPurchaseDate());
+        assertEquals(Membership.SILVER, cleared.getTier());
+        assertEquals(2L, cleared.getVersion());
+        assertEquals(cleared.getTier(), storedTier(customer));
+        assertNull(customerJdbcRepo.patch(UUID.randomUUID(), clearDate, null, tierCalculator));
+    }
+
+    @Test
+    void shouldDeleteAndUpdateSelectionsInChunks() {
+        Customer lapsed = save("a@test.com", 15000, LocalDate.now().minusYears(3));
+        Customer active = save("b@test.com", 15000, LocalDate.now());
+        Customer idle = save("c@test.com", 100, LocalDate.now().minusYears(4));
+
+        assertEquals(1, customerRepo.deleteRowById(idle.getId()));
+        assertEquals(0, customerRepo.deleteRowById(idle.getId()));
+
+        CustomerSelection all = new CustomerSelection();
+        all.setAll(true);
+        CustomerPatch reset = new CustomerPatch();
+        reset.setAnnualSpend(BigDecimal.ZERO);
+
+        List<Customer> first = customerJdbcRepo.updateSelected(all, null, 1, reset, tierCalculator);
+        List<Customer> rest = customerJdbcRepo.updateSelected(all, first.get(0).getId(), 1, reset, tierCalculator);
+        assertEquals(1, first.size());
+        assertEquals(1, rest.size());
+        assertNotEquals(first.get(0).getId(), rest.get(0).getId());
+        assertEquals(Membership.SILVER, storedTier(active));
+        assertEquals(1L, customerRepo.findById(active.getId()).orElseThrow().getVersion());
+
+        CustomerSelection purge = new CustomerSelection();
+        purge.setPurchasedBefore(LocalDate.now().minusYears(1));
+        assertEquals(List.of(lapsed.getId()), customerJdbcRepo.deleteSelected(purge, null, 10));
+        assertTrue(customerRepo.findById(lapsed.getId()).isEmpty());
+        assertTrue(customerRepo.findById(active.getId()).isPresent());
+    }
+
+    @Test
+    void shouldRecordOnlyTheTierChangesTouchesAndDemotionsMake() {
+        TierChangeOutbox outbox = new TierChangeOutbox(jdbcTemplate, Clock.systemUTC(), CustomerShards.unsharded(),
+                true, Duration.ofDays(7));
+        LocalDate today = LocalDate.now();
+        Customer lapsed = save("lapsed@test.com", 15000, today.minusYears(2));
+        Customer recent = save("recent@test.com", 15000, today.minusDays(3));
+        Customer stale = new Customer(null, "Test", "stale@test.com", BigDecimal.valueOf(15000), today.minusYears(2));
+        stale.setTier(Membership.PLATINUM);
+        customerRepo.saveAndFlush(stale);
+
+        outbox.record(recent.getId(), null, recent.getTier());
+        outbox.record(recent.getId(), Membership.PLATINUM, Membership.PLATINUM);
+        List<UUID> touched = List.of(lapsed.getId(), recent.getId());
+        assertEquals(1, outbox.recordTouches(touched, today, 0L, tierCalculator));
+        customerRepo.touchLastPurchaseDate(touched, today, 0L, tierCalculator.platinumSpend(), tierCalculator.goldSpend());
+        assertEquals(0, outbox.recordTouches(touched, today, 0L, tierCalculator));
+        assertEquals(1, outbox.recordDemotions(today, tierCalculator));
+
+        List<TierChangeEvent> events = outbox.readAfter(0, Long.MAX_VALUE, 10);
+        assertEquals(3, events.size());
+        assertEquals(recent.getId(), events.get(0).getCustomerId());
+        assertNull(events.get(0).getFromTier());
+        assertEquals(lapsed.getId(), events.get(1).getCustomerId());
+        assertEquals(Membership.SILVER, events.get(1).getFromTier());
+        assertEquals(Membership.PLATINUM, events.get(1).getToTier());
+        assertEquals(stale.getId(), events.get(2).getCustomerId());
+        assertEquals(Membership.SILVER, events.get(2).getToTier());
+
+        long first = events.get(0).getId();
+        assertEquals(events.get(2).getId(), outbox.latestId());
+        assertEquals(List.of(events.get(1).getId()),
+                outbox.readAfter(first, events.get(1).getId(), 10).stream().map(TierChangeEvent::getId).toList());
+        assertEquals(0, outbox.purge());
+    }
+}
@@ -0,0 +1,111 @@
+package com.spring.customer;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.search.CustomerSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CustomerSearchIndexTest {
+
+    private CustomerSearchIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new CustomerSearchIndex(mock(CustomerJdbcRepo.class));
+    }
+
+    private Customer customer(String name, String email) {
+        Customer customer = new Customer(UUID.randomUUID(), name, email, BigDecimal.valueOf(2000), LocalDate.now());
+        index.index(customer);
+        return customer;
+    }
+
+
+    @Test
+    void search_shouldMatchPrefixIgnoringCaseAndAccents() {
+
+        Customer jose = customer("José Álvarez", "jalvarez@test.com");
+        customer("Maria Lopez", "maria@test.com");
+
+        assertEquals(List.of(jose.getId()), index.search("JOS", 0, 10).ids());
+        assertEquals(List.of(jose.getId()), index.search("alva", 0, 10).ids());
+    }
+
+
+    @Test
+    void search_shouldTolerateOneTypo() {
+
+        Customer jigyasu = customer("Jigyasu Verma", "jv@test.com");
+
+        assertEquals(List.of(jigyasu.getId()), index.search("jigyaus", 0, 10).ids());
+        assertEquals(List.of(jigyasu.getId()), index.search("vrema", 0, 10).ids());
+        assertTrue(index.search("vxxma", 0, 10).ids().isEmpty());
+    }
+
+
+    @Test
+    void search_shouldMatchEmailLocalPartAndItsParts() {
+
+        Customer customer = customer("Someone", "sonu.kumar+shop@test.com");
+
+        assertEquals(List.of(customer.getId()), index.search("sonu.kumar", 0, 10).ids());
+        assertEquals(List.of(customer.getId()), index.search("kumar", 0, 10).ids());
+        assertTrue(index.search("test", 0, 10).ids().isEmpty());
+    }
+
+
+    @Test
+    void search_shouldRankExactBeforePrefixBeforeFuzzy() {
+
+        Customer fuzzy = customer("Anno", "a1@test.com");
+        Customer prefix = customer("Annabel", "a2@test.com");
+        Customer exact = customer("Anna", "a3@test.com");
+
+        assertEquals(List.of(exact.getId(), prefix.getId(), fuzzy.getId()), index.search("anna", 0, 10).ids());
+    }
+
+
+    @Test
+    void search_shouldRequireEveryWordAndPage() {
+
+        Customer first = customer("Anna Smith", "a1@test.com");
+        Customer second = customer("Anna Smyth", "a2@test.com");
+        customer("Anna Jones", "a3@test.com");
+
+        CustomerSearchIndex.Hits page = index.search("anna smith", 0, 1);
+        assertEquals(List.of(first.getId()), page.ids());
+        assertTrue(page.hasNext());
+
+        CustomerSearchIndex.Hits next = index.search("anna smith", 1, 1);
+        assertEquals(List.of(second.getId()), next.ids());
+        assertFalse(next.hasNext());
+    }
+
+
+    @Test
+    void index_shouldReplaceOldTermsAndRemove() {
+
+        Customer customer = customer("Old Name", "old@test.com");
+
+        customer.setName("New Name");
+        customer.setEmail("new@test.com");
+        index.index(customer);
+
+        assertTrue(index.search("old", 0, 10).ids().isEmpty());
+        assertEquals(List.of(customer.getId()), index.search("new", 0, 10).ids());
+
+        index.remove(customer.getId());
+
+        assertTrue(index.search("new", 0, 10).ids().isEmpty());
+        assertEquals(0, index.size());
+    }
+}
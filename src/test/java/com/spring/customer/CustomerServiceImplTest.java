@@ -1,21 +1,45 @@
 package com.spring.customer;
 
+import com.spring.customer.cache.CustomerCache;
+import com.spring.customer.cache.CustomerEmailFilter;
+import com.spring.customer.dto.CursorPageDto;
 import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.PageDto;
 import com.spring.customer.entity.Customer;
 import com.spring.customer.enumerator.Membership;
+import com.spring.customer.enumerator.TouchMode;
 import com.spring.customer.exceptionhandling.CustomerNotFoundException;
+import com.spring.customer.exceptionhandling.DuplicateEmailException;
 import com.spring.customer.exceptionhandling.GlobalExceptionHandler;
+import com.spring.customer.exceptionhandling.PreconditionFailedException;
+import com.spring.customer.mapper.CustomerMapper;
+import com.spring.customer.metrics.CustomerMetrics;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.outbox.TierChangeOutbox;
 import com.spring.customer.repository.CustomerRepo;
 import com.spring.customer.response.ApiResponse;
+import com.spring.customer.service.CustomerChangePublisher;
 import com.spring.customer.service.serviceimpl.CustomerServiceImpl;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.touch.CustomerTouchBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.modelmapper.ModelMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -23,14 +47,24 @@ import static org.mockito.Mockito.*;
 class CustomerServiceImplTest {
 
     private CustomerRepo customerRepo;
-    private ModelMapper modelMapper;
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    private CustomerMapper customerMapper;
+    private CustomerCache customerCache;
+    private CustomerJdbcRepo customerJdbcRepo;
+    private CustomerEmailFilter customerEmailFilter;
     private CustomerServiceImpl service;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
     void setup() {
         customerRepo = mock(CustomerRepo.class);
-        modelMapper = new ModelMapper(); // real mapper is fine
-        service = new CustomerServiceImpl(customerRepo, modelMapper);
+        customerMapper = new CustomerMapper(); // real mapper is fine
+        customerCache = new CustomerCache(100, Duration.ofMinutes(10), 100, Duration.ofMinutes(1));
+        customerJdbcRepo = mock(CustomerJdbcRepo.class);
+        customerEmailFilter = new CustomerEmailFilter(customerJdbcRepo, 1000, 0.01);
+        service = new CustomerServiceImpl(customerRepo, customerJdbcRepo, CustomerShards.unsharded(), customerMapper, customerCache, customerEmailFilter,
+                new CustomerTouchBuffer(customerRepo, CustomerShards.unsharded(), new TierCalculator(), TierChangeOutbox.disabled(), transactionTemplate, TouchMode.SYNC, 500),
+                new TierCalculator(), new CustomerChangePublisher(List.of()), TierChangeOutbox.disabled(), new CustomerMetrics(meterRegistry), 100);
     }
 
     private Customer buildCustomer() {
@@ -55,6 +89,7 @@ class CustomerServiceImplTest {
         assertNotNull(result);
         assertEquals(customer.getEmail(), result.getEmail());
         assertNotNull(result.getTier());
+        assertEquals(Membership.PLATINUM, customer.getTier());
         verify(customerRepo, times(1)).save(customer);
     }
 
@@ -73,6 +108,114 @@ class CustomerServiceImplTest {
         verify(customerRepo).findById(customer.getId());
     }
 
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        Customer customer = buildCustomer();
+
+        when(customerRepo.findById(customer.getId()))
+                .thenReturn(Optional.of(customer));
+        when(customerRepo.save(any())).thenReturn(customer);
+
+        service.getCustomerById(customer.getId());
+        CustomerDto byId = service.getCustomerById(customer.getId());
+        CustomerDto byEmail = service.getCustomerByEmail(customer.getEmail());
+
+        assertEquals(customer.getId(), byId.getId());
+        assertEquals(customer.getId(), byEmail.getId());
+        assertEquals(Membership.PLATINUM, byEmail.getTier());
+        verify(customerRepo, times(1)).findById(customer.getId());
+        verify(customerRepo, never()).findByEmail(any());
+    }
+
+    @Test
+    void shouldInvalidateCacheOnUpdate() {
+        Customer customer = buildCustomer();
+
+        when(customerRepo.findById(customer.getId()))
+                .thenReturn(Optional.of(customer));
+        when(customerRepo.save(any())).thenReturn(customer);
+
+        service.getCustomerById(customer.getId());
+
+        CustomerDto dto = new CustomerDto();
+        dto.setName("Updated");
+        dto.setEmail("updated@test.com");
+        dto.setAnnualSpend(BigDecimal.valueOf(5000));
+        dto.setLastPurchaseDate(LocalDate.now());
+        service.updateCustomer(dto, customer.getId());
+
+        assertNull(customerCache.getById(customer.getId()));
+        assertEquals("Updated", service.getCustomerById(customer.getId()).getName());
+    }
+
+    @Test
+    void shouldNotServeDeletedCustomerFromCache() {
+        Customer customer = buildCustomer();
+
+        when(customerRepo.findById(customer.getId()))
+                .thenReturn(Optional.of(customer));
+        when(customerRepo.save(any())).thenReturn(customer);
+        when(customerRepo.deleteRowById(customer.getId())).thenReturn(1);
+
+        service.getCustomerById(customer.getId());
+        service.deleteCustomer(customer.getId());
+
+        when(customerRepo.findById(customer.getId())).thenReturn(Optional.empty());
+
+        assertThrows(CustomerNotFoundException.class,
+                () -> service.getCustomerById(customer.getId()));
+    }
+
+    @Test
+    void shouldBufferTouchInsteadOfSavingOnLookup() {
+        Customer customer = buildCustomer();
+        customer.setAnnualSpend(BigDecimal.valueOf(2000));
+        customer.setLastPurchaseDate(LocalDate.now().minusYears(2));
+
+        CustomerTouchBuffer buffer = new CustomerTouchBuffer(customerRepo, CustomerShards.unsharded(), new TierCalculator(), TierChangeOutbox.disabled(), transactionTemplate, TouchMode.BUFFERED, 500);
+        service = new CustomerServiceImpl(customerRepo, customerJdbcRepo, CustomerShards.unsharded(), customerMapper, customerCache, customerEmailFilter, buffer, new TierCalculator(), new CustomerChangePublisher(List.of()), TierChangeOutbox.disabled(), new CustomerMetrics(meterRegistry), 100);
+
+        when(customerRepo.findById(customer.getId()))
+                .thenReturn(Optional.of(customer));
+
+        CustomerDto result = service.getCustomerById(customer.getId());
+
+        assertEquals(LocalDate.now(), result.getLastPurchaseDate());
+        assertEquals(Membership.GOLD, result.getTier());
+        assertEquals(1, buffer.pendingCount());
+        verify(customerRepo, never()).save(any());
+    }
+
+    @Test
+    void shouldRejectTakenEmailWithoutTryingTheInsert() {
+        Customer customer = buildCustomer();
+        customer.setId(null);
+        when(customerRepo.existsByEmail(customer.getEmail())).thenReturn(true);
+
+        assertThrows(DuplicateEmailException.class, () -> service.createCustomer(customer));
+
+        verify(customerRepo, never()).save(any());
+        assertEquals(1.0, meterRegistry.get(CustomerMetrics.EMAIL_CHECKS).tag("result", "taken").counter().count());
+    }
+
+    @Test
+    void shouldSkipTheExistsQueryForEmailsTheFilterRulesOut() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<String>>getArgument(1).accept("other@test.com");
+            return null;
+        }).when(customerJdbcRepo).streamEmails(anyInt(), any());
+        customerEmailFilter.rebuild();
+
+        Customer customer = buildCustomer();
+        customer.setId(null);
+        when(customerRepo.save(any())).thenReturn(customer);
+
+        service.createCustomer(customer);
+
+        verify(customerRepo, never()).existsByEmail(any());
+        assertEquals(1.0, meterRegistry.get(CustomerMetrics.EMAIL_CHECKS).tag("result", "new").counter().count());
+    }
+
     @Test
     void shouldThrowExceptionWhenCustomerNotFoundById() {
         UUID id = UUID.randomUUID();
@@ -83,6 +226,30 @@ class CustomerServiceImplTest {
                 () -> service.getCustomerById(id));
     }
 
+    @Test
+    void shouldAnswerRepeatedMissesWithoutQueryingUntilCreated() {
+        Customer customer = buildCustomer();
+        when(customerRepo.findById(customer.getId())).thenReturn(Optional.empty());
+        when(customerRepo.findByEmail(customer.getEmail())).thenReturn(Optional.empty());
+
+        for (int i = 0; i < 3; i++) {
+            CustomerNotFoundException ex = assertThrows(CustomerNotFoundException.class,
+                    () -> service.getCustomerById(customer.getId()));
+            assertEquals(0, ex.getStackTrace().length);
+            assertThrows(CustomerNotFoundException.class,
+                    () -> service.getCustomerByEmail(customer.getEmail()));
+        }
+        verify(customerRepo, times(1)).findById(customer.getId());
+        verify(customerRepo, times(1)).findByEmail(customer.getEmail());
+        assertNull(service.getCustomerVersion(customer.getId()));
+        verify(customerRepo, never()).findVersionById(any());
+
+        customerCache.customerSaved(customer);
+        when(customerRepo.findByEmail(customer.getEmail())).thenReturn(Optional.of(customer));
+
+        assertEquals(customer.getId(), service.getCustomerByEmail(customer.getEmail()).getId());
+    }
+
 
     @Test
     void shouldReturnCustomersByName() {
@@ -152,27 +319,150 @@ class CustomerServiceImplTest {
 
 
     @Test
-    void shouldDeleteCustomer() {
+    void shouldRejectUpdateOfAnotherVersion() {
         Customer customer = buildCustomer();
+        customer.setVersion(2L);
 
         when(customerRepo.findById(customer.getId()))
                 .thenReturn(Optional.of(customer));
 
+        assertThrows(PreconditionFailedException.class,
+                () -> service.updateCustomer(new CustomerDto(), customer.getId(), 1L));
+        verify(customerRepo, never()).save(any());
+    }
+
+
+    @Test
+    void shouldTurnAConcurrentUpdateIntoAFailedPrecondition() {
+        Customer customer = buildCustomer();
+        customer.setVersion(2L);
+
+        CustomerDto dto = new CustomerDto(null, "Updated", "updated@test.com",
+                BigDecimal.valueOf(5000), LocalDate.now(), null);
+
+        when(customerRepo.findById(customer.getId()))
+                .thenReturn(Optional.of(customer));
+        when(customerRepo.save(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Customer.class, customer.getId()));
+
+        assertThrows(PreconditionFailedException.class,
+                () -> service.updateCustomer(dto, customer.getId(), 2L));
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> service.updateCustomer(dto, customer.getId()));
+    }
+
+
+    @Test
+    void shouldPatchWithoutReadingTheCustomerFirst() {
+        Customer customer = buildCustomer();
+        customer.setVersion(3L);
+        CustomerPatch patch = new CustomerPatch();
+        patch.setName("Patched");
+
+        when(customerJdbcRepo.patch(eq(customer.getId()), same(patch), eq(2L), any(TierCalculator.class)))
+                .thenReturn(customer);
+
+        CustomerDto result = service.patchCustomer(customer.getId(), patch, 2L, true);
+        CustomerDto minimal = service.patchCustomer(customer.getId(), patch, 2L, false);
+
+        assertEquals(customer.getEmail(), result.getEmail());
+        assertEquals(3L, result.getVersion());
+        assertNull(minimal.getEmail(), "the minimal result only carries what the ETag needs");
+        assertEquals(3L, minimal.getVersion());
+        verify(customerRepo, never()).findById(any());
+        verify(customerRepo, never()).save(any());
+    }
+
+
+    @Test
+    void shouldTellAMissingCustomerFromAStalePatch() {
+        UUID id = UUID.randomUUID();
+        CustomerPatch patch = new CustomerPatch();
+        patch.setAnnualSpend(BigDecimal.TEN);
+
+        when(customerRepo.findVersionById(id)).thenReturn(Optional.of(5L));
+        assertThrows(PreconditionFailedException.class, () -> service.patchCustomer(id, patch, 4L, true));
+
+        when(customerRepo.findVersionById(id)).thenReturn(Optional.empty());
+        assertThrows(CustomerNotFoundException.class, () -> service.patchCustomer(id, patch, null, true));
+    }
+
+
+    @Test
+    void shouldDeleteCustomer() {
+        Customer customer = buildCustomer();
+
+        when(customerRepo.deleteRowById(customer.getId())).thenReturn(1);
+
         service.deleteCustomer(customer.getId());
 
-        verify(customerRepo).delete(customer);
+        verify(customerRepo).deleteRowById(customer.getId());
+        verify(customerRepo, never()).findById(any());
     }
 
     @Test
     void shouldThrowExceptionWhenDeleteCustomerNotFound() {
         UUID id = UUID.randomUUID();
 
-        when(customerRepo.findById(id)).thenReturn(Optional.empty());
+        when(customerRepo.deleteRowById(id)).thenReturn(0);
 
-        assertThrows(RuntimeException.class,
+        assertThrows(CustomerNotFoundException.class,
                 () -> service.deleteCustomer(id));
     }
 
+    @Test
+    void shouldReturnCustomersByTier() {
+        Customer customer = buildCustomer();
+        customer.setTier(Membership.PLATINUM);
+
+        when(customerRepo.findByTier(eq(Membership.PLATINUM), any()))
+                .thenReturn(new SliceImpl<>(List.of(customer), PageRequest.of(0, 1), true));
+
+        PageDto<CustomerDto> result = service.getCustomersByTier(Membership.PLATINUM, 0, 1);
+
+        assertEquals(1, result.getContent().size());
+        assertEquals(Membership.PLATINUM, result.getContent().get(0).getTier());
+        assertTrue(result.isHasNext());
+    }
+
+    @Test
+    void shouldRejectInvalidTierPageSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getCustomersByTier(Membership.GOLD, 0, 5000));
+    }
+
+    @Test
+    void shouldCountEveryTier() {
+        when(customerRepo.countByTier())
+                .thenReturn(List.<Object[]>of(new Object[]{Membership.GOLD, 3L}));
+
+        Map<Membership, Long> counts = service.countCustomersByTier();
+
+        assertEquals(3L, counts.get(Membership.GOLD));
+        assertEquals(0L, counts.get(Membership.PLATINUM));
+        assertEquals(0L, counts.get(Membership.SILVER));
+    }
+
+    @Test
+    void shouldListCustomersWithKeysetCursor() {
+        Customer first = buildCustomer();
+        Customer second = buildCustomer();
+        Customer third = buildCustomer();
+
+        when(customerRepo.findAllByOrderByIdAsc(Limit.of(3)))
+                .thenReturn(List.of(first, second, third));
+        when(customerRepo.findByIdGreaterThanOrderByIdAsc(second.getId(), Limit.of(3)))
+                .thenReturn(List.of(third));
+
+        CursorPageDto<CustomerDto> page = service.getCustomers(null, 2);
+        CursorPageDto<CustomerDto> last = service.getCustomers(page.getNextCursor(), 2);
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(second.getId(), page.getNextCursor());
+        assertEquals(1, last.getContent().size());
+        assertNull(last.getNextCursor());
+    }
+
     @Test
     void shouldReturnPlatinumTier() {
         Customer customer = buildCustomer();
@@ -0,0 +1,76 @@
+package com.spring.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spring.customer.dto.CustomerExportFilter;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.ExportFormat;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.mapper.CustomerMapper;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.service.serviceimpl.CustomerStreamServiceImpl;
+import com.spring.customer.tier.TierCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomerStreamServiceImplTest {
+
+    @Test
+    void shouldWriteOneJsonDocumentPerLine() throws Exception {
+        CustomerJdbcRepo jdbcRepo = mock(CustomerJdbcRepo.class);
+        doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(1);
+            consumer.accept(new Customer(UUID.randomUUID(), "a", "a@test.com", BigDecimal.valueOf(20000), LocalDate.now()));
+            consumer.accept(new Customer(UUID.randomUUID(), "b", "b@test.com", BigDecimal.TEN, LocalDate.of(2025, 10, 12)));
+            return null;
+        }).when(jdbcRepo).streamAll(eq(50), any());
+
+        CustomerStreamServiceImpl service = new CustomerStreamServiceImpl(
+                jdbcRepo, new TierCalculator(), new CustomerMapper(), new ObjectMapper().registerModule(new JavaTimeModule()), 50);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeNdjson(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"tier\":\"PLATINUM\""));
+        assertTrue(lines[1].contains("\"lastPurchaseDate\":\"2025-10-12\""));
+        assertTrue(lines[1].contains("\"tier\":\"SILVER\""));
+    }
+
+    @Test
+    void shouldExportOnlyTheRequestedComputedTierAsCsv() throws Exception {
+        CustomerJdbcRepo jdbcRepo = mock(CustomerJdbcRepo.class);
+        TierCalculator tierCalculator = new TierCalculator();
+        UUID gold = UUID.randomUUID();
+        doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(4);
+            Customer platinum = new Customer(UUID.randomUUID(), "p", "p@test.com", BigDecimal.valueOf(20000), LocalDate.now());
+            platinum.setTier(Membership.GOLD);
+            consumer.accept(platinum);
+            consumer.accept(new Customer(gold, "Doe, \"Jo\"", "g@test.com", new BigDecimal("2500.50"), LocalDate.of(2026, 1, 2)));
+            return null;
+        }).when(jdbcRepo).streamMatching(any(), any(), any(), eq(50), any());
+
+        CustomerStreamServiceImpl service = new CustomerStreamServiceImpl(
+                jdbcRepo, tierCalculator, new CustomerMapper(), new ObjectMapper().registerModule(new JavaTimeModule()), 50);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(new CustomerExportFilter(Membership.GOLD, null, BigDecimal.valueOf(30000)), ExportFormat.CSV, out);
+
+        assertEquals("id,name,email,annualSpend,lastPurchaseDate,tier\r\n"
+                        + gold + ",\"Doe, \"\"Jo\"\"\",g@test.com,2500.50,2026-01-02,GOLD\r\n",
+                out.toString(StandardCharsets.UTF_8));
+        verify(jdbcRepo).streamMatching(eq(tierCalculator.goldSpend()), eq(BigDecimal.valueOf(30000)),
+                eq(tierCalculator.goldCutoff(tierCalculator.today())), eq(50), any());
+    }
+}
@@ -0,0 +1,94 @@
+package com.spring.customer;
+
+import com.spring.customer.dto.TierEvaluationResult;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.repository.CustomerJdbcRepo;
+import com.spring.customer.service.serviceimpl.CustomerTierServiceImpl;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.tier.TierColumns;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CustomerTierServiceImplTest {
+
+    private CustomerJdbcRepo jdbcRepo;
+    private CustomerTierServiceImpl service;
+
+    @BeforeEach
+    void setup() {
+        jdbcRepo = mock(CustomerJdbcRepo.class);
+        // a threshold of 2 makes even small inputs go through the fork/join split
+        service = new CustomerTierServiceImpl(jdbcRepo, new TierCalculator(), 5, 2, 100);
+    }
+
+
+    @Test
+    void evaluate_shouldScoreEveryRowAcrossForkedRanges() {
+
+        long recent = LocalDate.now().minusMonths(1).toEpochDay();
+        long lapsed = LocalDate.now().minusYears(2).toEpochDay();
+
+        TierColumns columns = new TierColumns(0);
+        for (int i = 0; i < 100; i++) {
+            switch (i % 4) {
+                case 0 -> columns.add(UUID.randomUUID(), 1_000_000, recent);
+                case 1 -> columns.add(UUID.randomUUID(), 100_000, recent);
+                case 2 -> columns.add(UUID.randomUUID(), 1_000_000, lapsed);
+                default -> columns.add(UUID.randomUUID(), 1_000_000, TierCalculator.NO_PURCHASE);
+            }
+        }
+
+        Membership[] tiers = service.evaluate(columns);
+
+        assertEquals(100, tiers.length);
+        for (int i = 0; i < 100; i++) {
+            Membership expected = switch (i % 4) {
+                case 0 -> Membership.PLATINUM;
+                case 1 -> Membership.GOLD;
+                default -> Membership.SILVER;
+            };
+            assertEquals(expected, tiers[i], "row " + i);
+        }
+    }
+
+
+    @Test
+    void evaluateTiers_shouldGroupByTierAndReportMissingIds() {
+
+        UUID platinum = UUID.randomUUID();
+        UUID silver = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+
+        TierColumns columns = new TierColumns(2);
+        columns.add(platinum, 1_500_000, LocalDate.now().toEpochDay());
+        columns.add(silver, 0, TierCalculator.NO_PURCHASE);
+        when(jdbcRepo.loadTierColumns(List.of(platinum, silver, missing))).thenReturn(columns);
+
+        TierEvaluationResult result = service.evaluateTiers(List.of(platinum, silver, missing, platinum));
+
+        assertEquals(2, result.getEvaluated());
+        assertEquals(List.of(platinum), result.getTiers().get(Membership.PLATINUM));
+        assertEquals(List.of(), result.getTiers().get(Membership.GOLD));
+        assertEquals(List.of(silver), result.getTiers().get(Membership.SILVER));
+        assertEquals(List.of(missing), result.getNotFound());
+    }
+
+
+    @Test
+    void evaluateTiers_shouldRejectEmptyAndOversizedRequests() {
+
+        assertThrows(IllegalArgumentException.class, () -> service.evaluateTiers(List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.evaluateTiers(Collections.nCopies(6, UUID.randomUUID())));
+        verify(jdbcRepo, never()).loadTierColumns(anyList());
+    }
+}
@@ -0,0 +1,124 @@
+package com.spring.customer;
+
+import com.spring.customer.entity.Customer;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.enumerator.TouchMode;
+import com.spring.customer.outbox.TierChangeOutbox;
+import com.spring.customer.repository.CustomerRepo;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.tier.TierProperties;
+import com.spring.customer.touch.CustomerTouchBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomerTouchBufferTest {
+
+    private CustomerRepo customerRepo;
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @BeforeEach
+    void setup() {
+        customerRepo = mock(CustomerRepo.class);
+        when(customerRepo.touchLastPurchaseDate(anyCollection(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Collection<UUID>>getArgument(0).size());
+    }
+
+    private Customer customer(LocalDate lastPurchaseDate) {
+        return new Customer(UUID.randomUUID(), "Test", "test@test.com", BigDecimal.TEN, lastPurchaseDate);
+    }
+
+
+    @Test
+    void shouldDedupeTouchesPerCustomerAndFlushInChunks() {
+        CustomerTouchBuffer buffer = new CustomerTouchBuffer(customerRepo, CustomerShards.unsharded(), new TierCalculator(), TierChangeOutbox.disabled(), transactionTemplate, TouchMode.BUFFERED, 2);
+        Customer first = customer(LocalDate.now().minusDays(3));
+
+        buffer.touch(first);
+        buffer.touch(first);
+        buffer.touch(customer(null));
+        buffer.touch(customer(LocalDate.now().minusDays(1)));
+
+        assertEquals(3, buffer.pendingCount());
+        assertEquals(3, buffer.flush());
+        assertEquals(0, buffer.pendingCount());
+        verify(customerRepo, times(2)).touchLastPurchaseDate(anyCollection(), eq(LocalDate.now()), any(), any(), any());
+        verify(customerRepo, never()).save(any());
+    }
+
+    @Test
+    void shouldReportTouchedCopyWithoutMutatingEntity() {
+        CustomerTouchBuffer buffer = new CustomerTouchBuffer(customerRepo, CustomerShards.unsharded(), new TierCalculator(), TierChangeOutbox.disabled(), transactionTemplate, TouchMode.BUFFERED, 10);
+        LocalDate lastWeek = LocalDate.now().minusWeeks(1);
+        Customer customer = customer(lastWeek);
+
+        customer.setAnnualSpend(BigDecimal.valueOf(1500));
+        Customer touched = buffer.touch(customer);
+
+        assertEquals(LocalDate.now(), touched.getLastPurchaseDate());
+        assertEquals(Membership.GOLD, touched.getTier());
+        assertEquals(lastWeek, customer.getLastPurchaseDate());
+    }
+
+    @Test
+    void shouldTouchToTheDayOfTheTierClock() {
+        LocalDate tierToday = LocalDate.of(2030, 6, 15);
+        TierCalculator tierCalculator = new TierCalculator(
+                Clock.fixed(tierToday.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC), new TierProperties());
+        CustomerTouchBuffer buffer = new CustomerTouchBuffer(customerRepo, CustomerShards.unsharded(), tierCalculator, TierChangeOutbox.disabled(), transactionTemplate, TouchMode.BUFFERED, 10);
+
+        assertEquals(tierToday, buffer.touch(customer(LocalDate.now())).getLastPurchaseDate());
+        buffer.flush();
+        verify(customerRepo).touchLastPurchaseDate(anyCollection(), eq(tierToday), any(), any(), any());
+    }
+
+    @Test
+    void shouldSkipCustomersAlreadyTouchedToday() {
+        CustomerTouchBuffer buffer = new CustomerTouchBuffer(customerRepo, CustomerShards.unsharded(), new TierCalculator(), TierChangeOutbox.disabled(), transactionTemplate, TouchMode.BUFFERED, 10);
+
+        buffer.touch(customer(LocalDate.now()));
+
+        assertEquals(0, buffer.pendingCount());
+        assertEquals(0, buffer.flush());
+    }
+
+    @Test
+    void shouldRequeueTouchesWhenFlushFails() {
+        CustomerTouchBuffer buffer = new CustomerTouchBuffer(customerRepo, CustomerShards.unsharded(), new TierCalculator(), TierChangeOutbox.disabled(), transactionTemplate, TouchMode.BUFFERED, 10);
+        when(customerRepo.touchLastPurchaseDate(anyCollection(), any(), any(), any(), any()))
+                .thenThrow(new RuntimeException("db down"));
+
+        buffer.touch(customer(null));
+        buffer.flush();
+
+        assertEquals(1, buffer.pendingCount());
+    }
+
+    @Test
+    void shouldUpdateImmediatelyInSyncModeWithoutSavingTheEntity() {
+        CustomerTouchBuffer buffer = new CustomerTouchBuffer(customerRepo, CustomerShards.unsharded(), new TierCalculator(), TierChangeOutbox.disabled(), transactionTemplate, TouchMode.SYNC, 10);
+        Customer customer = customer(LocalDate.now().minusDays(1));
+        customer.setVersion(3L);
+
+        Customer touched = buffer.touch(customer);
+
+        assertEquals(LocalDate.now(), touched.getLastPurchaseDate());
+        assertEquals(3L, touched.getVersion());
+        assertEquals(0, buffer.pendingCount());
+        verify(customerRepo).touchLastPurchaseDate(eq(List.of(customer.getId())), eq(LocalDate.now()), eq(3L), any(), any());
+        verify(customerRepo, never()).save(any());
+    }
+}
@@ -0,0 +1,126 @@
+package com.spring.customer;
+
+import com.spring.customer.datasource.H2ReplicationStandIn;
+import com.spring.customer.datasource.ReadYourWrites;
+import com.spring.customer.datasource.ReplicaDataSources;
+import com.spring.customer.datasource.ReplicaLagMonitor;
+import com.spring.customer.cache.CustomerCache;
+import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.exceptionhandling.CustomerNotFoundException;
+import com.spring.customer.repository.CustomerRepo;
+import com.spring.customer.service.CustomerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// intervals of an hour: the test runs replication and lag checks itself
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "customer.datasource.routing.enabled=true",
+        "customer.datasource.replica.urls=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "customer.datasource.replica.lag-check-interval=PT1H",
+        "customer.datasource.replication.stand-in=true",
+        "customer.datasource.replication.interval=PT1H"
+})
+class DataSourceRoutingTest {
+
+    @Autowired
+    private CustomerRepo customerRepo;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private H2ReplicationStandIn replication;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private ReplicaDataSources replicas;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerCache customerCache;
+
+    private Customer save(String email) {
+        Customer customer = new Customer();
+        customer.setName("Routed");
+        customer.setEmail(email);
+        customer.setAnnualSpend(new BigDecimal("100"));
+        return customerRepo.save(customer);
+    }
+
+    // the replica carries the heartbeat written by the previous check once replication ran
+    private void catchUp() {
+        lagMonitor.check();
+        replication.replicate();
+        lagMonitor.check();
+    }
+
+    @Test
+    void shouldReadFromTheReplicaOnceReplicatedAndFromThePrimaryWhenPinned() {
+        catchUp();
+        assertTrue(lagMonitor.isUsable("replica-1"));
+
+        save("replica@test.com");
+        assertTrue(customerRepo.findByEmail("replica@test.com").isEmpty(), "not replicated yet");
+
+        readYourWrites.begin("session-1");
+        save("pinned@test.com");
+        assertTrue(customerRepo.findByEmail("pinned@test.com").isPresent(), "the writer reads its own write");
+        readYourWrites.end();
+
+        readYourWrites.begin("session-1");
+        try {
+            assertTrue(customerRepo.findByEmail("replica@test.com").isPresent(), "a pinned session reads the primary");
+        } finally {
+            readYourWrites.end();
+        }
+
+        catchUp();
+        assertTrue(customerRepo.findByEmail("replica@test.com").isPresent());
+    }
+
+    @Test
+    void shouldSkipALaggingReplica() {
+        save("lagging@test.com");
+
+        new JdbcTemplate(replicas.byKey().get("replica-1"))
+                .update("update replication_heartbeat set beat = 0 where id = 1");
+        lagMonitor.check();
+
+        assertFalse(lagMonitor.isUsable("replica-1"));
+        assertTrue(customerRepo.findByEmail("lagging@test.com").isPresent(), "served by the primary");
+
+        catchUp();
+        assertTrue(lagMonitor.isUsable("replica-1"));
+    }
+
+    @Test
+    void shouldConfirmAMissOnThePrimaryBeforeCachingIt() {
+        catchUp();
+        assertTrue(lagMonitor.isUsable("replica-1"));
+
+        CustomerDto created = customerService.createCustomer(new Customer(null, "Routed", "late@test.com",
+                new BigDecimal("100"), null));
+        assertTrue(customerRepo.findById(created.getId()).isEmpty(), "not replicated yet");
+
+        assertEquals(created.getId(), customerService.getCustomerById(created.getId()).getId());
+        assertEquals(created.getId(), customerService.getCustomerByEmail("late@test.com").getId());
+        assertFalse(customerCache.isMissing(created.getId()));
+
+        UUID unknown = UUID.randomUUID();
+        assertThrows(CustomerNotFoundException.class, () -> customerService.getCustomerById(unknown));
+        assertTrue(customerCache.isMissing(unknown));
+    }
+}
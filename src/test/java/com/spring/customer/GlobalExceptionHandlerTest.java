@@ -1,7 +1,11 @@
 package com.spring.customer;
 
+import com.spring.customer.exceptionhandling.CustomerNotFoundException;
+import com.spring.customer.exceptionhandling.FeatureUnavailableException;
 import com.spring.customer.exceptionhandling.GlobalExceptionHandler;
+import com.spring.customer.metrics.CustomerMetrics;
 import com.spring.customer.response.ApiResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -18,7 +22,8 @@ import static org.mockito.Mockito.when;
 
 class GlobalExceptionHandlerTest {
 
-    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler(new CustomerMetrics(meterRegistry));
 
 
     @Test
@@ -48,6 +53,28 @@ class GlobalExceptionHandlerTest {
 
         assertEquals(404, response.getStatusCodeValue());
         assertEquals("Not found", response.getBody().getMessage());
+        assertEquals(1.0, meterRegistry.get(CustomerMetrics.ERRORS)
+                .tags("handler", "handleNotFound", "status", "404").counter().count());
+    }
+
+
+    @Test
+    void testHandleCustomerNotFound() {
+        ResponseEntity<ApiResponse<Object>> response =
+                handler.handleCustomerNotFound(new CustomerNotFoundException("Customer not found with id: 1"));
+
+        assertEquals(404, response.getStatusCodeValue());
+        assertEquals("Customer not found with id: 1", response.getBody().getMessage());
+    }
+
+
+    @Test
+    void testHandleUnavailable() {
+        ResponseEntity<ApiResponse<Object>> response =
+                handler.handleUnavailable(new org.springframework.transaction.CannotCreateTransactionException("Connection is not available"));
+
+        assertEquals(503, response.getStatusCodeValue());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
     }
 
 
@@ -91,6 +118,16 @@ class GlobalExceptionHandlerTest {
     }
 
 
+    @Test
+    void testHandleNotImplemented() {
+        ResponseEntity<ApiResponse<Object>> response =
+                handler.handleNotImplemented(new FeatureUnavailableException("CSV import is not available with sharding enabled"));
+
+        assertEquals(501, response.getStatusCodeValue());
+        assertEquals("CSV import is not available with sharding enabled", response.getBody().getMessage());
+    }
+
+
     @Test
     void testHandleGlobal() {
         ResponseEntity<ApiResponse<Object>> response =
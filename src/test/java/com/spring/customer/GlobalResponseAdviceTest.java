@@ -0,0 +1,94 @@
+package com.spring.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.customer.controller.CustomerController;
+import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.exceptionhandling.GlobalExceptionHandler;
+import com.spring.customer.response.Envelope;
+import com.spring.customer.response.GlobalResponseAdvice;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalResponseAdviceTest {
+
+    private final GlobalResponseAdvice advice = new GlobalResponseAdvice();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void envelopesControllerRoutesButNotApiResponseHandlers() throws NoSuchMethodException {
+
+        MethodParameter getById = returnType(
+                CustomerController.class.getDeclaredMethod("getCustomerbyId", UUID.class, String.class));
+        MethodParameter handler = returnType(
+                GlobalExceptionHandler.class.getDeclaredMethod("handleRuntime", RuntimeException.class));
+
+        assertTrue(advice.supports(getById, MappingJackson2HttpMessageConverter.class));
+        assertFalse(advice.supports(getById, StringHttpMessageConverter.class));
+        assertFalse(advice.supports(handler, MappingJackson2HttpMessageConverter.class));
+    }
+
+    @Test
+    void writesTheEnvelopeWithTheResponseStatus() throws Exception {
+
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        servletResponse.setStatus(201);
+        CustomerDto dto = dto("first");
+
+        Object body = advice.beforeBodyWrite(dto,
+                returnType(CustomerController.class.getDeclaredMethod("getCustomerbyId", UUID.class, String.class)),
+                MediaType.APPLICATION_JSON, MappingJackson2HttpMessageConverter.class,
+                new ServletServerHttpRequest(new MockHttpServletRequest()),
+                new ServletServerHttpResponse(servletResponse));
+
+        assertEquals(
+                "{\"data\":" + objectMapper.writeValueAsString(dto) + ",\"message\":\"Success\",\"status\":201}",
+                objectMapper.writeValueAsString(body));
+    }
+
+    @Test
+    void streamDataIsWrittenLikeAListAndClosed() throws Exception {
+
+        List<CustomerDto> dtos = List.of(dto("first"), dto("second"));
+        AtomicBoolean closed = new AtomicBoolean();
+
+        String fromList = objectMapper.writeValueAsString(new Envelope(dtos, "Success", 200));
+        String fromStream = objectMapper.writeValueAsString(
+                new Envelope(dtos.stream().onClose(() -> closed.set(true)), "Success", 200));
+        String fromIterator = objectMapper.writeValueAsString(
+                new Envelope(dtos.iterator(), "Success", 200));
+
+        assertEquals(fromList, fromStream);
+        assertEquals(fromList, fromIterator);
+        assertTrue(closed.get());
+        assertEquals("{\"data\":[],\"message\":\"Success\",\"status\":200}",
+                objectMapper.writeValueAsString(new Envelope(Stream.empty(), "Success", 200)));
+    }
+
+    private static MethodParameter returnType(Method method) {
+        return new MethodParameter(method, -1);
+    }
+
+    private static CustomerDto dto(String name) {
+        return new CustomerDto(UUID.randomUUID(), name, name + "@test.com",
+                BigDecimal.valueOf(2501.75), LocalDate.of(2025, 10, 12), Membership.GOLD);
+    }
+}
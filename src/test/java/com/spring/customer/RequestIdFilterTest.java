@@ -0,0 +1,50 @@
+package com.spring.customer;
+
+import com.spring.customer.logging.RequestIdFilter;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestIdFilterTest {
+
+    private final RequestIdFilter filter = new RequestIdFilter();
+
+    private String run(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+        AtomicReference<String> seen = new AtomicReference<>();
+        filter.doFilter(request, response, (req, res) -> seen.set(MDC.get(RequestIdFilter.MDC_KEY)));
+        return seen.get();
+    }
+
+
+    @Test
+    void shouldKeepWellFormedIdFromClient() throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(RequestIdFilter.HEADER, "abc-123");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertEquals("abc-123", run(request, response));
+        assertEquals("abc-123", response.getHeader(RequestIdFilter.HEADER));
+        assertNull(MDC.get(RequestIdFilter.MDC_KEY));
+    }
+
+
+    @Test
+    void shouldReplaceMissingOrMalformedId() throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(RequestIdFilter.HEADER, "bad id\nlevel=ERROR");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        String requestId = run(request, response);
+
+        assertTrue(requestId.matches("[0-9a-f]{16}"), requestId);
+        assertEquals(requestId, response.getHeader(RequestIdFilter.HEADER));
+        assertNotEquals(requestId, run(new MockHttpServletRequest(), new MockHttpServletResponse()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.spring.customer;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import com.spring.customer.logging.SamplingTurboFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final SamplingTurboFilter filter = new SamplingTurboFilter();
+
+    @BeforeEach
+    void setup() {
+        filter.addLoggerName("com.example.hot");
+        filter.setRate(10);
+        filter.start();
+    }
+
+    private int passed(Logger logger, Level level, int events) {
+        int passed = 0;
+        for (int i = 0; i < events; i++) {
+            if (filter.decide(null, logger, level, "event {}", new Object[]{i}, null) == FilterReply.NEUTRAL) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+
+    @Test
+    void decide_shouldLetOneInRateInfoEventsThrough() {
+
+        assertEquals(10, passed(context.getLogger("com.example.hot"), Level.INFO, 100));
+        assertEquals(10, passed(context.getLogger("com.example.hot.Child"), Level.INFO, 100));
+    }
+
+
+    @Test
+    void decide_shouldLeaveOtherLoggersLevelsAndChecksAlone() {
+
+        assertEquals(100, passed(context.getLogger("com.example.hotter"), Level.INFO, 100));
+        assertEquals(100, passed(context.getLogger("com.example.hot"), Level.WARN, 100));
+        assertEquals(100, passed(context.getLogger("com.example.hot"), Level.ERROR, 100));
+
+        Logger hot = context.getLogger("com.example.hot");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(FilterReply.NEUTRAL, filter.decide(null, hot, Level.INFO, null, null, null));
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.spring.customer;
+
+import com.spring.customer.dto.CursorPageDto;
+import com.spring.customer.dto.CustomerDto;
+import com.spring.customer.dto.CustomerPatch;
+import com.spring.customer.dto.ShardRebalanceResult;
+import com.spring.customer.entity.Customer;
+import com.spring.customer.exceptionhandling.CustomerNotFoundException;
+import com.spring.customer.exceptionhandling.DuplicateEmailException;
+import com.spring.customer.exceptionhandling.RebalanceInProgressException;
+import com.spring.customer.service.CustomerService;
+import com.spring.customer.shard.CustomerShards;
+import com.spring.customer.shard.ShardDirectory;
+import com.spring.customer.shard.ShardRebalancer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// two application runs over the same in-memory databases: two shards first, then a third one added
+class ShardingTest {
+
+    private static final String SHARD = "jdbc:h2:mem:%s-%d;DB_CLOSE_DELAY=-1";
+
+    private static ConfigurableApplicationContext start(String name, int shards, String directoryRefresh) {
+        List<String> urls = new ArrayList<>();
+        for (int shard = 1; shard < shards; shard++) {
+            urls.add(SHARD.formatted(name, shard));
+        }
+        return new SpringApplicationBuilder(CustomerManagementApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + SHARD.formatted(name, 0),
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--customer.sharding.enabled=true",
+                        "--customer.sharding.urls=" + String.join(",", urls),
+                        "--customer.sharding.directory-refresh=" + directoryRefresh);
+    }
+
+    private static List<UUID> create(CustomerService service, String prefix, int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Customer customer = new Customer(null, i % 2 == 0 ? "Even" : "Odd", prefix + i + "@test.com",
+                    BigDecimal.valueOf(100L * i), LocalDate.now());
+            ids.add(service.createCustomer(customer).getId());
+        }
+        return ids;
+    }
+
+    private static long rows(ShardDirectory directory) {
+        long rows = 0;
+        for (int shard = 0; shard < directory.shardCount(); shard++) {
+            rows += rowsOn(directory, shard);
+        }
+        return rows;
+    }
+
+    private static long rowsOn(ShardDirectory directory, int shard) {
+        return new JdbcTemplate(directory.shard(shard)).queryForObject("select count(*) from customer", Long.class);
+    }
+
+    private static long rowsWithEmail(ShardDirectory directory, String email) {
+        long rows = 0;
+        for (int shard = 0; shard < directory.shardCount(); shard++) {
+            rows += new JdbcTemplate(directory.shard(shard))
+                    .queryForObject("select count(*) from customer where email = ?", Long.class, email);
+        }
+        return rows;
+    }
+
+    private static List<UUID> listAll(CustomerService service) {
+        List<UUID> ids = new ArrayList<>();
+        UUID after = null;
+        do {
+            CursorPageDto<CustomerDto> page = service.getCustomers(after, 7);
+            page.getContent().forEach(customer -> ids.add(customer.getId()));
+            after = page.getNextCursor();
+        } while (after != null);
+        return ids;
+    }
+
+    @Test
+    void shouldSpreadCustomersOverTheShardsAndKeepThemReachableWhenAShardIsAdded() throws Exception {
+        List<UUID> ids;
+
+        try (ConfigurableApplicationContext context = start("sharding-test", 2, "PT0.1S")) {
+            CustomerService service = context.getBean(CustomerService.class);
+            ShardDirectory directory = context.getBean(ShardDirectory.class);
+
+            ids = new ArrayList<>(create(service, "shard", 40));
+
+            assertTrue(rowsOn(directory, 0) > 0 && rowsOn(directory, 1) > 0);
+            assertEquals(40, rowsOn(directory, 0) + rowsOn(directory, 1));
+
+            assertEquals("shard7@test.com", service.getCustomerById(ids.get(7)).getEmail());
+            assertEquals(ids.get(8), service.getCustomerByEmail("shard8@test.com").getId());
+            assertEquals(20, service.getCustomerByName("Even").size());
+            assertThrows(DuplicateEmailException.class, () -> service.createCustomer(
+                    new Customer(null, "Again", "shard9@test.com", BigDecimal.ONE, null)));
+
+            List<UUID> listed = listAll(service);
+            assertEquals(new HashSet<>(ids), new HashSet<>(listed));
+            assertEquals(listed.stream().sorted(CustomerShards.ID_ORDER).toList(), listed, "merged in id order");
+
+            CustomerDto update = service.getCustomerById(ids.get(3));
+            update.setName("Renamed");
+            service.updateCustomer(update, ids.get(3), update.getVersion());
+            assertEquals("Renamed", service.getCustomerById(ids.get(3)).getName());
+
+            service.deleteCustomer(ids.remove(0));
+        }
+
+        try (ConfigurableApplicationContext context = start("sharding-test", 3, "PT0.1S")) {
+            CustomerService service = context.getBean(CustomerService.class);
+            ShardDirectory directory = context.getBean(ShardDirectory.class);
+            ShardRebalancer rebalancer = context.getBean(ShardRebalancer.class);
+
+            assertEquals(0, rowsOn(directory, 2), "the directory still holds the two shard layout");
+            try (Connection other = directory.shard(0).getConnection()) {
+                other.setAutoCommit(false);
+                other.createStatement().executeQuery("select id from shard_rebalance_lock for update").close();
+                assertThrows(RebalanceInProgressException.class, rebalancer::rebalance, "one rebalance at a time");
+                other.rollback();
+            }
+            ShardRebalanceResult result = rebalancer.rebalance();
+            assertTrue(result.getMoved() > 0);
+            assertEquals(List.of(86, 85, 85), result.getBucketsPerShard());
+
+            assertTrue(rowsOn(directory, 2) > 0);
+            assertEquals(39, rowsOn(directory, 0) + rowsOn(directory, 1) + rowsOn(directory, 2));
+            Set<Integer> shards = new HashSet<>();
+            for (UUID id : ids) {
+                assertEquals(id, service.getCustomerById(id).getId());
+                shards.add(directory.shardOf(id));
+            }
+            assertEquals(Set.of(0, 1, 2), shards);
+            assertEquals(new HashSet<>(ids), new HashSet<>(listAll(service)));
+            assertEquals(39L, service.countCustomersByTier().values().stream().mapToLong(Long::longValue).sum());
+            assertEquals(0, rebalancer.rebalance().getMoved(), "already balanced");
+
+            UUID moved = ids.stream().filter(id -> directory.shardOf(id) == 2).findFirst().orElseThrow();
+            service.deleteCustomer(moved);
+            assertThrows(CustomerNotFoundException.class, () -> service.getCustomerById(moved));
+        }
+    }
+
+    // node b never reloads the directory by itself, so it writes to the old shards during the move
+    @Test
+    void shouldCarryOverWritesOfAnInstanceThatHasNotReloadedTheDirectory() throws Exception {
+        List<UUID> ids;
+        try (ConfigurableApplicationContext context = start("sharding-nodes", 2, "PT1H")) {
+            ids = create(context.getBean(CustomerService.class), "node", 40);
+        }
+
+        try (ConfigurableApplicationContext a = start("sharding-nodes", 3, "PT2S");
+             ConfigurableApplicationContext b = start("sharding-nodes", 3, "PT1H")) {
+            CustomerService serviceA = a.getBean(CustomerService.class);
+            CustomerService serviceB = b.getBean(CustomerService.class);
+            ShardDirectory directoryA = a.getBean(ShardDirectory.class);
+            ShardDirectory directoryB = b.getBean(ShardDirectory.class);
+            serviceB.getCustomerById(ids.get(0));
+
+            CompletableFuture<ShardRebalanceResult> rebalance =
+                    CompletableFuture.supplyAsync(() -> a.getBean(ShardRebalancer.class).rebalance());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (IntStream.range(0, ShardDirectory.BUCKETS).filter(bucket -> directoryA.ownerOf(bucket) == 2).count() < 85) {
+                assertTrue(System.nanoTime() < deadline, "buckets copied");
+                Thread.sleep(10);
+            }
+
+            List<UUID> moved = ids.stream().filter(id -> directoryA.shardOf(id) == 2).toList();
+            UUID updated = moved.get(0);
+            UUID deleted = moved.get(1);
+            assertNotEquals(2, directoryB.shardOf(updated), "b still routes to the old shard");
+            CustomerDto update = serviceB.getCustomerById(updated);
+            update.setName("Late");
+            serviceB.updateCustomer(update, updated, update.getVersion());
+            serviceB.deleteCustomer(deleted);
+            UUID created;
+            int i = 0;
+            do {
+                created = serviceB.createCustomer(new Customer(null, "Late", "late" + i++ + "@test.com",
+                        BigDecimal.ONE, LocalDate.now())).getId();
+            } while (directoryA.shardOf(created) != 2);
+            assertFalse(rebalance.isDone(), "written before the old rows are deleted");
+
+            assertEquals(85, rebalance.get(30, TimeUnit.SECONDS).getBucketsPerShard().get(2));
+            assertEquals("Late", serviceA.getCustomerById(updated).getName());
+            assertThrows(CustomerNotFoundException.class, () -> serviceA.getCustomerById(deleted));
+            assertEquals(created, serviceA.getCustomerById(created).getId());
+            assertEquals(39 + i, rows(directoryA), "no copies left behind");
+
+            assertTrue(directoryB.refresh());
+            for (int bucket = 0; bucket < ShardDirectory.BUCKETS; bucket++) {
+                assertEquals(directoryA.ownerOf(bucket), directoryB.ownerOf(bucket));
+            }
+            assertEquals(created, serviceB.getCustomerById(created).getId());
+        }
+    }
+
+    @Test
+    void shouldKeepEmailsUniqueAcrossShards() {
+
+        try (ConfigurableApplicationContext context = start("sharding-emails", 2, "PT1H")) {
+            CustomerService service = context.getBean(CustomerService.class);
+            ShardDirectory directory = context.getBean(ShardDirectory.class);
+
+            // the creates pass the check for an existing email together and land on both shards
+            List<CompletableFuture<UUID>> creates = IntStream.range(0, 16)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> service.createCustomer(
+                            new Customer(null, "Same", "same@test.com", BigDecimal.ONE, LocalDate.now())).getId()))
+                    .toList();
+            List<UUID> created = new ArrayList<>();
+            for (CompletableFuture<UUID> create : creates) {
+                try {
+                    created.add(create.join());
+                } catch (CompletionException ex) {
+                    assertInstanceOf(DuplicateEmailException.class, ex.getCause());
+                }
+            }
+            assertEquals(1, created.size());
+            assertEquals(1, rowsWithEmail(directory, "same@test.com"));
+            UUID same = created.get(0);
+            assertEquals(same, service.getCustomerByEmail("same@test.com").getId());
+
+            UUID other = service.createCustomer(
+                    new Customer(null, "Other", "other@test.com", BigDecimal.ONE, LocalDate.now())).getId();
+            CustomerDto update = service.getCustomerById(other);
+            update.setEmail("same@test.com");
+            assertThrows(DuplicateEmailException.class, () -> service.updateCustomer(update, other, null));
+            CustomerPatch patch = new CustomerPatch();
+            patch.setEmail("same@test.com");
+            assertThrows(DuplicateEmailException.class, () -> service.patchCustomer(other, patch, null, true));
+            assertEquals("other@test.com", service.getCustomerById(other).getEmail());
+
+            // a changed email is released, and so is the email of a deleted customer
+            CustomerPatch rename = new CustomerPatch();
+            rename.setEmail("renamed@test.com");
+            service.patchCustomer(same, rename, null, true);
+            assertEquals(same, service.getCustomerByEmail("renamed@test.com").getId());
+            assertThrows(CustomerNotFoundException.class, () -> service.getCustomerByEmail("same@test.com"));
+            service.updateCustomer(update, other, null);
+            assertEquals(other, service.getCustomerByEmail("same@test.com").getId());
+            service.deleteCustomer(same);
+            assertEquals("renamed@test.com", service.createCustomer(
+                    new Customer(null, "New", "renamed@test.com", BigDecimal.ONE, LocalDate.now())).getEmail());
+
+            // a claim without its customer row is left alone while the write may still be in flight
+            JdbcTemplate index = new JdbcTemplate(directory.shard(0));
+            index.update("insert into customer_email_index (email, customer_id, claimed_at) values (?, ?, ?)",
+                    "fresh@test.com", UUID.randomUUID(), Timestamp.from(Instant.now()));
+            index.update("insert into customer_email_index (email, customer_id, claimed_at) values (?, ?, ?)",
+                    "stale@test.com", UUID.randomUUID(), Timestamp.from(Instant.now().minusSeconds(3600)));
+            assertThrows(DuplicateEmailException.class, () -> service.createCustomer(
+                    new Customer(null, "Fresh", "fresh@test.com", BigDecimal.ONE, LocalDate.now())));
+            UUID stale = service.createCustomer(
+                    new Customer(null, "Stale", "stale@test.com", BigDecimal.ONE, LocalDate.now())).getId();
+            assertEquals(stale, service.getCustomerByEmail("stale@test.com").getId());
+        }
+    }
+}
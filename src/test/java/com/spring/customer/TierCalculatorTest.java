@@ -0,0 +1,147 @@
+package com.spring.customer;
+
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.tier.TierCalculator;
+import com.spring.customer.tier.TierProperties;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TierCalculatorTest {
+
+    private static final ZoneId ZONE = ZoneId.of("UTC");
+    private static final LocalDate TODAY = LocalDate.of(2025, 10, 12);
+
+    private static Clock clockAt(LocalDate date) {
+        return Clock.fixed(date.atTime(12, 0).atZone(ZONE).toInstant(), ZONE);
+    }
+
+
+    @Test
+    void calculate_shouldApplyDefaultRulesWithStrictCutoffs() {
+
+        TierCalculator calculator = new TierCalculator(clockAt(TODAY), new TierProperties());
+
+        assertEquals(Membership.PLATINUM, calculator.calculate(BigDecimal.valueOf(10000), TODAY.minusMonths(6).plusDays(1)));
+        assertEquals(Membership.GOLD, calculator.calculate(BigDecimal.valueOf(10000), TODAY.minusMonths(6)));
+        assertEquals(Membership.GOLD, calculator.calculate(new BigDecimal("1000.00"), TODAY.minusMonths(12).plusDays(1)));
+        assertEquals(Membership.SILVER, calculator.calculate(new BigDecimal("999.99"), TODAY));
+        assertEquals(Membership.SILVER, calculator.calculate(BigDecimal.valueOf(20000), null));
+        assertEquals(Membership.SILVER, calculator.calculate(null, TODAY));
+    }
+
+
+    @Test
+    void evaluate_shouldMatchCalculateOnCentsAndEpochDays() {
+
+        TierCalculator calculator = new TierCalculator(clockAt(TODAY), new TierProperties());
+
+        assertEquals(Membership.PLATINUM, calculator.evaluate(1_000_000, TODAY.minusMonths(1).toEpochDay()));
+        assertEquals(Membership.GOLD, calculator.evaluate(999_999, TODAY.minusMonths(1).toEpochDay()));
+        assertEquals(Membership.SILVER, calculator.evaluate(99_999, TODAY.toEpochDay()));
+        assertEquals(Membership.SILVER, calculator.evaluate(1_000_000, TierCalculator.NO_PURCHASE));
+    }
+
+
+    @Test
+    void calculate_shouldUseConfiguredRules() {
+
+        TierProperties properties = new TierProperties();
+        properties.getRules().put(Membership.PLATINUM, new TierProperties.Rule(new BigDecimal("5000.50"), Period.ofDays(30)));
+        properties.getRules().put(Membership.GOLD, new TierProperties.Rule(BigDecimal.valueOf(500), Period.ofYears(2)));
+
+        TierCalculator calculator = new TierCalculator(clockAt(TODAY), properties);
+
+        assertEquals(Membership.PLATINUM, calculator.calculate(new BigDecimal("5000.50"), TODAY.minusDays(29)));
+        assertEquals(Membership.GOLD, calculator.calculate(new BigDecimal("5000.50"), TODAY.minusDays(30)));
+        assertEquals(Membership.GOLD, calculator.evaluate(500_049, TODAY.minusDays(1).toEpochDay()));
+        assertEquals(Membership.PLATINUM, calculator.evaluate(500_050, TODAY.minusDays(1).toEpochDay()));
+        assertEquals(Membership.GOLD, calculator.calculate(BigDecimal.valueOf(500), TODAY.minusYears(1)));
+        assertEquals(new BigDecimal("5000.50"), calculator.platinumSpend());
+        assertEquals(TODAY.minusDays(30), calculator.platinumCutoff(TODAY));
+    }
+
+
+    @Test
+    void constructor_shouldRejectIncompleteRules() {
+
+        TierProperties missingGold = new TierProperties();
+        missingGold.getRules().remove(Membership.GOLD);
+        assertThrows(IllegalStateException.class, () -> new TierCalculator(clockAt(TODAY), missingGold));
+
+        TierProperties silverRule = new TierProperties();
+        silverRule.getRules().put(Membership.SILVER, new TierProperties.Rule(BigDecimal.ZERO, Period.ofYears(1)));
+        assertThrows(IllegalStateException.class, () -> new TierCalculator(clockAt(TODAY), silverRule));
+    }
+
+
+    @Test
+    void calculate_shouldMoveCutoffsWhenTheDayChanges() {
+
+        AtomicReference<Instant> now = new AtomicReference<>(TODAY.atTime(23, 59).atZone(ZONE).toInstant());
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZONE;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return now.get();
+            }
+        };
+
+        TierCalculator calculator = new TierCalculator(clock, new TierProperties());
+        LocalDate lastPurchase = TODAY.minusMonths(6).plusDays(1);
+
+        assertEquals(Membership.PLATINUM, calculator.calculate(BigDecimal.valueOf(20000), lastPurchase));
+        assertEquals(TODAY, calculator.today());
+
+        now.set(TODAY.plusDays(1).atStartOfDay(ZONE).toInstant());
+
+        assertEquals(Membership.GOLD, calculator.calculate(BigDecimal.valueOf(20000), lastPurchase));
+        assertEquals(TODAY.plusDays(1), calculator.today());
+    }
+
+
+    @Test
+    void evaluate_shouldNotAllocate() {
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        TierCalculator calculator = new TierCalculator(clockAt(TODAY), new TierProperties());
+        BigDecimal spend = new BigDecimal("2500.00");
+        LocalDate lastPurchase = TODAY.minusMonths(3);
+        long epochDay = lastPurchase.toEpochDay();
+
+        // first call fills the per-day cutoffs
+        calculator.calculate(spend, lastPurchase);
+
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        int gold = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (calculator.calculate(spend, lastPurchase) == Membership.GOLD) {
+                gold++;
+            }
+            if (calculator.evaluate(250_000 + i, epochDay) == Membership.GOLD) {
+                gold++;
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(200_000, gold);
+        // a single object per call would be several MB; allow for the bean call itself
+        assertTrue(allocated < 4096, "allocated " + allocated + " bytes");
+    }
+}
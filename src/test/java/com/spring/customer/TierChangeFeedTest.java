@@ -0,0 +1,105 @@
+package com.spring.customer;
+
+import com.spring.customer.entity.TierChangeEvent;
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.exceptionhandling.FeatureUnavailableException;
+import com.spring.customer.outbox.TierChangeFeed;
+import com.spring.customer.outbox.TierChangeOutbox;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TierChangeFeedTest {
+
+    private TierChangeOutbox outbox;
+
+    @BeforeEach
+    void setup() {
+        outbox = mock(TierChangeOutbox.class);
+        when(outbox.isEnabled()).thenReturn(true);
+        when(outbox.latestId()).thenReturn(10L);
+        when(outbox.readAfter(anyLong(), anyLong(), anyInt())).thenReturn(List.of());
+    }
+
+    private TierChangeFeed feed(Duration gapTimeout) {
+        return new TierChangeFeed(outbox, 100, gapTimeout, Duration.ofMinutes(1), Duration.ofMinutes(1));
+    }
+
+    private static TierChangeEvent event(long id) {
+        return new TierChangeEvent(id, UUID.randomUUID(), Membership.SILVER, Membership.GOLD, Instant.now());
+    }
+
+
+    @Test
+    void shouldHoldTheHorizonAtAGapUntilItTimesOut() {
+        when(outbox.readAfter(10L, Long.MAX_VALUE, 100)).thenReturn(List.of(event(11), event(13)));
+
+        TierChangeFeed waiting = feed(Duration.ofMinutes(1));
+        waiting.poll();
+        waiting.read(0, 50);
+        verify(outbox).readAfter(0L, 11L, 50);
+
+        TierChangeFeed givenUp = feed(Duration.ZERO);
+        givenUp.poll();
+        givenUp.read(0, 50);
+        verify(outbox).readAfter(0L, 13L, 50);
+    }
+
+    @Test
+    void shouldTimeEveryGapFromWhenItWasFirstMissed() throws InterruptedException {
+        when(outbox.readAfter(10L, Long.MAX_VALUE, 100)).thenReturn(List.of(event(11), event(13), event(15)));
+        when(outbox.readAfter(11L, Long.MAX_VALUE, 100)).thenReturn(List.of(event(13), event(15)));
+
+        // 12 and 14 are missed by the same poll, so they time out together
+        TierChangeFeed feed = feed(Duration.ofMillis(500));
+        feed.poll();
+        Thread.sleep(600);
+        feed.poll();
+        feed.read(0, 50);
+        verify(outbox).readAfter(0L, 15L, 50);
+    }
+
+    @Test
+    void shouldStopAtTheFirstGapStillWaitedFor() throws InterruptedException {
+        when(outbox.readAfter(10L, Long.MAX_VALUE, 100)).thenReturn(List.of(event(11), event(13)));
+        when(outbox.readAfter(11L, Long.MAX_VALUE, 100)).thenReturn(List.of(event(13), event(15)));
+
+        TierChangeFeed feed = feed(Duration.ofMillis(500));
+        feed.poll();
+        Thread.sleep(300);
+        // 14 is first missed here
+        feed.poll();
+        Thread.sleep(300);
+        feed.poll();
+        feed.read(0, 50);
+        verify(outbox).readAfter(0L, 13L, 50);
+    }
+
+    @Test
+    void shouldReturnOffsetsAndRejectBadLimits() {
+        TierChangeFeed feed = feed(Duration.ofMinutes(1));
+        when(outbox.readAfter(eq(5L), eq(10L), eq(2))).thenReturn(List.of(event(6), event(8)));
+
+        var batch = feed.read(5, 2);
+        assertEquals(8L, batch.getLastEventId());
+        assertTrue(batch.isHasMore());
+        assertEquals(10L, feed.read(10, 2).getLastEventId());
+
+        assertThrows(IllegalArgumentException.class, () -> feed.read(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> feed.read(0, 1001));
+        assertThrows(IllegalArgumentException.class, () -> feed.read(-1, 10));
+
+        when(outbox.isEnabled()).thenReturn(false);
+        assertThrows(FeatureUnavailableException.class, () -> feed.read(0, 10));
+    }
+}
@@ -0,0 +1,109 @@
+package com.spring.customer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.customer.outbox.TierChangeFeed;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:outboxIntegrationTest;DB_CLOSE_DELAY=-1;LAZY_QUERY_EXECUTION=TRUE")
+@AutoConfigureMockMvc
+class TierChangeOutboxIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TierChangeFeed tierChangeFeed;
+
+    private JsonNode data(ResultActions result) throws Exception {
+        return objectMapper.readTree(result.andReturn().getResponse().getContentAsString()).get("data");
+    }
+
+    // "from>to" of every change after the offset, by customer email
+    private Map<String, String> changesAfter(long after, Map<String, String> emailsById) throws Exception {
+        tierChangeFeed.poll();
+        Map<String, String> changes = new HashMap<>();
+        for (JsonNode change : data(mockMvc.perform(get("/Customer/api/customers/tiers/changes")
+                .param("after", String.valueOf(after)))).get("changes")) {
+            changes.put(emailsById.get(change.get("customerId").asText()),
+                    change.get("fromTier").asText(null) + ">" + change.get("toTier").asText());
+        }
+        return changes;
+    }
+
+    private long lastEventId() throws Exception {
+        tierChangeFeed.poll();
+        return data(mockMvc.perform(get("/Customer/api/customers/tiers/changes").param("after", "0").param("limit", "1000")))
+                .get("lastEventId").asLong();
+    }
+
+    @Test
+    void shouldPublishTheTierChangesOfBulkCreateBulkUpdateAndImport() throws Exception {
+
+        String today = LocalDate.now().toString();
+        long start = lastEventId();
+
+        JsonNode created = data(mockMvc.perform(post("/Customer/api/customers/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                [{"name":"Low","email":"low@feed.com","annualSpend":100,"lastPurchaseDate":"%1$s"},
+                                 {"name":"Mid","email":"mid@feed.com","annualSpend":2000,"lastPurchaseDate":"%1$s"}]
+                                """.formatted(today)))
+                .andExpect(status().isOk()));
+        Map<String, String> emailsById = new HashMap<>();
+        for (JsonNode item : created) {
+            emailsById.put(item.get("customer").get("id").asText(), item.get("customer").get("email").asText());
+        }
+        assertEquals(Map.of("low@feed.com", "null>SILVER", "mid@feed.com", "null>GOLD"), changesAfter(start, emailsById));
+
+        long afterCreate = lastEventId();
+        mockMvc.perform(post("/Customer/api/customers/bulk/update")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":" + objectMapper.writeValueAsString(emailsById.keySet())
+                                + ",\"set\":{\"annualSpend\":2000}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.affected").value(2));
+        // only the customer whose tier moved has an event
+        assertEquals(Map.of("low@feed.com", "SILVER>GOLD"), changesAfter(afterCreate, emailsById));
+
+        long afterUpdate = lastEventId();
+        String jobId = data(mockMvc.perform(post("/Customer/api/customers/import")
+                        .contentType("text/csv")
+                        .content("name,email,annualSpend,lastPurchaseDate\r\n"
+                                + "Mid,mid@feed.com,15000," + today + "\r\n"
+                                + "New,new@feed.com,100," + today + "\r\n"))
+                .andExpect(status().isAccepted())).get("jobId").asText();
+
+        String state;
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        do {
+            Thread.sleep(20);
+            state = data(mockMvc.perform(get("/Customer/api/customers/import/" + jobId))).get("state").asText();
+        } while (!state.equals("COMPLETED") && !state.equals("FAILED") && System.nanoTime() < deadline);
+        assertEquals("COMPLETED", state);
+
+        emailsById.put(data(mockMvc.perform(get("/Customer/api/customers/byEmail").param("email", "new@feed.com")))
+                .get("id").asText(), "new@feed.com");
+        assertEquals(Map.of("mid@feed.com", "GOLD>PLATINUM", "new@feed.com", "null>SILVER"),
+                changesAfter(afterUpdate, emailsById));
+    }
+}
@@ -0,0 +1,40 @@
+package com.spring.customer;
+
+import com.spring.customer.enumerator.Membership;
+import com.spring.customer.metrics.TierDistributionGauge;
+import com.spring.customer.service.CustomerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class TierDistributionGaugeTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private double gauge(Membership tier) {
+        return meterRegistry.get(TierDistributionGauge.TIERS).tag("tier", tier.name()).gauge().value();
+    }
+
+
+    @Test
+    void shouldReportTheLastCountsAndKeepThemWhenARefreshFails() {
+        CustomerService customerService = mock(CustomerService.class);
+        when(customerService.countCustomersByTier())
+                .thenReturn(Map.of(Membership.PLATINUM, 3L, Membership.GOLD, 5L, Membership.SILVER, 40L))
+                .thenThrow(new RuntimeException("db down"));
+        TierDistributionGauge tierGauge = new TierDistributionGauge(customerService, meterRegistry);
+
+        assertEquals(0.0, gauge(Membership.GOLD));
+        tierGauge.refresh();
+        assertEquals(3.0, gauge(Membership.PLATINUM));
+        assertEquals(5.0, gauge(Membership.GOLD));
+        assertEquals(40.0, gauge(Membership.SILVER));
+
+        tierGauge.refresh();
+        assertEquals(5.0, gauge(Membership.GOLD));
+    }
+}